@@ -0,0 +1,103 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.openjdk.jmh.annotations.*;
+import org.openu.fimcmp.util.BitArrays;
+import scala.Tuple3;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the 3-candidates of a single partition with the DENSE engine, see
+ * {@link AprCandidateFisGenerator#countCandsK_Part}. <br/>
+ * 'withCopies' is the previous inner loop that copied the transaction's F2 bitset and allocated the array of its
+ * set bits per transaction item, 'inPlace' is the current one, on the transaction's F2 rank set, see
+ * {@link FkRankSet}. <br/>
+ * Run with '-prof gc' and compare the gc.alloc.rate.norm (bytes per operation) of the two,
+ * see the 'jmh' profile in pom.xml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountCandsKBenchmark {
+    private static final int KM1 = 2;
+
+    @Param({"100"})
+    private int totalFreqItems;
+    @Param({"0.3"})
+    private double f2Density;
+    @Param({"2000"})
+    private int totalTrs;
+    @Param({"12"})
+    private int avgTrSize;
+
+    private AprCandidateFisGenerator candGen;
+    private NextSizeItemsetGenHelper genHelper;
+    private List<Tuple3<int[], long[], Integer>> trs;
+    //the same transactions with plain bitsets of the F2 ranks:
+    private List<Tuple3<int[], long[], Integer>> bitSetTrs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        List<int[]> f2 = new ArrayList<>();
+        for (int elem1 = 0; elem1 < totalFreqItems; ++elem1) {
+            for (int elem2 = elem1 + 1; elem2 < totalFreqItems; ++elem2) {
+                if (random.nextDouble() < f2Density) {
+                    f2.add(new int[]{elem1, elem2, 1 + random.nextInt(1000)});
+                }
+            }
+        }
+        CurrSizeFiRanks f2Ranks = CurrSizeFiRanks.construct(f2, totalFreqItems, totalFreqItems);
+        genHelper = NextSizeItemsetGenHelper.construct(new FiRanksToFromItems(f2Ranks),
+                totalFreqItems, f2Ranks.getTotalCurrSizeRanks(), NextSizeItemsetGenHelper.CountingEngine.DENSE);
+
+        candGen = new AprCandidateFisGenerator();
+        trs = new ArrayList<>(totalTrs);
+        bitSetTrs = new ArrayList<>(totalTrs);
+        for (int trInd = 0; trInd < totalTrs; ++trInd) {
+            int[] sortedTr = random.ints(1 + random.nextInt(2 * avgTrSize), 0, totalFreqItems)
+                    .distinct().sorted().toArray();
+            Tuple3<int[], long[], Integer> tr = candGen.toSortedRanks1AndBitArrayOfRanks2(sortedTr, 1, f2Ranks);
+            trs.add(tr);
+            long[] f2Bs = new long[BitArrays.requiredSize(f2Ranks.getTotalCurrSizeRanks(), 0)];
+            BitArrays.setAll(f2Bs, 0, FkRankSet.toRanks(tr._2()));
+            bitSetTrs.add(new Tuple3<>(sortedTr, f2Bs, 1));
+        }
+    }
+
+    @Benchmark
+    public CandCounts inPlace() {
+        return candGen.countCandsK_Part(trs.iterator(), KM1, genHelper).next();
+    }
+
+    @Benchmark
+    public CandCounts withCopies() {
+        CandCounts candToCount = CandCounts.newCounts(
+                CandCounts.Layout.DENSE, genHelper.getTotalFreqItems(), genHelper.getTotalCurrSizeRanks());
+        for (Tuple3<int[], long[], Integer> f1AndFkm1BitSet : bitSetTrs) {
+            int[] f1 = f1AndFkm1BitSet._1();
+            if (f1.length <= KM1) {
+                continue;
+            }
+            long[] fKm1BitSet = f1AndFkm1BitSet._2();
+            if (BitArrays.isZerosOnly(fKm1BitSet, 0)) {
+                continue;
+            }
+            final int weight = f1AndFkm1BitSet._3();
+
+            final int resColumnsSize = f1.length - KM1;
+            for (int ii = 0; ii < resColumnsSize; ++ii) {
+                int item = f1[ii];
+                long[] hasChanceForNextRkm1Bs = genHelper.getCurrRanksForNextSizeCandsBitSet(item);
+                long[] rKm1ForCandKsBitSet = BitArrays.andReturn(fKm1BitSet, hasChanceForNextRkm1Bs, 0, fKm1BitSet.length);
+                int[] rKm1ForCandKs = BitArrays.asNumbers(rKm1ForCandKsBitSet, 0);
+                candToCount.addAll(item, rKm1ForCandKs, 0, rKm1ForCandKs.length, weight);
+            }
+        }
+        return candToCount;
+    }
+}
@@ -6,6 +6,8 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.openu.fimcmp.algs.algbase.AlgBase;
 import org.openu.fimcmp.algs.apriori.AprioriAlg;
 import org.openu.fimcmp.algs.bigfim.BigFimAlg;
+import org.openu.fimcmp.algs.converter.RankedBinConverterAlg;
+import org.openu.fimcmp.algs.distapriori.DistAprioriAlg;
 import org.openu.fimcmp.algs.eclat.EclatAlg;
 import org.openu.fimcmp.algs.fin.FinAlg;
 import org.openu.fimcmp.algs.fpgrowth.FpGrowthAlg;
@@ -46,9 +48,9 @@ public class SparkContextFactory {
                     FiResultHolderFactory.class, BitsetFiResultHolderFactory.class,
                     CountingOnlyFiResultHolderFactory.class,
 
-                    BitSet.class, IteratorOverArray.class,
+                    BitSet.class, IteratorOverArray.class, AdaptiveCounters.class, AdaptiveCounters[].class,
 
-                    Object[].class, boolean[].class,
+                    Object[].class, boolean[].class, byte[].class, short[].class,
                     String.class, String[].class, Integer.class, Integer[].class, Integer[][].class, Integer[][][].class,
                     int[].class, int[][].class, int[][][].class, long[].class,
                     ArrayList.class, new ArrayList<>().iterator().getClass(),
@@ -61,8 +63,10 @@ public class SparkContextFactory {
             conf.registerKryoClasses(FinAlg.getClassesToRegister());
             conf.registerKryoClasses(BigFimAlg.getClassesToRegister());
             conf.registerKryoClasses(AprioriAlg.getClassesToRegister());
+            conf.registerKryoClasses(DistAprioriAlg.getClassesToRegister());
             conf.registerKryoClasses(EclatAlg.getClassesToRegister());
             conf.registerKryoClasses(FpGrowthAlg.getClassesToRegister());
+            conf.registerKryoClasses(RankedBinConverterAlg.getClassesToRegister());
         }
 
 //        conf.set("spark.driver.memory", "1200m");
@@ -3,13 +3,20 @@ package org.openu.fimcmp.algs.algbase;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.storage.StorageLevel;
 import org.openu.fimcmp.SparkContextFactory;
 import org.openu.fimcmp.algs.apriori.AprioriAlg;
+import org.openu.fimcmp.algs.apriori.DhpPairBuckets;
 import org.openu.fimcmp.itemset.FreqItemset;
+import org.openu.fimcmp.util.IntIntOpenHashMap;
 import scala.Tuple2;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,7 +34,16 @@ public abstract class AlgBase<P extends CommonAlgProperties, R> implements Seria
                 BasicOps.class,
                 CommonAlgProperties.class,
                 F1Context.class,
-                TrsCount.class
+                ItemCounts.class,
+                ItemCounts.Totals.class,
+                ItemCounts.IdPartCounts.class,
+                ItemCounts.StrPartCounts.class,
+                CostBalancedRepartitioner.class,
+                ItemDictionary.class,
+                RankedInput.class,
+                TrsCount.class,
+                WeightedRanks.class,
+                WeightedRanks.RanksKey.class
         };
     }
 
@@ -63,7 +79,14 @@ public abstract class AlgBase<P extends CommonAlgProperties, R> implements Seria
         return res;
     }
 
-    protected JavaRDD<ArrayList<String>> readInputAsListRdd(JavaSparkContext sc, StopWatch sw) {
+    protected JavaRDD<ArrayList<String>> readInputAsListRdd(JavaSparkContext sc, StopWatch sw) throws IOException {
+        if (props.inputFormat != CommonAlgProperties.InputFormat.TEXT) {
+            //the items are only available as ranks => map them back:
+            RankedInput rankedInput = readRankedInput(sc, sw);
+            String[] rankToItem = rankedInput.f1Context.rankToItem;
+            return rankedInput.ranks1Rdd.map(ranks -> BasicOps.ranksToItemsList(ranks, rankToItem));
+        }
+
         pp(sw, "Start reading " + inputFile);
         JavaRDD<ArrayList<String>> res = BasicOps.readLinesAsSortedItemsList(inputFile, props.inputNumParts, sc);
         if (props.isPersistInput) {
@@ -74,17 +97,129 @@ public abstract class AlgBase<P extends CommonAlgProperties, R> implements Seria
         return res;
     }
 
-    protected F1Context computeF1Context(JavaRDD<String[]> trs, StopWatch sw) {
-        TrsCount cnts = computeCounts(trs, sw);
-        AprioriAlg<String> apr = new AprioriAlg<>(cnts.minSuppCnt);
+    /**
+     * Read the input transactions as sorted F1 ranks along with their F1 context. <br/>
+     * Depending on {@link CommonAlgProperties#inputFormat}, either parses the text input and computes F1,
+     * or reads the pre-ranked transactions directly, see {@link RankedTrsFile}. <br/>
+     * The PARQUET input is read through a Dataset rather than as text lines, see {@link ParquetInput}. <br/>
+     * The ranked text input is reused across runs if {@link CommonAlgProperties#rankedCacheDir} is set. <br/>
+     * The transactions are repartitioned by their counting cost if {@link CommonAlgProperties#costBalancedNumParts}
+     * is set.
+     */
+    protected RankedInput readRankedInput(JavaSparkContext sc, StopWatch sw) throws IOException {
+        RankedInput res = readRankedInputAsIs(sc, sw);
+        if (props.costBalancedNumParts == null) {
+            return res;
+        }
+        return new RankedInput(res.f1Context, repartitionByCost(res.ranks1Rdd, props.costBalancedNumParts, sw));
+    }
 
-        List<Tuple2<String, Integer>> sortedF1 = apr.computeF1WithSupport(trs);
-        pp(sw, "F1 size = " + sortedF1.size());
-        if (props.isPrintIntermediateRes) {
-            pp(sw, sortedF1);
+    private RankedInput readRankedInputAsIs(JavaSparkContext sc, StopWatch sw) throws IOException {
+        switch (props.inputFormat) {
+            case TEXT:
+                if (props.rankedCacheDir == null) {
+                    return rankTextInput(sc, sw);
+                }
+                return readRankedTextInputViaCache(sc, sw);
+            case RANKED_BINARY:
+                return readRankedFile(inputFile, sc, sw);
+            case VERTICAL:
+                RankedInput res = readVerticalInput(sc, sw).toRankedInput(props.inputNumParts);
+                pp(sw, "Pivoted the vertical input to transactions");
+                return res;
+            case PARQUET:
+                return rankParquetInput(sc, sw);
+            default:
+                throw new IllegalArgumentException("Unsupported input format " + props.inputFormat);
         }
+    }
 
-        return new F1Context(apr, sortedF1, cnts, sw);
+    /**
+     * Read the VERTICAL input as the frequent items' TIDs along with their F1 context, see {@link VerticalInput}
+     */
+    protected VerticalInput readVerticalInput(JavaSparkContext sc, StopWatch sw) {
+        if (props.inputFormat != CommonAlgProperties.InputFormat.VERTICAL) {
+            throw new IllegalArgumentException("Expected VERTICAL input, got " + props.inputFormat);
+        }
+
+        pp(sw, "Start reading vertical " + inputFile);
+        JavaRDD<Tuple2<String, int[]>> itemAndTidsRdd =
+                VerticalInput.readItemAndTids(inputFile, props.inputNumParts, sc).persist(StorageLevel.MEMORY_ONLY_SER());
+
+        pp(sw, "Starting FI computation");
+        TrsCount cnts = toTrsCount(VerticalInput.countTrs(itemAndTidsRdd), sw);
+        List<Tuple2<String, Integer>> sortedF1 = VerticalInput.getSortedF1(itemAndTidsRdd, cnts.minSuppCnt);
+        F1Context f1Context = newF1Context(new AprioriAlg<>(cnts.minSuppCnt), sortedF1, cnts, sw);
+
+        JavaRDD<Tuple2<Integer, int[]>> rankAndTidsRdd = VerticalInput.toRankAndTids(itemAndTidsRdd, f1Context.itemToRank);
+        rankAndTidsRdd = rankAndTidsRdd.persist(StorageLevel.MEMORY_ONLY_SER());
+        rankAndTidsRdd.count();
+        itemAndTidsRdd.unpersist();
+        pp(sw, "Done reading vertical " + inputFile);
+        return new VerticalInput(f1Context, rankAndTidsRdd);
+    }
+
+    /**
+     * Same as {@link #readRankedInput}, but reads a local TEXT input file directly into the driver's memory,
+     * without Spark, see {@link MappedTextInput}. <br/>
+     * Intended for the algorithms that run entirely on the driver.
+     */
+    protected LocalRankedInput readLocalRankedInput(StopWatch sw) throws IOException {
+        if (props.inputFormat != CommonAlgProperties.InputFormat.TEXT) {
+            throw new IllegalArgumentException("Only TEXT input can be read locally, got " + props.inputFormat);
+        }
+
+        pp(sw, "Start reading locally " + inputFile);
+        MappedTextInput input = MappedTextInput.parse(toLocalPath(inputFile));
+
+        pp(sw, "Starting FI computation");
+        TrsCount cnts = toTrsCount(input.totalTrs, sw);
+        List<Tuple2<String, Integer>> sortedF1 = input.getSortedF1(cnts.minSuppCnt);
+        F1Context f1Context = newF1Context(new AprioriAlg<>(cnts.minSuppCnt), sortedF1, cnts, sw);
+
+        int[][] rankTrs = input.toRankTrs(f1Context.itemToRank);
+        pp(sw, "Done reading locally " + inputFile);
+        return new LocalRankedInput(f1Context, rankTrs);
+    }
+
+    private JavaRDD<int[]> repartitionByCost(JavaRDD<int[]> ranks1Rdd, int numParts, StopWatch sw) {
+        CostBalancedRepartitioner.PartitionCosts inputCosts = CostBalancedRepartitioner.computePartitionCosts(ranks1Rdd);
+        pp(sw, "Input partition costs: " + inputCosts);
+
+        JavaRDD<int[]> res = new CostBalancedRepartitioner(numParts).repartition(ranks1Rdd, inputCosts);
+        res = res.persist(StorageLevel.MEMORY_ONLY_SER());
+        CostBalancedRepartitioner.PartitionCosts resCosts = CostBalancedRepartitioner.computePartitionCosts(res);
+        ranks1Rdd.unpersist();
+        pp(sw, "Cost-balanced partition costs: " + resCosts);
+        return res;
+    }
+
+    /**
+     * @return the transactions as (sorted F1 ranks, weight) pairs, see {@link WeightedRanks}. <br/>
+     * Unless {@link CommonAlgProperties#isDedupTransactions} is set, each transaction simply gets the weight of 1.
+     */
+    protected JavaRDD<Tuple2<int[], Integer>> toWeightedRanks1(JavaRDD<int[]> ranks1Rdd, StopWatch sw) {
+        if (!props.isDedupTransactions) {
+            return WeightedRanks.withUnitWeights(ranks1Rdd);
+        }
+
+        JavaRDD<Tuple2<int[], Integer>> res = WeightedRanks.dedup(ranks1Rdd).persist(StorageLevel.MEMORY_ONLY_SER());
+        long totalDistinctTrs = res.count();
+        ranks1Rdd.unpersist();
+        pp(sw, "Distinct transactions: " + totalDistinctTrs);
+        return res;
+    }
+
+    protected F1Context computeF1Context(JavaRDD<String[]> trs, StopWatch sw) {
+        return newF1Context(ItemCounts.countItems(trs, props.minSupp, props.dhpNumBuckets), sw);
+    }
+
+    private F1Context newF1Context(ItemCounts<String> itemCounts, StopWatch sw) {
+        TrsCount cnts = toTrsCount(itemCounts.totalTrs, sw);
+        AprioriAlg<String> apr = new AprioriAlg<>(cnts.minSuppCnt);
+
+        List<Tuple2<String, Integer>> sortedF1 = itemCounts.getSortedF1(cnts.minSuppCnt);
+        return newF1Context(apr, sortedF1, cnts, itemCounts.toPairFilterOrNull(sortedF1, cnts.minSuppCnt), sw);
     }
 
     public static List<FreqItemset> printAllItemsets(List<FreqItemset> allFrequentItemsets) {
@@ -94,8 +229,129 @@ public abstract class AlgBase<P extends CommonAlgProperties, R> implements Seria
         return allFrequentItemsets;
     }
 
-    private TrsCount computeCounts(JavaRDD<String[]> trs, StopWatch sw) {
-        final long totalTrs = trs.count();
+    private RankedInput rankTextInput(JavaSparkContext sc, StopWatch sw) {
+        return rankItemsInput(readInput(sc, sw), sw);
+    }
+
+    private RankedInput rankItemsInput(JavaRDD<String[]> trs, StopWatch sw) {
+        if (props.isUseItemDictionary) {
+            return rankInputViaItemDictionary(trs, sw);
+        }
+        pp(sw, "Starting FI computation");
+        F1Context f1Context = computeF1Context(trs, sw);
+        return new RankedInput(f1Context, f1Context.computeRddRanks1(trs));
+    }
+
+    private RankedInput readRankedTextInputViaCache(JavaSparkContext sc, StopWatch sw) throws IOException {
+        RankedInputCache cache = RankedInputCache.forInput(props.rankedCacheDir, inputFile, sc);
+        String cachedFile = cache.findEntryOrNull(props.minSupp, sc);
+        if (cachedFile != null) {
+            pp(sw, "Found the ranked input in the cache");
+            return readRankedFile(cachedFile, sc, sw);
+        }
+
+        RankedInput res = rankTextInput(sc, sw);
+        cache.store(res.f1Context, res.ranks1Rdd, sc);
+        pp(sw, "Stored the ranked input in the cache");
+        return res;
+    }
+
+    /**
+     * Parses the input once into the per-partition dictionaries, which stay persisted until the ranks are computed,
+     * see {@link ItemDictionary}
+     */
+    private RankedInput rankInputViaItemDictionary(JavaRDD<String[]> trs, StopWatch sw) {
+        JavaRDD<ItemDictionary> dictsRdd = ItemDictionary.encodePartitions(trs);
+
+        pp(sw, "Starting FI computation");
+        ItemCounts<String> itemCounts = ItemCounts.countDictionaryItems(dictsRdd, props.minSupp, props.dhpNumBuckets);
+        trs.unpersist(); //the dictionaries have been materialized by the counting
+        F1Context f1Context = newF1Context(itemCounts, sw);
+
+        JavaRDD<int[]> ranks1Rdd = f1Context.computeRddRanks1FromDictionaries(dictsRdd);
+        //materialize the ranks before dropping the dictionaries, so that the input is not kept twice:
+        ranks1Rdd.count();
+        dictsRdd.unpersist();
+        return new RankedInput(f1Context, ranks1Rdd);
+    }
+
+    /**
+     * Reads the items column of the PARQUET input, see {@link ParquetInput}. <br/>
+     * The 'array&lt;int&gt;' item ids are ranked directly, the 'array&lt;string&gt;' items are ranked
+     * the same way as the TEXT input items.
+     */
+    private RankedInput rankParquetInput(JavaSparkContext sc, StopWatch sw) {
+        pp(sw, String.format("Start reading parquet %s, column '%s'", inputFile, props.parquetItemsColumn));
+        ParquetInput input = ParquetInput.read(inputFile, props.parquetItemsColumn, props.parquetFilter);
+        if (!input.isIntItems()) {
+            JavaRDD<String[]> trs = input.toSortedItemsRdd();
+            if (props.isPersistInput) {
+                trs = trs.persist(StorageLevel.MEMORY_ONLY_SER());
+            }
+            pp(sw, "Done reading parquet " + inputFile);
+            return rankItemsInput(trs, sw);
+        }
+
+        JavaRDD<int[]> itemIdsRdd = input.toSortedItemIdsRdd().persist(StorageLevel.MEMORY_ONLY_SER());
+        pp(sw, "Done reading parquet " + inputFile);
+
+        pp(sw, "Starting FI computation");
+        ItemCounts<Integer> itemCounts = ItemCounts.countItemIds(itemIdsRdd, props.minSupp, props.dhpNumBuckets);
+        TrsCount cnts = toTrsCount(itemCounts.totalTrs, sw);
+        List<Tuple2<Integer, Integer>> sortedF1Ids = itemCounts.getSortedF1(cnts.minSuppCnt);
+        List<Tuple2<String, Integer>> sortedF1 = sortedF1Ids.stream()
+                .map(idAndSupp -> new Tuple2<>(String.valueOf(idAndSupp._1), idAndSupp._2))
+                .collect(Collectors.toList());
+        F1Context f1Context = newF1Context(new AprioriAlg<>(cnts.minSuppCnt), sortedF1, cnts,
+                itemCounts.toPairFilterOrNull(sortedF1Ids, cnts.minSuppCnt), sw);
+
+        Broadcast<IntIntOpenHashMap> idToRankPlus1Bc = sc.broadcast(ParquetInput.toIdToRankPlus1(sortedF1Ids));
+        JavaRDD<int[]> ranks1Rdd = itemIdsRdd
+                .map(tr -> ParquetInput.getMappedFilteredAndSortedTrs(tr, idToRankPlus1Bc.value()))
+                .persist(StorageLevel.MEMORY_ONLY_SER());
+        ranks1Rdd.count();
+        itemIdsRdd.unpersist();
+        pp(sw, "Filtered and saved RDD ranks 1");
+        return new RankedInput(f1Context, ranks1Rdd);
+    }
+
+    private RankedInput readRankedFile(String rankedFile, JavaSparkContext sc, StopWatch sw) throws IOException {
+        pp(sw, "Start reading ranked " + rankedFile);
+        RankedTrsFile.Header header = RankedTrsFile.readHeader(rankedFile, sc);
+
+        pp(sw, "Starting FI computation");
+        TrsCount cnts = toTrsCount(header.totalTrs, sw);
+        List<Tuple2<String, Integer>> sortedF1 = header.getSortedF1(cnts.minSuppCnt);
+        F1Context f1Context = newF1Context(new AprioriAlg<>(cnts.minSuppCnt), sortedF1, cnts, sw);
+
+        JavaRDD<int[]> ranks1Rdd = RankedTrsFile.readRanks(rankedFile, props.inputNumParts, sortedF1.size(), sc);
+        ranks1Rdd = ranks1Rdd.persist(StorageLevel.MEMORY_ONLY_SER());
+        pp(sw, "Done reading ranked " + rankedFile);
+        return new RankedInput(f1Context, ranks1Rdd);
+    }
+
+    private F1Context newF1Context(
+            AprioriAlg<String> apr, List<Tuple2<String, Integer>> sortedF1, TrsCount cnts, StopWatch sw) {
+        return newF1Context(apr, sortedF1, cnts, null, sw);
+    }
+
+    private F1Context newF1Context(AprioriAlg<String> apr, List<Tuple2<String, Integer>> sortedF1, TrsCount cnts,
+                                   DhpPairBuckets.Filter pairFilterOrNull, StopWatch sw) {
+        pp(sw, "F1 size = " + sortedF1.size());
+        if (props.isPrintIntermediateRes) {
+            pp(sw, sortedF1);
+        }
+        if (pairFilterOrNull != null) {
+            pp(sw, String.format("DHP frequent pair buckets: %s of %s",
+                    pairFilterOrNull.totalFreqBuckets(), pairFilterOrNull.totalBuckets()));
+        } else if (props.dhpNumBuckets != null) {
+            pp(sw, "DHP pair buckets have not been counted for the " + props.inputFormat + " input");
+        }
+
+        return new F1Context(apr, sortedF1, cnts, pairFilterOrNull, sw);
+    }
+
+    private TrsCount toTrsCount(long totalTrs, StopWatch sw) {
         final long minSuppCount = BasicOps.minSuppCount(totalTrs, props.minSupp);
 
         pp(sw, "Total records: " + totalTrs);
@@ -104,6 +360,16 @@ public abstract class AlgBase<P extends CommonAlgProperties, R> implements Seria
         return new TrsCount(totalTrs, minSuppCount);
     }
 
+    private static Path toLocalPath(String inputFile) {
+        if (inputFile.startsWith("file:")) {
+            return Paths.get(URI.create(inputFile));
+        }
+        if (inputFile.contains("://")) {
+            throw new IllegalArgumentException(String.format("Input file '%s' is not a local file", inputFile));
+        }
+        return Paths.get(inputFile);
+    }
+
     private static String tt(StopWatch sw) {
         return "[" + sw.toString() + "] ";
     }
@@ -28,12 +28,11 @@ public class BasicOps implements Serializable {
     }
 
     public static JavaRDD<ArrayList<String>> linesAsSortedItemsList(JavaRDD<String> lines) {
-        return lines.map(BasicOps::splitLineToSortedList);
+        return lines.mapPartitions(BasicOps::splitLinesToSortedLists);
     }
 
     public static JavaRDD<String[]> linesAsSortedItemsArr(JavaRDD<String> lines) {
-        return lines.map(BasicOps::splitLineToSortedArr);
-//        return lines.map(line -> line.split(" "));
+        return lines.mapPartitions(BasicOps::splitLinesToSortedArrs);
     }
 
     public static <T> Map<T, Integer> itemToRank(List<T> f1) {
@@ -78,6 +77,31 @@ public class BasicOps implements Serializable {
         return res;
     }
 
+    /**
+     * Same as {@link #getMappedFilteredAndSortedTrs(Object[], Map)}, but for item ids, see {@link ItemDictionary}
+     * @param idToRank item id to its rank, or -1 for infrequent items
+     */
+    public static int[] getMappedFilteredAndSortedTrs(int[] itemIds, int[] idToRank) {
+        int resCnt = 0;
+        for (int id : itemIds) {
+            if (idToRank[id] >= 0) {
+                ++resCnt;
+            }
+        }
+
+        int[] res = new int[resCnt];
+        int ii=0;
+        for (int id : itemIds) {
+            int rank = idToRank[id];
+            if (rank >= 0) {
+                res[ii++] = rank;
+            }
+        }
+
+        Arrays.sort(res); //smaller rank means more frequent
+        return res;
+    }
+
     public static long minSuppCount(long totalTrs, double minSupp) {
         return (long)Math.ceil(totalTrs * minSupp);
     }
@@ -119,28 +143,47 @@ public class BasicOps implements Serializable {
         return rankToItem;
     }
 
-    static ArrayList<String> splitLineToSortedList(String line) {
-        SortedSet<String> res = splitLineToSortedSet(line);
-        return new ArrayList<>(res);
+    public static ArrayList<String> ranksToItemsList(int[] ranks, String[] rankToItem) {
+        ArrayList<String> res = new ArrayList<>(ranks.length);
+        for (int rank : ranks) {
+            res.add(rankToItem[rank]);
+        }
+        return res;
     }
 
-    static String[] splitLineToSortedArr(String line) {
-        SortedSet<String> res = splitLineToSortedSet(line);
+    /**
+     * A single tokenizer per partition, so that its buffers are reused for all the partition's lines
+     */
+    static Iterator<ArrayList<String>> splitLinesToSortedLists(Iterator<String> lineIt) {
+        LineTokenizer tokenizer = new LineTokenizer();
+        return new Iterator<ArrayList<String>>() {
+            @Override
+            public boolean hasNext() {
+                return lineIt.hasNext();
+            }
 
-        String[] resArr = new String[res.size()];
-        int ii=0;
-        for (String item : res) {
-            resArr[ii++] = item;
-        }
-        return resArr;
+            @Override
+            public ArrayList<String> next() {
+                return tokenizer.toSortedItemsList(lineIt.next());
+            }
+        };
     }
 
-    private static SortedSet<String> splitLineToSortedSet(String line) {
-        String[] items = line.split(" ");
-        SortedSet<String> res = new TreeSet<>();
-        for (String item : items) {
-            res.add(item.trim());
-        }
-        return res;
+    /**
+     * A single tokenizer per partition, so that its buffers are reused for all the partition's lines
+     */
+    static Iterator<String[]> splitLinesToSortedArrs(Iterator<String> lineIt) {
+        LineTokenizer tokenizer = new LineTokenizer();
+        return new Iterator<String[]>() {
+            @Override
+            public boolean hasNext() {
+                return lineIt.hasNext();
+            }
+
+            @Override
+            public String[] next() {
+                return tokenizer.toSortedItemsArr(lineIt.next());
+            }
+        };
     }
 }
@@ -23,6 +23,65 @@ public class CommonAlgProperties implements Serializable {
 
     public boolean isPersistInput = false;
 
+    public enum InputFormat {TEXT, RANKED_BINARY, VERTICAL, PARQUET}
+
+    /**
+     * TEXT: a line per transaction, items separated by spaces. <br/>
+     * RANKED_BINARY: the transactions already converted to F1 ranks, see {@link RankedTrsFile}. <br/>
+     * VERTICAL: a line per item, the item followed by its TIDs, see {@link VerticalInput}. <br/>
+     * PARQUET: a row per transaction, the items in an array column, see {@link ParquetInput}.
+     */
+    public InputFormat inputFormat = InputFormat.TEXT;
+
+    /**
+     * The name of the PARQUET input column holding the items, either 'array&lt;string&gt;' or 'array&lt;int&gt;'
+     */
+    public String parquetItemsColumn = "items";
+
+    /**
+     * Optional SQL condition to select the PARQUET input rows, pushed down to the Parquet reader. <br/>
+     * Null means all the rows are read.
+     */
+    public String parquetFilter = null;
+
+    /**
+     * Whether to map the TEXT input items to int ids of each partition before computing F1,
+     * see {@link ItemDictionary}. <br/>
+     * The input is then parsed once and persisted as ints regardless of {@link #isPersistInput},
+     * at the cost of holding each partition in a single record.
+     */
+    public boolean isUseItemDictionary = false;
+
+    /**
+     * Optional number of partitions to repartition the ranked transactions into,
+     * so that each partition gets about the same counting cost, see {@link CostBalancedRepartitioner}. <br/>
+     * Null means the transactions stay partitioned as read.
+     */
+    public Integer costBalancedNumParts = null;
+
+    /**
+     * Optional directory to cache the ranked TEXT input in, see {@link RankedInputCache}. <br/>
+     * Null means no caching.
+     */
+    public String rankedCacheDir = null;
+
+    /**
+     * Optional number of DHP buckets to count the pairs of items in during the F1 pass,
+     * so that Apriori counts only the F2 candidates whose bucket is frequent,
+     * see {@link org.openu.fimcmp.algs.apriori.DhpPairBuckets}. <br/>
+     * The F1 pass then hashes every pair of every transaction, and the driver checks every pair of the frequent items.
+     * In return, each partition holds and shuffles a counter per F2 candidate instead of the whole pairs matrix,
+     * but only if most of the pairs are pruned, i.e. on sparse data. <br/>
+     * Applies to the input that is counted by Spark, i.e. not to the RANKED_BINARY, VERTICAL or cached input. <br/>
+     * Null means all the pairs of the frequent items are F2 candidates.
+     */
+    public Integer dhpNumBuckets = null;
+
+    /**
+     * Whether to collapse identical ranked transactions into a single weighted one, see {@link WeightedRanks}
+     */
+    public boolean isDedupTransactions = false;
+
     public boolean isPrintIntermediateRes = true;
 
     /**
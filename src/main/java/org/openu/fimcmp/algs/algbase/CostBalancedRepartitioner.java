@@ -0,0 +1,158 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.spark.HashPartitioner;
+import org.apache.spark.api.java.JavaRDD;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Repartitions the ranked transactions so that each partition gets about the same counting cost. <br/>
+ * The cost of counting the candidates of a transaction grows with the square of its length,
+ * see AprCandidateFisGenerator.countCands2_Part(), so the partitions holding the long transactions
+ * become the stragglers when the transactions are partitioned by their position in the input file. <br/>
+ * <pre>
+ * The transactions are laid out on a line by their cumulative cost, in the order of the input partitions.
+ * The line is then cut into 'numParts' segments of the same total cost, and each transaction goes to the partition
+ * of the segment its cost starts at.
+ * </pre>
+ * This requires one pass to collect the total cost per input partition, and the imbalance is at most the cost of
+ * a single transaction.
+ */
+class CostBalancedRepartitioner implements Serializable {
+    private final int numParts;
+
+    CostBalancedRepartitioner(int numParts) {
+        if (numParts <= 0) {
+            throw new IllegalArgumentException("Number of partitions should be positive, got " + numParts);
+        }
+        this.numParts = numParts;
+    }
+
+    /**
+     * The estimated cost of counting the candidates of a single transaction, i.e. the number of its pairs. <br/>
+     * Each transaction costs at least 1, to account for reading it.
+     */
+    static long cost(int[] sortedTr) {
+        final long len = sortedTr.length;
+        return 1 + len * (len - 1) / 2;
+    }
+
+    /**
+     * @return the total cost per partition
+     */
+    static PartitionCosts computePartitionCosts(JavaRDD<int[]> ranks1Rdd) {
+        List<Tuple2<Integer, Long>> partAndCostList = ranks1Rdd.mapPartitionsWithIndex((partInd, trIt) -> {
+            long partCost = 0;
+            while (trIt.hasNext()) {
+                partCost += cost(trIt.next());
+            }
+            return Collections.singletonList(new Tuple2<>(partInd, partCost)).iterator();
+        }, true).collect();
+
+        long[] partToCost = new long[ranks1Rdd.getNumPartitions()];
+        for (Tuple2<Integer, Long> partAndCost : partAndCostList) {
+            partToCost[partAndCost._1] = partAndCost._2;
+        }
+        return new PartitionCosts(partToCost);
+    }
+
+    /**
+     * @param inputCosts the costs of 'ranks1Rdd' partitions, see {@link #computePartitionCosts}
+     */
+    JavaRDD<int[]> repartition(JavaRDD<int[]> ranks1Rdd, PartitionCosts inputCosts) {
+        final long[] partToStartCost = inputCosts.partToStartCost();
+        final double costPerPart = costPerPart(inputCosts);
+
+        return ranks1Rdd
+                .mapPartitionsWithIndex((partInd, trIt) ->
+                        toTargetPartAndTr(trIt, partToStartCost[partInd], costPerPart), true)
+                .mapToPair(partAndTr -> partAndTr)
+                .partitionBy(new HashPartitioner(numParts)) //Integer keys in [0, numParts) are mapped to themselves
+                .values();
+    }
+
+    /**
+     * @return the cost of each of the 'numParts' segments the line of all the transactions is cut into
+     */
+    double costPerPart(PartitionCosts inputCosts) {
+        return Math.max(1.0, 1.0 * inputCosts.totalCost() / numParts);
+    }
+
+    /**
+     * @param startCost   the cumulative cost of all the transactions of the preceding input partitions
+     * @param costPerPart see {@link #costPerPart}
+     * @return the transactions of a single input partition, each with its target partition
+     */
+    Iterator<Tuple2<Integer, int[]>> toTargetPartAndTr(Iterator<int[]> trIt, long startCost, double costPerPart) {
+        List<Tuple2<Integer, int[]>> res = new ArrayList<>();
+        long currCost = startCost;
+        while (trIt.hasNext()) {
+            int[] tr = trIt.next();
+            int targetPart = Math.min(numParts - 1, (int) (currCost / costPerPart));
+            res.add(new Tuple2<>(targetPart, tr));
+            currCost += cost(tr);
+        }
+        return res.iterator();
+    }
+
+    /**
+     * The total estimated cost per partition, to check how balanced the partitions are
+     */
+    static class PartitionCosts implements Serializable {
+        final long[] partToCost;
+
+        PartitionCosts(long[] partToCost) {
+            this.partToCost = partToCost;
+        }
+
+        long totalCost() {
+            long res = 0;
+            for (long cost : partToCost) {
+                res += cost;
+            }
+            return res;
+        }
+
+        /**
+         * @return the cumulative cost of all the preceding partitions, per partition
+         */
+        long[] partToStartCost() {
+            long[] res = new long[partToCost.length];
+            for (int partInd = 1; partInd < res.length; ++partInd) {
+                res[partInd] = res[partInd - 1] + partToCost[partInd - 1];
+            }
+            return res;
+        }
+
+        long maxCost() {
+            long res = 0;
+            for (long cost : partToCost) {
+                res = Math.max(res, cost);
+            }
+            return res;
+        }
+
+        /**
+         * @return the max partition cost relative to the average one, 1.0 means perfect balance
+         */
+        double imbalanceRatio() {
+            final long totalCost = totalCost();
+            return (totalCost > 0) ? (1.0 * maxCost() * partToCost.length) / totalCost : 1.0;
+        }
+
+        @Override
+        public String toString() {
+            long minCost = Long.MAX_VALUE;
+            for (long cost : partToCost) {
+                minCost = Math.min(minCost, cost);
+            }
+            return String.format("parts=%s, total=%s, min=%s, max=%s, max/avg=%.3f",
+                    partToCost.length, totalCost(), minCost, maxCost(), imbalanceRatio());
+        }
+    }
+}
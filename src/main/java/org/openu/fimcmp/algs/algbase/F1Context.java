@@ -5,6 +5,7 @@ import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.storage.StorageLevel;
 import org.openu.fimcmp.itemset.FreqItemsetAsRanksBs;
 import org.openu.fimcmp.algs.apriori.AprioriAlg;
+import org.openu.fimcmp.algs.apriori.DhpPairBuckets;
 import scala.Tuple2;
 
 import java.io.Serializable;
@@ -25,8 +26,14 @@ public class F1Context {
     public final int totalFreqItems;
     public final Map<String, Integer> itemToRank;
     public final String[] rankToItem;
-
-    F1Context(AprioriAlg<String> apr, List<Tuple2<String, Integer>> sortedF1, TrsCount cnts, StopWatch sw) {
+    /**
+     * The DHP filter of the F2 candidates, null unless collected during the F1 pass,
+     * see {@link CommonAlgProperties#dhpNumBuckets}
+     */
+    public final DhpPairBuckets.Filter pairFilterOrNull;
+
+    F1Context(AprioriAlg<String> apr, List<Tuple2<String, Integer>> sortedF1, TrsCount cnts,
+              DhpPairBuckets.Filter pairFilterOrNull, StopWatch sw) {
         this.apr = apr;
         this.sortedF1 = sortedF1;
         this.totalFreqItems = sortedF1.size();
@@ -35,6 +42,7 @@ public class F1Context {
 
         this.totalTrs = cnts.totalTrs;
         this.minSuppCnt = cnts.minSuppCnt;
+        this.pairFilterOrNull = pairFilterOrNull;
 
         this.sw = sw;
     }
@@ -49,6 +57,19 @@ public class F1Context {
         return res;
     }
 
+    /**
+     * Same as {@link #computeRddRanks1(JavaRDD)}, but for the input encoded by {@link ItemDictionary}
+     */
+    public JavaRDD<int[]> computeRddRanks1FromDictionaries(JavaRDD<ItemDictionary> dictsRdd) {
+        Map<String, Integer> itemToRank = this.itemToRank;
+        JavaRDD<int[]> res = dictsRdd.flatMap(dict -> dict.toRanks1Iterator(itemToRank));
+        res = res.persist(StorageLevel.MEMORY_ONLY_SER());
+
+        pp("Filtered and saved RDD ranks 1");
+
+        return res;
+    }
+
     //Auxiliary - required since the 'AprContext' is not serializable:
     private static class SerToRanks1 implements Serializable {
         final Map<String, Integer> itemToRank;
@@ -72,6 +93,10 @@ public class F1Context {
         return res;
     }
 
+    List<Tuple2<String, Integer>> getSortedF1() {
+        return sortedF1;
+    }
+
     public void pp(Object msg) {
         AlgBase.pp(sw, msg);
     }
@@ -0,0 +1,249 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.storage.StorageLevel;
+import org.openu.fimcmp.algs.apriori.DhpPairBuckets;
+import org.openu.fimcmp.util.IntIntOpenHashMap;
+import org.openu.fimcmp.util.ObjIntOpenHashMap;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The total number of transactions along with the support of every frequent item, computed in a single pass
+ * over the input. <br/>
+ * Each partition counts its transactions and its items in a primitive open-addressing map: no tuple is created
+ * per item occurrence and no separate count() job is needed. <br/>
+ * Since the min support count depends on the total number of transactions, the partial counts are kept persisted
+ * while the totals are merged by a tree reduce. Then the item counts are merged by key and filtered by min support
+ * on the executors, so that the driver never gets the infrequent items. <br/>
+ * Optionally, the pairs of items are counted in the DHP buckets in the same pass, see {@link DhpPairBuckets}.
+ */
+public class ItemCounts<T> {
+    private static final int PART_MAP_EXPECTED_SIZE = 1024;
+
+    public final long totalTrs;
+    private final List<Tuple2<T, Integer>> freqItemsWithSupport;
+    private final DhpPairBuckets pairBucketsOrNull;
+
+    public static ItemCounts<String> countItems(JavaRDD<String[]> trs, double minSupp) {
+        return countItems(trs, minSupp, null);
+    }
+
+    /**
+     * @param dhpNumBucketsOrNull if set, the pairs of items are also counted in this number of DHP buckets,
+     *                            see {@link #toPairFilterOrNull}
+     */
+    public static ItemCounts<String> countItems(JavaRDD<String[]> trs, double minSupp, Integer dhpNumBucketsOrNull) {
+        return countAndFilter(trs.mapPartitions(trIt -> countItems_Part(trIt, dhpNumBucketsOrNull)), minSupp);
+    }
+
+    /**
+     * Same as {@link #countItems(JavaRDD, double, Integer)}, but for the input encoded by {@link ItemDictionary}: <br/>
+     * each partition counts its items in an array by id, and maps the ids back to the items only once.
+     */
+    public static ItemCounts<String> countDictionaryItems(
+            JavaRDD<ItemDictionary> dictsRdd, double minSupp, Integer dhpNumBucketsOrNull) {
+        return countAndFilter(dictsRdd.map(dict -> countDictionaryItems_Part(dict, dhpNumBucketsOrNull)), minSupp);
+    }
+
+    /**
+     * Same as {@link #countItems(JavaRDD, double)}, but for transactions as item ids, see {@link ParquetInput}
+     */
+    public static ItemCounts<Integer> countItemIds(JavaRDD<int[]> itemIdsRdd, double minSupp) {
+        return countItemIds(itemIdsRdd, minSupp, null);
+    }
+
+    /**
+     * Same as {@link #countItems(JavaRDD, double, Integer)}, but for transactions as item ids,
+     * see {@link ParquetInput}
+     */
+    public static ItemCounts<Integer> countItemIds(
+            JavaRDD<int[]> itemIdsRdd, double minSupp, Integer dhpNumBucketsOrNull) {
+        return countAndFilter(
+                itemIdsRdd.mapPartitions(trIt -> countItemIds_Part(trIt, dhpNumBucketsOrNull)), minSupp);
+    }
+
+    private static <T> ItemCounts<T> countAndFilter(JavaRDD<PartCounts<T>> partCountsRdd, double minSupp) {
+        partCountsRdd = partCountsRdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        Totals totals = partCountsRdd.map(partCounts -> partCounts.totals).treeReduce(Totals::merge);
+        final long minSuppCnt = BasicOps.minSuppCount(totals.totalTrs, minSupp);
+        List<Tuple2<T, Integer>> freqItemsWithSupport = partCountsRdd
+                .flatMapToPair(PartCounts::itemsWithCountIterator)
+                .reduceByKey((cnt1, cnt2) -> cnt1 + cnt2)
+                .filter(itemWithCnt -> itemWithCnt._2 >= minSuppCnt)
+                .collect();
+        partCountsRdd.unpersist();
+        return new ItemCounts<>(totals.totalTrs, freqItemsWithSupport, totals.pairBuckets);
+    }
+
+    private ItemCounts(
+            long totalTrs, List<Tuple2<T, Integer>> freqItemsWithSupport, DhpPairBuckets pairBucketsOrNull) {
+        this.totalTrs = totalTrs;
+        this.freqItemsWithSupport = freqItemsWithSupport;
+        this.pairBucketsOrNull = pairBucketsOrNull;
+    }
+
+    /**
+     * @param minSuppCnt should not be smaller than the one the items have been filtered by
+     * @return frequent items sorted by decreasing frequency
+     */
+    public List<Tuple2<T, Integer>> getSortedF1(long minSuppCnt) {
+        List<Tuple2<T, Integer>> res = new ArrayList<>();
+        for (Tuple2<T, Integer> itemWithSupp : freqItemsWithSupport) {
+            if (itemWithSupp._2 >= minSuppCnt) {
+                res.add(itemWithSupp);
+            }
+        }
+        Collections.sort(res, (t1, t2) -> t2._2.compareTo(t1._2));
+        return res;
+    }
+
+    /**
+     * @param sortedF1 the frequent items by their ranks, see {@link #getSortedF1(long)}
+     * @return the DHP filter of the frequent items' pairs, or null if the pairs have not been counted
+     */
+    public DhpPairBuckets.Filter toPairFilterOrNull(List<Tuple2<T, Integer>> sortedF1, long minSuppCnt) {
+        if (pairBucketsOrNull == null) {
+            return null;
+        }
+
+        //String.hashCode() for the items and the id itself for the item ids, as in the counting:
+        int[] rankToItemHash = new int[sortedF1.size()];
+        for (int rank = 0; rank < rankToItemHash.length; ++rank) {
+            rankToItemHash[rank] = sortedF1.get(rank)._1.hashCode();
+        }
+        return pairBucketsOrNull.toFilter(minSuppCnt, rankToItemHash);
+    }
+
+    private static Iterator<PartCounts<String>> countItems_Part(Iterator<String[]> trIt, Integer dhpNumBucketsOrNull) {
+        StrPartCounts res = new StrPartCounts(dhpNumBucketsOrNull);
+        int[] itemHashes = new int[0];
+        while (trIt.hasNext()) {
+            ++res.totals.totalTrs;
+            String[] tr = trIt.next();
+            for (String item : tr) {
+                res.itemToCount.addTo(item, 1);
+            }
+
+            if (res.totals.pairBuckets != null) {
+                itemHashes = (itemHashes.length >= tr.length) ? itemHashes : new int[2 * tr.length];
+                for (int ii = 0; ii < tr.length; ++ii) {
+                    itemHashes[ii] = tr[ii].hashCode();
+                }
+                res.totals.pairBuckets.addPairs(itemHashes, tr.length);
+            }
+        }
+        return Collections.<PartCounts<String>>singletonList(res).iterator();
+    }
+
+    private static PartCounts<String> countDictionaryItems_Part(ItemDictionary dict, Integer dhpNumBucketsOrNull) {
+        StrPartCounts res = new StrPartCounts(dhpNumBucketsOrNull);
+        int[] idToCount = new int[dict.totalItems()];
+        int[] idToItemHash = null;
+        int[] itemHashes = new int[0];
+        if (res.totals.pairBuckets != null) {
+            idToItemHash = new int[dict.totalItems()];
+            for (int id = 0; id < idToItemHash.length; ++id) {
+                idToItemHash[id] = dict.getItem(id).hashCode();
+            }
+        }
+
+        for (int[] tr : dict.getTrs()) {
+            ++res.totals.totalTrs;
+            for (int id : tr) {
+                ++idToCount[id];
+            }
+
+            if (idToItemHash != null) {
+                itemHashes = (itemHashes.length >= tr.length) ? itemHashes : new int[2 * tr.length];
+                for (int ii = 0; ii < tr.length; ++ii) {
+                    itemHashes[ii] = idToItemHash[tr[ii]];
+                }
+                res.totals.pairBuckets.addPairs(itemHashes, tr.length);
+            }
+        }
+
+        for (int id = 0; id < idToCount.length; ++id) {
+            res.itemToCount.addTo(dict.getItem(id), idToCount[id]);
+        }
+        return res;
+    }
+
+    private static Iterator<PartCounts<Integer>> countItemIds_Part(Iterator<int[]> trIt, Integer dhpNumBucketsOrNull) {
+        IdPartCounts res = new IdPartCounts(dhpNumBucketsOrNull);
+        while (trIt.hasNext()) {
+            ++res.totals.totalTrs;
+            int[] tr = trIt.next();
+            for (int id : tr) {
+                res.idToCount.addTo(id, 1);
+            }
+
+            if (res.totals.pairBuckets != null) {
+                res.totals.pairBuckets.addPairs(tr, tr.length);
+            }
+        }
+        return Collections.<PartCounts<Integer>>singletonList(res).iterator();
+    }
+
+    static class Totals implements Serializable {
+        long totalTrs = 0;
+        final DhpPairBuckets pairBuckets;
+
+        Totals(Integer dhpNumBucketsOrNull) {
+            pairBuckets = (dhpNumBucketsOrNull != null) ? new DhpPairBuckets(dhpNumBucketsOrNull) : null;
+        }
+
+        Totals merge(Totals other) {
+            totalTrs += other.totalTrs;
+            if (pairBuckets != null) {
+                pairBuckets.merge(other.pairBuckets);
+            }
+            return this;
+        }
+    }
+
+    abstract static class PartCounts<T> implements Serializable {
+        final Totals totals;
+
+        PartCounts(Integer dhpNumBucketsOrNull) {
+            totals = new Totals(dhpNumBucketsOrNull);
+        }
+
+        abstract Iterator<Tuple2<T, Integer>> itemsWithCountIterator();
+    }
+
+    static class StrPartCounts extends PartCounts<String> {
+        final ObjIntOpenHashMap<String> itemToCount = new ObjIntOpenHashMap<>(PART_MAP_EXPECTED_SIZE);
+
+        StrPartCounts(Integer dhpNumBucketsOrNull) {
+            super(dhpNumBucketsOrNull);
+        }
+
+        @Override
+        Iterator<Tuple2<String, Integer>> itemsWithCountIterator() {
+            List<Tuple2<String, Integer>> res = new ArrayList<>(itemToCount.size());
+            itemToCount.forEach((item, cnt) -> res.add(new Tuple2<>(item, cnt)));
+            return res.iterator();
+        }
+    }
+
+    static class IdPartCounts extends PartCounts<Integer> {
+        final IntIntOpenHashMap idToCount = new IntIntOpenHashMap(PART_MAP_EXPECTED_SIZE);
+
+        IdPartCounts(Integer dhpNumBucketsOrNull) {
+            super(dhpNumBucketsOrNull);
+        }
+
+        @Override
+        Iterator<Tuple2<Integer, Integer>> itemsWithCountIterator() {
+            List<Tuple2<Integer, Integer>> res = new ArrayList<>(idToCount.size());
+            idToCount.forEach((id, cnt) -> res.add(new Tuple2<>(id, cnt)));
+            return res.iterator();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.storage.StorageLevel;
+import org.openu.fimcmp.util.ObjIntOpenHashMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A partition of the TEXT input with its items mapped to dense integer ids [0, totalItems) of its own. <br/>
+ * The ids are assigned map-side, while parsing the partition: no shuffle is needed to assign them
+ * and the ids of different partitions are never merged, only their per-partition counts by item, see
+ * {@link ItemCounts#countItems(JavaRDD, double, Integer)}. <br/>
+ * <pre>
+ * Compared to the plain path, see {@link CommonAlgProperties#isUseItemDictionary}:
+ * - The input is parsed once and kept persisted as ints, even if the original input is not persisted
+ * - Each partition counts its items in an array by id, and each distinct item is looked up only once
+ *   when mapped to its rank
+ * - Each partition holds all its transactions in a single record, so the partitions should fit in memory
+ * </pre>
+ */
+public class ItemDictionary implements Serializable {
+    private final String[] idToItem;
+    private final int[][] trs;
+
+    /**
+     * @return each input partition as a single dictionary, persisted
+     */
+    public static JavaRDD<ItemDictionary> encodePartitions(JavaRDD<String[]> trs) {
+        return trs.mapPartitions(ItemDictionary::encodePartition).persist(StorageLevel.MEMORY_ONLY_SER());
+    }
+
+    private static Iterator<ItemDictionary> encodePartition(Iterator<String[]> trIt) {
+        ObjIntOpenHashMap<String> itemToIdPlus1 = new ObjIntOpenHashMap<>(1024);
+        List<String> idToItem = new ArrayList<>();
+        List<int[]> trs = new ArrayList<>();
+        while (trIt.hasNext()) {
+            String[] tr = trIt.next();
+            int[] trIds = new int[tr.length];
+            for (int ii = 0; ii < tr.length; ++ii) {
+                int idPlus1 = itemToIdPlus1.get(tr[ii]);
+                if (idPlus1 == 0) {
+                    idToItem.add(tr[ii]);
+                    idPlus1 = idToItem.size();
+                    itemToIdPlus1.addTo(tr[ii], idPlus1);
+                }
+                trIds[ii] = idPlus1 - 1;
+            }
+            trs.add(trIds);
+        }
+
+        ItemDictionary res = new ItemDictionary(
+                idToItem.toArray(new String[idToItem.size()]), trs.toArray(new int[trs.size()][]));
+        return Collections.singletonList(res).iterator();
+    }
+
+    private ItemDictionary(String[] idToItem, int[][] trs) {
+        this.idToItem = idToItem;
+        this.trs = trs;
+    }
+
+    int totalItems() {
+        return idToItem.length;
+    }
+
+    String getItem(int id) {
+        return idToItem[id];
+    }
+
+    /**
+     * @return the transactions as arrays of item ids, in the same order as the items
+     */
+    int[][] getTrs() {
+        return trs;
+    }
+
+    /**
+     * @param itemToRank the frequent items' ranks
+     * @return the transactions as sorted F1 ranks, see {@link BasicOps#getMappedFilteredAndSortedTrs(int[], int[])}
+     */
+    Iterator<int[]> toRanks1Iterator(Map<String, Integer> itemToRank) {
+        int[] idToRank = new int[idToItem.length];
+        for (int id = 0; id < idToRank.length; ++id) {
+            Integer rank = itemToRank.get(idToItem[id]);
+            idToRank[id] = (rank != null) ? rank : -1;
+        }
+        return Arrays.stream(trs).map(tr -> BasicOps.getMappedFilteredAndSortedTrs(tr, idToRank)).iterator();
+    }
+}
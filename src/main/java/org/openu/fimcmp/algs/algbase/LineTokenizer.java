@@ -0,0 +1,177 @@
+package org.openu.fimcmp.algs.algbase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Splits a transaction line into a sorted array of distinct items. <br/>
+ * Any whitespace (spaces, tabs, CR, LF) separates the items, repeated whitespaces are ignored. <br/>
+ * Scans the line's characters directly: the tokens are kept as (start, end) offsets in reusable buffers,
+ * sorted and de-duplicated by comparing the line regions, so the only allocated objects are the result and its items.
+ * <br/>
+ * The items are ordered exactly as String.compareTo() would order them. <br/>
+ * Not thread-safe, intended to be created per partition.
+ */
+class LineTokenizer {
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private int[] tokStarts = new int[64];
+    private int[] tokEnds = new int[64];
+    private int[] order = new int[64];
+    private String line;
+
+    String[] toSortedItemsArr(String line) {
+        final int totalUnique = tokenizeSortAndDedup(line);
+        String[] res = new String[totalUnique];
+        for (int ii = 0; ii < totalUnique; ++ii) {
+            res[ii] = tokenAsString(order[ii]);
+        }
+        this.line = null;
+        return res;
+    }
+
+    ArrayList<String> toSortedItemsList(String line) {
+        final int totalUnique = tokenizeSortAndDedup(line);
+        ArrayList<String> res = new ArrayList<>(totalUnique);
+        for (int ii = 0; ii < totalUnique; ++ii) {
+            res.add(tokenAsString(order[ii]));
+        }
+        this.line = null;
+        return res;
+    }
+
+    /**
+     * @return the number of unique tokens, their indexes are sorted at order[0, res)
+     */
+    private int tokenizeSortAndDedup(String line) {
+        this.line = line;
+        final int totalToks = tokenize(line);
+        if (totalToks == 0) {
+            return 0;
+        }
+
+        for (int ii = 0; ii < totalToks; ++ii) {
+            order[ii] = ii;
+        }
+        sort(0, totalToks - 1);
+
+        int totalUnique = 1;
+        for (int ii = 1; ii < totalToks; ++ii) {
+            if (compareTokens(order[totalUnique - 1], order[ii]) != 0) {
+                order[totalUnique++] = order[ii];
+            }
+        }
+        return totalUnique;
+    }
+
+    private int tokenize(String line) {
+        final int len = line.length();
+        int totalToks = 0;
+        int ii = 0;
+        while (ii < len) {
+            while (ii < len && isSeparator(line.charAt(ii))) {
+                ++ii;
+            }
+            if (ii == len) {
+                break;
+            }
+
+            final int start = ii;
+            while (ii < len && !isSeparator(line.charAt(ii))) {
+                ++ii;
+            }
+
+            ensureCapacity(totalToks + 1);
+            tokStarts[totalToks] = start;
+            tokEnds[totalToks] = ii;
+            ++totalToks;
+        }
+        return totalToks;
+    }
+
+    /**
+     * Same as String.trim(): everything up to space is a whitespace
+     */
+    private static boolean isSeparator(char ch) {
+        return ch <= ' ';
+    }
+
+    /**
+     * Quick sort of order[from, to] (inclusive), switching to insertion sort for short ranges
+     */
+    private void sort(int from, int to) {
+        while (to - from >= INSERTION_SORT_THRESHOLD) {
+            final int pivot = order[(from + to) >>> 1];
+            int ii = from;
+            int jj = to;
+            while (ii <= jj) {
+                while (compareTokens(order[ii], pivot) < 0) {
+                    ++ii;
+                }
+                while (compareTokens(order[jj], pivot) > 0) {
+                    --jj;
+                }
+                if (ii <= jj) {
+                    swap(ii++, jj--);
+                }
+            }
+
+            //recursion on the smaller part only:
+            if (jj - from < to - ii) {
+                sort(from, jj);
+                from = ii;
+            } else {
+                sort(ii, to);
+                to = jj;
+            }
+        }
+
+        for (int ii = from + 1; ii <= to; ++ii) {
+            final int tok = order[ii];
+            int jj = ii - 1;
+            while (jj >= from && compareTokens(order[jj], tok) > 0) {
+                order[jj + 1] = order[jj];
+                --jj;
+            }
+            order[jj + 1] = tok;
+        }
+    }
+
+    /**
+     * Same as String.compareTo() of the two tokens, but without creating them
+     */
+    private int compareTokens(int tok1, int tok2) {
+        final int start1 = tokStarts[tok1];
+        final int start2 = tokStarts[tok2];
+        final int len1 = tokEnds[tok1] - start1;
+        final int len2 = tokEnds[tok2] - start2;
+        final int minLen = Math.min(len1, len2);
+        for (int ii = 0; ii < minLen; ++ii) {
+            char ch1 = line.charAt(start1 + ii);
+            char ch2 = line.charAt(start2 + ii);
+            if (ch1 != ch2) {
+                return ch1 - ch2;
+            }
+        }
+        return len1 - len2;
+    }
+
+    private String tokenAsString(int tok) {
+        return line.substring(tokStarts[tok], tokEnds[tok]);
+    }
+
+    private void swap(int ii, int jj) {
+        int tmp = order[ii];
+        order[ii] = order[jj];
+        order[jj] = tmp;
+    }
+
+    private void ensureCapacity(int totalToks) {
+        if (totalToks > tokStarts.length) {
+            final int newCapacity = Math.max(totalToks, 2 * tokStarts.length);
+            tokStarts = Arrays.copyOf(tokStarts, newCapacity);
+            tokEnds = Arrays.copyOf(tokEnds, newCapacity);
+            order = Arrays.copyOf(order, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.openu.fimcmp.algs.algbase;
+
+/**
+ * Same as {@link RankedInput}, but the transactions are held in the driver's memory rather than in an RDD. <br/>
+ * Intended for the algorithms that run entirely on the driver, see {@link MappedTextInput}.
+ */
+public class LocalRankedInput {
+    public final F1Context f1Context;
+    /**
+     * The transactions as sorted F1 ranks, in the input order
+     */
+    public final int[][] rankTrs;
+
+    LocalRankedInput(F1Context f1Context, int[][] rankTrs) {
+        this.f1Context = f1Context;
+        this.rankTrs = rankTrs;
+    }
+}
@@ -0,0 +1,223 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.openu.fimcmp.util.ObjIntOpenHashMap;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads a local text input file without Spark, for the algorithms that run entirely on the driver. <br/>
+ * The file is memory-mapped and split into chunks at line boundaries. The chunks are processed in parallel
+ * on a fork-join pool, in two passes:
+ * <pre>
+ * - {@link #parse}:       each chunk is tokenized into transactions of chunk-local item ids, and the items are counted
+ * - {@link #toRankTrs}:   once F1 is known, each chunk maps its transactions to sorted F1 ranks
+ * </pre>
+ * The chunk-local ids keep a single String per distinct item per chunk, so the parsed input stays compact. <br/>
+ * Limited to files smaller than 2GB, the larger files should be read through Spark.
+ */
+class MappedTextInput {
+    private static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private final ForkJoinPool pool;
+    private final List<Chunk> chunks;
+    final long totalTrs;
+
+    /**
+     * The transactions of a single chunk, as ids into the chunk's own dictionary
+     */
+    private static class Chunk {
+        private final int startPos;
+        private final int endPos;
+        private List<int[]> trs;
+        private String[] localIdToItem;
+        private int[] localIdToCount;
+
+        Chunk(int startPos, int endPos) {
+            this.startPos = startPos;
+            this.endPos = endPos;
+        }
+
+        void parse(ByteBuffer fileBuf) {
+            byte[] bytes = new byte[endPos - startPos];
+            ByteBuffer chunkBuf = fileBuf.duplicate();
+            ((Buffer) chunkBuf).position(startPos); //via Buffer to stay binary compatible with Java 8
+            chunkBuf.get(bytes);
+
+            LineTokenizer tokenizer = new LineTokenizer();
+            Map<String, Integer> itemToLocalId = new HashMap<>();
+            List<String> localIdToItemList = new ArrayList<>();
+            trs = new ArrayList<>();
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    ++lineEnd;
+                }
+
+                String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                String[] items = tokenizer.toSortedItemsArr(line);
+                int[] tr = new int[items.length];
+                for (int ii = 0; ii < items.length; ++ii) {
+                    Integer localId = itemToLocalId.get(items[ii]);
+                    if (localId == null) {
+                        localId = localIdToItemList.size();
+                        itemToLocalId.put(items[ii], localId);
+                        localIdToItemList.add(items[ii]);
+                    }
+                    tr[ii] = localId;
+                }
+                trs.add(tr);
+
+                lineStart = lineEnd + 1;
+            }
+
+            localIdToItem = localIdToItemList.toArray(new String[localIdToItemList.size()]);
+            localIdToCount = new int[localIdToItem.length];
+            for (int[] tr : trs) {
+                for (int localId : tr) {
+                    ++localIdToCount[localId];
+                }
+            }
+        }
+
+        void toRankTrs(Map<String, Integer> itemToRank, int[][] resRankTrs, int resStartInd) {
+            int[] localIdToRank = new int[localIdToItem.length];
+            for (int localId = 0; localId < localIdToItem.length; ++localId) {
+                Integer rank = itemToRank.get(localIdToItem[localId]);
+                localIdToRank[localId] = (rank != null) ? rank : -1;
+            }
+
+            int resInd = resStartInd;
+            for (int[] tr : trs) {
+                resRankTrs[resInd++] = BasicOps.getMappedFilteredAndSortedTrs(tr, localIdToRank);
+            }
+
+            trs = null; //no longer needed
+        }
+    }
+
+    static MappedTextInput parse(Path inputFile) throws IOException {
+        return parse(inputFile, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    static MappedTextInput parse(Path inputFile, int chunkSize, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                String msg = String.format("File '%s' is too large to be read locally: %s bytes", inputFile, fileSize);
+                throw new IllegalArgumentException(msg);
+            }
+
+            //the mapping remains valid after the channel is closed:
+            MappedByteBuffer fileBuf = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            List<Chunk> chunks = splitToChunks(fileBuf, chunkSize);
+            pool.invoke(new ChunksAction(0, chunks.size(), ind -> chunks.get(ind).parse(fileBuf)));
+            return new MappedTextInput(pool, chunks);
+        }
+    }
+
+    private MappedTextInput(ForkJoinPool pool, List<Chunk> chunks) {
+        this.pool = pool;
+        this.chunks = chunks;
+        long totalTrs = 0;
+        for (Chunk chunk : chunks) {
+            totalTrs += chunk.trs.size();
+        }
+        this.totalTrs = totalTrs;
+    }
+
+    /**
+     * @return frequent items sorted by decreasing frequency
+     */
+    List<Tuple2<String, Integer>> getSortedF1(long minSuppCnt) {
+        ObjIntOpenHashMap<String> itemToCount = new ObjIntOpenHashMap<>(1024);
+        for (Chunk chunk : chunks) {
+            for (int localId = 0; localId < chunk.localIdToItem.length; ++localId) {
+                itemToCount.addTo(chunk.localIdToItem[localId], chunk.localIdToCount[localId]);
+            }
+        }
+
+        List<Tuple2<String, Integer>> res = new ArrayList<>();
+        itemToCount.forEach((item, cnt) -> {
+            if (cnt >= minSuppCnt) {
+                res.add(new Tuple2<>(item, cnt));
+            }
+        });
+        Collections.sort(res, (t1, t2) -> t2._2.compareTo(t1._2));
+        return res;
+    }
+
+    /**
+     * Can only be called once, since the parsed transactions are released as soon as they are mapped
+     * @return the transactions as sorted F1 ranks, in the input order
+     */
+    int[][] toRankTrs(Map<String, Integer> itemToRank) {
+        int[][] res = new int[(int) totalTrs][];
+        int[] chunkStartInds = new int[chunks.size()];
+        for (int ii = 1; ii < chunks.size(); ++ii) {
+            chunkStartInds[ii] = chunkStartInds[ii - 1] + chunks.get(ii - 1).trs.size();
+        }
+
+        pool.invoke(new ChunksAction(0, chunks.size(),
+                ind -> chunks.get(ind).toRankTrs(itemToRank, res, chunkStartInds[ind])));
+        return res;
+    }
+
+    /**
+     * Each chunk ends right after a new line (or at the end of the file)
+     */
+    private static List<Chunk> splitToChunks(ByteBuffer fileBuf, int chunkSize) {
+        final int fileSize = fileBuf.limit();
+        List<Chunk> res = new ArrayList<>();
+        int startPos = 0;
+        while (startPos < fileSize) {
+            int endPos = (int) Math.min((long) startPos + chunkSize, fileSize);
+            while (endPos < fileSize && fileBuf.get(endPos - 1) != '\n') {
+                ++endPos;
+            }
+            res.add(new Chunk(startPos, endPos));
+            startPos = endPos;
+        }
+        return res;
+    }
+
+    /**
+     * Applies the action to each chunk index in [fromInd, toIndExc), splitting the range in halves recursively
+     */
+    private static class ChunksAction extends RecursiveAction {
+        private final int fromInd;
+        private final int toIndExc;
+        private final IntConsumer chunkAction;
+
+        ChunksAction(int fromInd, int toIndExc, IntConsumer chunkAction) {
+            this.fromInd = fromInd;
+            this.toIndExc = toIndExc;
+            this.chunkAction = chunkAction;
+        }
+
+        @Override
+        protected void compute() {
+            if (toIndExc - fromInd <= 1) {
+                if (fromInd < toIndExc) {
+                    chunkAction.accept(fromInd);
+                }
+                return;
+            }
+
+            final int midInd = (fromInd + toIndExc) >>> 1;
+            invokeAll(new ChunksAction(fromInd, midInd, chunkAction), new ChunksAction(midInd, toIndExc, chunkAction));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.openu.fimcmp.util.IntIntOpenHashMap;
+import scala.Tuple2;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.spark.sql.functions.col;
+
+/**
+ * Reads the transactions from the items column of a PARQUET input through a Spark SQL Dataset. <br/>
+ * <pre>
+ * The items column is either an 'array&lt;string&gt;' or an 'array&lt;int&gt;', a row per transaction.
+ * Only the items column is read (column pruning), and the optional filter condition, e.g. "country = 'IL'",
+ * is pushed down to the Parquet reader (predicate pushdown), so it may refer to the other columns as well.
+ * </pre>
+ * The rows are converted to the sorted distinct items of each transaction directly, without producing text lines. <br/>
+ * The 'array&lt;int&gt;' items are taken as item ids, which should be non-negative,
+ * but not necessarily dense, see {@link #toIdToRankPlus1}.
+ */
+class ParquetInput {
+    private final Dataset<Row> itemsDs;
+    private final boolean isIntItems;
+
+    /**
+     * @param itemsColumn     the name of the items column
+     * @param filterCondOrNull optional SQL condition to select the transactions
+     */
+    static ParquetInput read(String inputFile, String itemsColumn, String filterCondOrNull) {
+        Dataset<Row> ds = SparkSession.builder().getOrCreate().read().parquet(inputFile);
+        if (!StringUtils.isBlank(filterCondOrNull)) {
+            ds = ds.filter(filterCondOrNull);
+        }
+        ds = ds.filter(col(itemsColumn).isNotNull()).select(itemsColumn);
+        return new ParquetInput(ds, isIntItems(ds.schema().fields()[0].dataType(), itemsColumn));
+    }
+
+    private ParquetInput(Dataset<Row> itemsDs, boolean isIntItems) {
+        this.itemsDs = itemsDs;
+        this.isIntItems = isIntItems;
+    }
+
+    boolean isIntItems() {
+        return isIntItems;
+    }
+
+    /**
+     * @return each transaction as sorted distinct items, for an 'array&lt;string&gt;' items column
+     */
+    JavaRDD<String[]> toSortedItemsRdd() {
+        if (isIntItems) {
+            throw new IllegalArgumentException("The items column holds int item ids");
+        }
+        return itemsDs.javaRDD().map(row -> toSortedItems(row.getList(0)));
+    }
+
+    /**
+     * @return each transaction as sorted distinct item ids, for an 'array&lt;int&gt;' items column
+     */
+    JavaRDD<int[]> toSortedItemIdsRdd() {
+        if (!isIntItems) {
+            throw new IllegalArgumentException("The items column holds string items");
+        }
+        return itemsDs.javaRDD().map(row -> toSortedItemIds(row.getList(0)));
+    }
+
+    /**
+     * @return item id to its rank + 1, so that the infrequent items are mapped to 0 and get the rank of -1,
+     * see {@link #getMappedFilteredAndSortedTrs}
+     */
+    static IntIntOpenHashMap toIdToRankPlus1(List<Tuple2<Integer, Integer>> sortedF1Ids) {
+        IntIntOpenHashMap res = new IntIntOpenHashMap(sortedF1Ids.size());
+        for (int rank = 0; rank < sortedF1Ids.size(); ++rank) {
+            res.addTo(sortedF1Ids.get(rank)._1, rank + 1);
+        }
+        return res;
+    }
+
+    /**
+     * Same as {@link BasicOps#getMappedFilteredAndSortedTrs(int[], int[])},
+     * but for sparse item ids, see {@link #toIdToRankPlus1}
+     */
+    static int[] getMappedFilteredAndSortedTrs(int[] itemIds, IntIntOpenHashMap idToRankPlus1) {
+        int[] res = new int[itemIds.length];
+        int resCnt = 0;
+        for (int id : itemIds) {
+            int rank = idToRankPlus1.get(id) - 1;
+            if (rank >= 0) {
+                res[resCnt++] = rank;
+            }
+        }
+
+        res = (resCnt == res.length) ? res : Arrays.copyOf(res, resCnt);
+        Arrays.sort(res); //smaller rank means more frequent
+        return res;
+    }
+
+    static String[] toSortedItems(List<String> items) {
+        String[] res = new String[items.size()];
+        int resCnt = 0;
+        for (String item : items) {
+            if (item != null) {
+                res[resCnt++] = item;
+            }
+        }
+        Arrays.sort(res, 0, resCnt);
+
+        //remove duplicates:
+        int resSize = 0;
+        for (int ii = 0; ii < resCnt; ++ii) {
+            if (ii == 0 || !res[ii].equals(res[ii - 1])) {
+                res[resSize++] = res[ii];
+            }
+        }
+        return (resSize == res.length) ? res : Arrays.copyOf(res, resSize);
+    }
+
+    static int[] toSortedItemIds(List<Integer> itemIds) {
+        int[] res = new int[itemIds.size()];
+        int resCnt = 0;
+        for (Integer id : itemIds) {
+            if (id != null) {
+                if (id < 0) {
+                    throw new IllegalArgumentException("Item ids should be non-negative, got " + id);
+                }
+                res[resCnt++] = id;
+            }
+        }
+        Arrays.sort(res, 0, resCnt);
+
+        //remove duplicates:
+        int resSize = 0;
+        for (int ii = 0; ii < resCnt; ++ii) {
+            if (ii == 0 || res[ii] != res[ii - 1]) {
+                res[resSize++] = res[ii];
+            }
+        }
+        return (resSize == res.length) ? res : Arrays.copyOf(res, resSize);
+    }
+
+    private static boolean isIntItems(DataType colType, String itemsColumn) {
+        if (colType instanceof ArrayType) {
+            DataType elemType = ((ArrayType) colType).elementType();
+            if (elemType.equals(DataTypes.IntegerType)) {
+                return true;
+            }
+            if (elemType.equals(DataTypes.StringType)) {
+                return false;
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "Column '%s' should be either array<string> or array<int>, got %s", itemsColumn, colType.simpleString()));
+    }
+}
@@ -0,0 +1,16 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.spark.api.java.JavaRDD;
+
+/**
+ * Holds the input transactions as sorted F1 ranks together with their F1 context.
+ */
+public class RankedInput {
+    public final F1Context f1Context;
+    public final JavaRDD<int[]> ranks1Rdd;
+
+    RankedInput(F1Context f1Context, JavaRDD<int[]> ranks1Rdd) {
+        this.f1Context = f1Context;
+        this.ranks1Rdd = ranks1Rdd;
+    }
+}
@@ -0,0 +1,130 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+/**
+ * On-disk cache of the ranked TEXT input, to avoid parsing the input and computing F1 again
+ * when the same input is mined with different min supports. <br/>
+ * <pre>
+ * The cache directory holds a sub-directory per input file version, keyed by the input path and its modification time.
+ * Each sub-directory holds entries named by the min support count they have been built with,
+ * each entry is a {@link RankedTrsFile}.
+ * </pre>
+ * A run with some min support count can reuse any entry built with the same or a smaller one,
+ * see {@link RankedTrsFile.Header#getSortedF1}. The largest such entry is chosen, since it holds the fewest ranks. <br/>
+ * Since the total number of transactions is the same for all the entries of an input, the entries could be compared
+ * by their min support counts rather than by the min support ratios.
+ */
+class RankedInputCache {
+    private static final String ENTRY_PREFIX = "supp-";
+    private static final String TMP_ENTRY_PREFIX = "tmp-";
+
+    private final FileSystem fs;
+    private final Path inputCacheDir;
+
+    /**
+     * @param cacheDir  the root directory of the cache, possibly shared by many inputs
+     * @param inputFile the TEXT input file, which must exist
+     */
+    static RankedInputCache forInput(String cacheDir, String inputFile, JavaSparkContext sc) throws IOException {
+        Path inputPath = new Path(inputFile);
+        FileSystem inputFs = inputPath.getFileSystem(sc.hadoopConfiguration());
+        FileStatus inputStatus = inputFs.getFileStatus(inputPath);
+        String inputKey = String.format("%s-%s",
+                md5Hex(inputStatus.getPath().toString()), inputStatus.getModificationTime());
+
+        Path inputCacheDir = new Path(cacheDir, inputKey);
+        return new RankedInputCache(inputCacheDir.getFileSystem(sc.hadoopConfiguration()), inputCacheDir);
+    }
+
+    private RankedInputCache(FileSystem fs, Path inputCacheDir) {
+        this.fs = fs;
+        this.inputCacheDir = inputCacheDir;
+    }
+
+    /**
+     * @param minSupp the required min support ratio
+     * @return the entry with the largest min support count that could serve the required min support,
+     * or null if there is no such entry
+     */
+    String findEntryOrNull(double minSupp, JavaSparkContext sc) throws IOException {
+        if (!fs.exists(inputCacheDir)) {
+            return null;
+        }
+
+        Long minSuppCnt = null;
+        long bestEntrySuppCnt = -1;
+        for (FileStatus entryStatus : fs.listStatus(inputCacheDir)) {
+            String entryName = entryStatus.getPath().getName();
+            if (!entryName.startsWith(ENTRY_PREFIX)) {
+                continue; //e.g. an incomplete entry
+            }
+
+            long entrySuppCnt = Long.parseLong(entryName.substring(ENTRY_PREFIX.length()));
+            if (minSuppCnt == null) {
+                long totalTrs = RankedTrsFile.readHeader(entryStatus.getPath().toString(), sc).totalTrs;
+                minSuppCnt = BasicOps.minSuppCount(totalTrs, minSupp);
+            }
+            if (entrySuppCnt <= minSuppCnt && entrySuppCnt > bestEntrySuppCnt) {
+                bestEntrySuppCnt = entrySuppCnt;
+            }
+        }
+
+        return (bestEntrySuppCnt >= 0) ? entryPath(bestEntrySuppCnt).toString() : null;
+    }
+
+    /**
+     * Writes the entry for the min support count of the F1 context. <br/>
+     * The entry is written to a temporary directory first, so that a failed or a concurrent run would never leave
+     * a partial entry. The entries built with larger min support counts become redundant and are removed.
+     */
+    void store(F1Context f1Context, JavaRDD<int[]> ranks1Rdd, JavaSparkContext sc) throws IOException {
+        Path entryPath = entryPath(f1Context.minSuppCnt);
+        if (fs.exists(entryPath)) {
+            return;
+        }
+
+        Path tmpPath = new Path(inputCacheDir, TMP_ENTRY_PREFIX + UUID.randomUUID());
+        RankedTrsFile.write(tmpPath.toString(), f1Context, ranks1Rdd, sc);
+        //re-checking, since renaming to an existing directory would move the entry inside it:
+        if (fs.exists(entryPath) || !fs.rename(tmpPath, entryPath)) {
+            fs.delete(tmpPath, true); //another run has stored the same entry
+            return;
+        }
+
+        for (FileStatus entryStatus : fs.listStatus(inputCacheDir)) {
+            String entryName = entryStatus.getPath().getName();
+            if (entryName.startsWith(ENTRY_PREFIX) &&
+                    Long.parseLong(entryName.substring(ENTRY_PREFIX.length())) > f1Context.minSuppCnt) {
+                fs.delete(entryStatus.getPath(), true);
+            }
+        }
+    }
+
+    private Path entryPath(long minSuppCnt) {
+        return new Path(inputCacheDir, ENTRY_PREFIX + minSuppCnt);
+    }
+
+    private static String md5Hex(String str) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(str.getBytes(StandardCharsets.UTF_8));
+            StringBuilder res = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                res.append(String.format("%02x", b));
+            }
+            return res.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
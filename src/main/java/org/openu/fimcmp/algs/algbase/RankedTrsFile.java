@@ -0,0 +1,163 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.openu.fimcmp.util.VarIntCodec;
+import scala.Tuple2;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compact binary representation of the input transactions as sorted F1 ranks. <br/>
+ * Allows to parse the text input, compute F1 and map the items to ranks only once, and then to read the transactions
+ * directly as RDD of ranks, skipping the tokenizing, sorting and item-to-rank lookups. <br/>
+ * <pre>
+ * The 'file' is a directory (local, HDFS, S3 etc.) holding:
+ * - header: total transactions, min support count it was built with,
+ *           and the F1 'dictionary': item and its support per rank, in the ranks order
+ * - data:   Hadoop sequence file, each record is a block of transactions.
+ *           Each transaction is var-int length followed by var-int deltas of its sorted ranks, see {@link VarIntCodec}
+ * </pre>
+ * Since the ranks are sorted by decreasing support, any min support at least as large as the one the file was built
+ * with corresponds to a prefix of the ranks, so the file can serve such runs by simply truncating each transaction.
+ */
+public class RankedTrsFile {
+    private static final String HEADER_FILE = "header";
+    private static final String DATA_DIR = "data";
+    private static final int MAGIC = 0x464D5254; //"FMRT"
+    private static final int VERSION = 1;
+    private static final int MAX_TRS_PER_BLOCK = 4096;
+
+    /**
+     * The header of the file. <br/>
+     * Holds the F1 with the support the file was built with.
+     */
+    public static class Header {
+        public final long totalTrs;
+        public final long buildMinSuppCnt;
+        private final List<Tuple2<String, Integer>> sortedF1;
+
+        Header(long totalTrs, long buildMinSuppCnt, List<Tuple2<String, Integer>> sortedF1) {
+            this.totalTrs = totalTrs;
+            this.buildMinSuppCnt = buildMinSuppCnt;
+            this.sortedF1 = sortedF1;
+        }
+
+        /**
+         * @return the F1 prefix that is frequent w.r.t. the required min support count
+         */
+        public List<Tuple2<String, Integer>> getSortedF1(long minSuppCnt) {
+            if (minSuppCnt < buildMinSuppCnt) {
+                String msg = String.format(
+                        "Min support count %s is smaller than %s the ranked input has been built with",
+                        minSuppCnt, buildMinSuppCnt);
+                throw new IllegalArgumentException(msg);
+            }
+
+            int resSize = 0;
+            while (resSize < sortedF1.size() && sortedF1.get(resSize)._2 >= minSuppCnt) {
+                ++resSize;
+            }
+            return new ArrayList<>(sortedF1.subList(0, resSize));
+        }
+    }
+
+    public static void write(String outputDir, F1Context f1Context, JavaRDD<int[]> ranks1Rdd, JavaSparkContext sc)
+            throws IOException {
+        writeHeader(outputDir, f1Context, sc);
+
+        String dataDir = new Path(outputDir, DATA_DIR).toString();
+        ranks1Rdd.mapPartitions(RankedTrsFile::encodeToBlocks)
+                .mapToPair(block -> new Tuple2<>(NullWritable.get(), new BytesWritable(block)))
+                .saveAsHadoopFile(dataDir, NullWritable.class, BytesWritable.class, SequenceFileOutputFormat.class);
+    }
+
+    public static Header readHeader(String inputDir, JavaSparkContext sc) throws IOException {
+        Path headerPath = new Path(inputDir, HEADER_FILE);
+        FileSystem fs = headerPath.getFileSystem(sc.hadoopConfiguration());
+        try (DataInputStream in = fs.open(headerPath)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalArgumentException(String.format("'%s' is not a ranked transactions file", inputDir));
+            }
+
+            long totalTrs = in.readLong();
+            long buildMinSuppCnt = in.readLong();
+            final int f1Size = in.readInt();
+            List<Tuple2<String, Integer>> sortedF1 = new ArrayList<>(f1Size);
+            for (int rank = 0; rank < f1Size; ++rank) {
+                String item = in.readUTF();
+                int support = in.readInt();
+                sortedF1.add(new Tuple2<>(item, support));
+            }
+            return new Header(totalTrs, buildMinSuppCnt, sortedF1);
+        }
+    }
+
+    /**
+     * @param totalRanksToKeep only ranks [0, totalRanksToKeep) are kept, see {@link Header#getSortedF1}
+     * @return transactions as sorted F1 ranks
+     */
+    public static JavaRDD<int[]> readRanks(String inputDir, int numParts, int totalRanksToKeep, JavaSparkContext sc) {
+        String dataDir = new Path(inputDir, DATA_DIR).toString();
+        return sc.sequenceFile(dataDir, NullWritable.class, BytesWritable.class, numParts)
+                .values()
+                .flatMap(block -> decodeBlock(block, totalRanksToKeep));
+    }
+
+    private static void writeHeader(String outputDir, F1Context f1Context, JavaSparkContext sc) throws IOException {
+        Path headerPath = new Path(outputDir, HEADER_FILE);
+        FileSystem fs = headerPath.getFileSystem(sc.hadoopConfiguration());
+        try (DataOutputStream out = fs.create(headerPath, false)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(f1Context.totalTrs);
+            out.writeLong(f1Context.minSuppCnt);
+            List<Tuple2<String, Integer>> sortedF1 = f1Context.getSortedF1();
+            out.writeInt(sortedF1.size());
+            for (Tuple2<String, Integer> itemAndSupp : sortedF1) {
+                out.writeUTF(itemAndSupp._1);
+                out.writeInt(itemAndSupp._2);
+            }
+        }
+    }
+
+    private static Iterator<byte[]> encodeToBlocks(Iterator<int[]> sortedTrIt) {
+        List<byte[]> res = new ArrayList<>();
+        VarIntCodec.Writer writer = new VarIntCodec.Writer(1 << 16);
+        int trsInBlock = 0;
+        while (sortedTrIt.hasNext()) {
+            writer.writeSortedArr(sortedTrIt.next());
+            if (++trsInBlock == MAX_TRS_PER_BLOCK) {
+                res.add(writer.toByteArray());
+                writer.reset();
+                trsInBlock = 0;
+            }
+        }
+        if (trsInBlock > 0) {
+            res.add(writer.toByteArray());
+        }
+        return res.iterator();
+    }
+
+    /**
+     * Decodes the entire block at once, since Hadoop reuses the same BytesWritable object for the next records.
+     */
+    private static Iterator<int[]> decodeBlock(BytesWritable block, int totalRanksToKeep) {
+        List<int[]> res = new ArrayList<>(MAX_TRS_PER_BLOCK);
+        VarIntCodec.Reader reader = new VarIntCodec.Reader(block.getBytes(), 0, block.getLength());
+        while (reader.hasMore()) {
+            res.add(reader.readSortedArr(totalRanksToKeep));
+        }
+        return res.iterator();
+    }
+}
@@ -0,0 +1,127 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.storage.StorageLevel;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the input in the vertical form: the TIDs of each frequent item, together with the F1 context. <br/>
+ * <pre>
+ * The VERTICAL input file has a line per item: the item followed by the IDs of the transactions containing it,
+ * separated by spaces, e.g. 'milk 0 3 17 42'.
+ * </pre>
+ * <b>Assumes that the TIDs are in the range [0, total transactions)</b>, so the total number of transactions
+ * is the max TID + 1. <br/>
+ * Eclat-based algorithms could start directly from the frequent items' TIDs, the rest could get the usual
+ * horizontal transactions via {@link #toRankedInput}.
+ */
+public class VerticalInput {
+    public final F1Context f1Context;
+    /**
+     * (frequent item rank, its sorted TIDs) per frequent item
+     */
+    public final JavaRDD<Tuple2<Integer, int[]>> rankAndTidsRdd;
+
+    VerticalInput(F1Context f1Context, JavaRDD<Tuple2<Integer, int[]>> rankAndTidsRdd) {
+        this.f1Context = f1Context;
+        this.rankAndTidsRdd = rankAndTidsRdd;
+    }
+
+    /**
+     * @return (item, sorted distinct TIDs) per line
+     */
+    static JavaRDD<Tuple2<String, int[]>> readItemAndTids(String inputFile, int numParts, JavaSparkContext sc) {
+        return sc.textFile(inputFile, numParts)
+                .filter(line -> !StringUtils.isBlank(line))
+                .map(VerticalInput::parseLine);
+    }
+
+    /**
+     * @return the max TID + 1
+     */
+    static long countTrs(JavaRDD<Tuple2<String, int[]>> itemAndTidsRdd) {
+        return 1 + itemAndTidsRdd
+                .map(itemAndTids -> (itemAndTids._2.length > 0) ? itemAndTids._2[itemAndTids._2.length - 1] : -1)
+                .fold(-1, Math::max);
+    }
+
+    /**
+     * @return frequent items sorted by decreasing frequency
+     */
+    static List<Tuple2<String, Integer>> getSortedF1(JavaRDD<Tuple2<String, int[]>> itemAndTidsRdd, long minSuppCnt) {
+        List<Tuple2<String, Integer>> res = itemAndTidsRdd
+                .filter(itemAndTids -> itemAndTids._2.length >= minSuppCnt)
+                .map(itemAndTids -> new Tuple2<>(itemAndTids._1, itemAndTids._2.length))
+                .collect();
+        res = new ArrayList<>(res);
+        Collections.sort(res, (t1, t2) -> t2._2.compareTo(t1._2));
+        return res;
+    }
+
+    static JavaRDD<Tuple2<Integer, int[]>> toRankAndTids(
+            JavaRDD<Tuple2<String, int[]>> itemAndTidsRdd, Map<String, Integer> itemToRank) {
+        return itemAndTidsRdd
+                .filter(itemAndTids -> itemToRank.containsKey(itemAndTids._1))
+                .map(itemAndTids -> new Tuple2<>(itemToRank.get(itemAndTids._1), itemAndTids._2));
+    }
+
+    /**
+     * Pivots the input to the horizontal form, i.e. to transactions as sorted F1 ranks. <br/>
+     * The transactions that have no frequent items are dropped.
+     */
+    public RankedInput toRankedInput(int numParts) {
+        JavaRDD<int[]> ranks1Rdd = rankAndTidsRdd
+                .flatMapToPair(rankAndTids -> {
+                    final Integer rank = rankAndTids._1;
+                    List<Tuple2<Integer, Integer>> res = new ArrayList<>(rankAndTids._2.length);
+                    for (int tid : rankAndTids._2) {
+                        res.add(new Tuple2<>(tid, rank));
+                    }
+                    return res.iterator();
+                })
+                .groupByKey(numParts)
+                .map(tidAndRanks -> toSortedArr(tidAndRanks._2));
+        ranks1Rdd = ranks1Rdd.persist(StorageLevel.MEMORY_ONLY_SER());
+        return new RankedInput(f1Context, ranks1Rdd);
+    }
+
+    static Tuple2<String, int[]> parseLine(String line) {
+        String[] tokens = StringUtils.split(line);
+        int[] tids = new int[tokens.length - 1];
+        for (int ii = 1; ii < tokens.length; ++ii) {
+            tids[ii - 1] = Integer.parseInt(tokens[ii]);
+        }
+        Arrays.sort(tids);
+
+        //remove duplicates:
+        int resSize = 0;
+        for (int ii = 0; ii < tids.length; ++ii) {
+            if (ii == 0 || tids[ii] != tids[ii - 1]) {
+                tids[resSize++] = tids[ii];
+            }
+        }
+        return new Tuple2<>(tokens[0], (resSize == tids.length) ? tids : Arrays.copyOf(tids, resSize));
+    }
+
+    private static int[] toSortedArr(Iterable<Integer> ranks) {
+        int size = 0;
+        for (Integer ignored : ranks) {
+            ++size;
+        }
+        int[] res = new int[size];
+        int ind = 0;
+        for (Integer rank : ranks) {
+            res[ind++] = rank;
+        }
+        Arrays.sort(res);
+        return res;
+    }
+}
@@ -0,0 +1,50 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.spark.api.java.JavaRDD;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Transactions as pairs (sorted F1 ranks, weight), where the weight is the number of identical transactions. <br/>
+ * Dense datasets contain many identical transactions once the infrequent items are filtered out,
+ * so collapsing them shrinks both the persisted RDD and every counting pass by the duplication factor. <br/>
+ * All the counting algorithms consume the weighted transactions, so the non-collapsed input simply has weights of 1.
+ */
+public class WeightedRanks {
+    /**
+     * Collapses the identical transactions into a single one, whose weight is the number of the collapsed transactions
+     */
+    public static JavaRDD<Tuple2<int[], Integer>> dedup(JavaRDD<int[]> ranks1Rdd) {
+        return ranks1Rdd
+                .mapToPair(ranks -> new Tuple2<>(new RanksKey(ranks), 1))
+                .reduceByKey((x, y) -> x + y)
+                .map(keyAndWeight -> new Tuple2<>(keyAndWeight._1.ranks, keyAndWeight._2));
+    }
+
+    public static JavaRDD<Tuple2<int[], Integer>> withUnitWeights(JavaRDD<int[]> ranks1Rdd) {
+        return ranks1Rdd.map(ranks -> new Tuple2<>(ranks, 1));
+    }
+
+    /**
+     * Array wrapper to compare the ranks by value, since Spark can't use arrays as shuffle keys
+     */
+    static class RanksKey implements Serializable {
+        private final int[] ranks;
+
+        RanksKey(int[] ranks) {
+            this.ranks = ranks;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (this == o) || (o instanceof RanksKey && Arrays.equals(ranks, ((RanksKey) o).ranks));
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(ranks);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.apache.commons.lang3.StringUtils;
+import org.openu.fimcmp.algs.algbase.AlgBase;
+import org.openu.fimcmp.cmdline.AbstractCmdLineOptionsParser;
+
+/**
+ * Base class for the cmd-line options parsers of the algorithms that run the level-wise Apriori,
+ * see {@link AprioriAlgProperties}.
+ */
+public abstract class AbstractAprioriCmdLineOptionsParser<P extends AprioriAlgProperties, A extends AlgBase>
+        extends AbstractCmdLineOptionsParser<P, A> {
+    private static final String APR_COUNTING_ENGINE_OPT = "apr-counting-engine";
+    private static final String APR_COUNTING_ENGINE_ALLOWED_VALUES =
+            StringUtils.join(NextSizeItemsetGenHelper.CountingEngine.values(), " | ");
+    private static final String APR_CANDS_GENERATION_OPT = "apr-cands-generation";
+    private static final String APR_CANDS_GENERATION_ALLOWED_VALUES =
+            StringUtils.join(NextSizeItemsetGenHelper.CandidateGeneration.values(), " | ");
+    private static final String APR_MULTI_LEVEL_OPT = "apr-multi-level-max-counters";
+    private static final String APR_TRIM_TRS_OPT = "apr-trim-transactions";
+
+    protected static void addAprioriOptions(Options options) {
+        options.addOption(null, APR_COUNTING_ENGINE_OPT, true,
+                "Apriori: how to count the candidates of size 3 and above: " + APR_COUNTING_ENGINE_ALLOWED_VALUES);
+        options.addOption(null, APR_CANDS_GENERATION_OPT, true,
+                "Apriori: how to generate the candidates of size 3 and above: " + APR_CANDS_GENERATION_ALLOWED_VALUES);
+        options.addOption(null, APR_MULTI_LEVEL_OPT, true,
+                "Apriori: count two candidate sizes in a single scan if their counters fit this number");
+        options.addOption(null, APR_TRIM_TRS_OPT, true,
+                "Apriori: whether to drop the items that could not be part of larger FIs from the transactions");
+    }
+
+    protected static void setAprioriProperties(CommandLine line, AprioriAlgProperties algProps) {
+        String engineStr = line.getOptionValue(APR_COUNTING_ENGINE_OPT, algProps.aprCountingEngine.name());
+        try {
+            algProps.aprCountingEngine = NextSizeItemsetGenHelper.CountingEngine.valueOf(engineStr);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException(
+                    errMsg(APR_COUNTING_ENGINE_OPT, engineStr, APR_COUNTING_ENGINE_ALLOWED_VALUES));
+        }
+        String generationStr = line.getOptionValue(APR_CANDS_GENERATION_OPT, algProps.aprCandsGeneration.name());
+        try {
+            algProps.aprCandsGeneration = NextSizeItemsetGenHelper.CandidateGeneration.valueOf(generationStr);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException(
+                    errMsg(APR_CANDS_GENERATION_OPT, generationStr, APR_CANDS_GENERATION_ALLOWED_VALUES));
+        }
+        algProps.aprMultiLevelMaxCounters = getOptIntVal(line, APR_MULTI_LEVEL_OPT, algProps.aprMultiLevelMaxCounters);
+        algProps.isAprTrimTransactions = getBooleanVal(line, APR_TRIM_TRS_OPT, algProps.isAprTrimTransactions);
+    }
+}
@@ -1,7 +1,7 @@
 package org.openu.fimcmp.algs.apriori;
 
-import org.openu.fimcmp.util.BitArrays;
 import scala.Tuple2;
+import scala.Tuple3;
 
 import java.io.Serializable;
 import java.util.*;
@@ -13,26 +13,28 @@ import java.util.*;
 class AprCandidateFisGenerator implements Serializable {
 
     /**
-     * Assumes that each transaction is represented as a sorted frequent item ranks (the more frequent ranks first)
+     * Assumes that each transaction is represented as a pair (sorted frequent item ranks, weight),
+     * the more frequent ranks first, see {@link org.openu.fimcmp.algs.algbase.WeightedRanks}
      *
-     * @return a mapping (frequent item rank, frequent item rank) -> count
+     * @param candPairsOrNull if set, only these pairs are counted,
+     *                        see {@link DhpPairBuckets.Filter#toCandidatePairsOrNull}
+     * @return a mapping (frequent item rank, frequent item rank) -> count,
+     * in the layout chosen by the F1 size, see {@link CandCounts#newPairCounts(int)}, or in the CANDIDATES layout
      */
-    Iterator<int[][]> countCands2_Part(Iterator<int[]> sortedTrIt, int totalFreqItems) {
-        int[][] candToCount = new int[totalFreqItems][totalFreqItems];
-        while (sortedTrIt.hasNext()) {
-            int[] sortedTr = sortedTrIt.next();
-            final int trSize = sortedTr.length;
-            if (trSize <= 1) {
-                continue;
-            }
+    Iterator<CandCounts> countCands2_Part(Iterator<Tuple2<int[], Integer>> sortedTrAndWeightIt, int totalFreqItems,
+                                          int[][] candPairsOrNull) {
+        if (candPairsOrNull != null) {
+            return countCandPairs(sortedTrAndWeightIt, totalFreqItems, candPairsOrNull);
+        }
 
+        CandCounts candToCount = CandCounts.newPairCounts(totalFreqItems);
+        while (sortedTrAndWeightIt.hasNext()) {
+            Tuple2<int[], Integer> sortedTrAndWeight = sortedTrAndWeightIt.next();
+            int[] sortedTr = sortedTrAndWeight._1;
+            final int trSize = sortedTr.length;
+            final int weight = sortedTrAndWeight._2;
             for (int ii = 0; ii < trSize - 1; ++ii) {
-                int item1 = sortedTr[ii];
-                int[] col = candToCount[item1];
-                for (int jj = ii + 1; jj < trSize; ++jj) {
-                    int item2 = sortedTr[jj];
-                    ++col[item2];
-                }
+                candToCount.addAll(sortedTr[ii], sortedTr, ii + 1, trSize, weight);
             }
         }
 
@@ -40,86 +42,153 @@ class AprCandidateFisGenerator implements Serializable {
     }
 
     /**
-     * Assumes that each transaction is represented as a pair (sorted frequent item ranks, bitset of (k-1)-FIs ranks).
-     *
-     * @return a mapping (frequent item rank, (k-1)-FI rank) -> count
+     * Drops the items that are in no candidate pair from each transaction before counting its pairs
      */
-    Iterator<int[][]> countCandsK_Part(
-            Iterator<Tuple2<int[], long[]>> f1AndFkm1BitSetIt,
-            int km1, NextSizeItemsetGenHelper genHelper) {
-        final int f1Size = genHelper.getTotalFreqItems();
-        final int fKm1Size = genHelper.getTotalCurrSizeRanks();
-        int[][] candToCount = new int[f1Size][fKm1Size]; //initialized to 0's
-        while (f1AndFkm1BitSetIt.hasNext()) {
-            Tuple2<int[], long[]> f1AndFkm1BitSet = f1AndFkm1BitSetIt.next();
-            int[] f1 = f1AndFkm1BitSet._1;
-            if (f1.length <= km1) {
-                continue;
-            }
-            long[] fKm1BitSet = f1AndFkm1BitSet._2;
-            if (BitArrays.isZerosOnly(fKm1BitSet, 0)) {
-                continue;
+    private static Iterator<CandCounts> countCandPairs(
+            Iterator<Tuple2<int[], Integer>> sortedTrAndWeightIt, int totalFreqItems, int[][] candPairs) {
+        CandCounts.Candidates candToCount =
+                (CandCounts.Candidates) CandCounts.newCandidateCounts(candPairs, totalFreqItems);
+        boolean[] isInCandPair = new boolean[totalFreqItems];
+        for (int rank1 = 0; rank1 < totalFreqItems; ++rank1) {
+            isInCandPair[rank1] |= (candPairs[rank1].length > 0);
+            for (int rank2 : candPairs[rank1]) {
+                isInCandPair[rank2] = true;
             }
+        }
 
-            final int resColumnsSize = f1.length - km1;
-            for (int ii = 0; ii < resColumnsSize; ++ii) {
-                int item = f1[ii];
-                long[] hasChanceForNextRkm1Bs = genHelper.getCurrRanksForNextSizeCandsBitSet(item);
-                long[] rKm1ForCandKsBitSet = BitArrays.andReturn(fKm1BitSet, hasChanceForNextRkm1Bs, 0, fKm1BitSet.length);
-                int[] rKm1ForCandKs = BitArrays.asNumbers(rKm1ForCandKsBitSet, 0);
-                int[] itemCol = candToCount[item];
-                for (int rKm1 : rKm1ForCandKs) {
-                    ++itemCol[rKm1];
+        //reused for all the transactions of the partition:
+        final int[] trBuf = new int[totalFreqItems];
+        while (sortedTrAndWeightIt.hasNext()) {
+            Tuple2<int[], Integer> sortedTrAndWeight = sortedTrAndWeightIt.next();
+            int trSize = 0;
+            for (int rank : sortedTrAndWeight._1) {
+                if (isInCandPair[rank]) {
+                    trBuf[trSize++] = rank;
                 }
             }
+
+            final int weight = sortedTrAndWeight._2;
+            for (int ii = 0; ii < trSize - 1; ++ii) {
+                candToCount.addAllCandidates(trBuf[ii], trBuf, ii + 1, trSize, weight);
+            }
         }
 
-        return Collections.singletonList(candToCount).iterator();
+        return Collections.singletonList((CandCounts) candToCount).iterator();
     }
 
-    int[][] mergeCounts_Part(int[][] cnt1, int[][] cnt2) {
-        if (cnt2.length == 0) {
-            return cnt1;
-        }
-        if (cnt1.length == 0) {
-            return arrCopy2D(cnt2);
+    /**
+     * Assumes that each transaction is represented as a triplet
+     * (sorted frequent item ranks, set of (k-1)-FIs ranks, weight), see {@link FkRankSet}.
+     *
+     * @return a mapping (frequent item rank, (k-1)-FI rank) -> count,
+     * counted by the engine chosen by the helper, see {@link NextSizeItemsetGenHelper.CountingEngine}
+     */
+    Iterator<CandCounts> countCandsK_Part(
+            Iterator<Tuple3<int[], long[], Integer>> f1AndFkm1BitSetIt,
+            int km1, NextSizeItemsetGenHelper genHelper) {
+        CandKCounter counter = new CandKCounter(km1, genHelper);
+        while (f1AndFkm1BitSetIt.hasNext()) {
+            Tuple3<int[], long[], Integer> f1AndFkm1BitSet = f1AndFkm1BitSetIt.next();
+            counter.addTr(f1AndFkm1BitSet._1(), f1AndFkm1BitSet._2(), f1AndFkm1BitSet._3());
         }
 
-        for (int ii = 0; ii < cnt1.length; ++ii) {
-            int[] col1 = cnt1[ii];
-            int[] col2 = cnt2[ii];
-            for (int jj = 0; jj < col1.length; ++jj) {
-                col1[jj] += col2[jj];
+        return Collections.singletonList(counter.candToCount).iterator();
+    }
+
+    /**
+     * Same as {@link #countCandsK_Part}, but also counts the candidates of the next size in the same scan. <br/>
+     * The next-size candidates are generated speculatively, as if all the k-candidates were frequent,
+     * so each transaction's set of k-candidates ranks is computed here and is counted against them.
+     *
+     * @param candKRanks the ranks of all the k-candidates, as if they were the k-FIs
+     * @param nextGenHelper generates the (k+1)-candidates from the k-candidates ranks
+     * @return a pair of the mappings (frequent item rank, (k-1)-FI rank) -> count
+     * and (frequent item rank, k-candidate rank) -> count
+     */
+    Iterator<Tuple2<CandCounts, CandCounts>> countCandsKAndKp1_Part(
+            Iterator<Tuple3<int[], long[], Integer>> f1AndFkm1BitSetIt, int km1,
+            NextSizeItemsetGenHelper genHelper, CurrSizeFiRanks candKRanks, NextSizeItemsetGenHelper nextGenHelper) {
+        CandKCounter counter = new CandKCounter(km1, genHelper);
+        CandKCounter nextCounter = new CandKCounter(km1 + 1, nextGenHelper);
+        while (f1AndFkm1BitSetIt.hasNext()) {
+            Tuple3<int[], long[], Integer> f1AndFkm1BitSet = f1AndFkm1BitSetIt.next();
+            int[] f1 = f1AndFkm1BitSet._1();
+            long[] fKm1BitSet = f1AndFkm1BitSet._2();
+            if (!counter.addTr(f1, fKm1BitSet, f1AndFkm1BitSet._3()) || f1.length <= km1 + 1) {
+                continue;
             }
+            long[] candKBitSet = computeBitArrayOfRanksK(f1, fKm1BitSet, candKRanks);
+            nextCounter.addTr(f1, candKBitSet, f1AndFkm1BitSet._3());
         }
-        return cnt1;
+
+        return Collections.singletonList(new Tuple2<>(counter.candToCount, nextCounter.candToCount)).iterator();
     }
 
-    private int[][] arrCopy2D(int[][] src) {
-        int[][] res = new int[src.length][];
-        for (int ii = 0; ii < res.length; ++ii) {
-            res[ii] = Arrays.copyOf(src[ii], src[ii].length);
-        }
-        return res;
+    /**
+     * Merges the counts of two partitions, both should have the same layout, see {@link CandCounts}
+     */
+    CandCounts mergeCounts_Part(CandCounts cnt1, CandCounts cnt2) {
+        return cnt1.mergeWith(cnt2);
     }
 
     /**
-     * @return pair (sorted frequent item ranks, bit array of 2-FI ranks). <br/>
+     * @return triplet (sorted frequent item ranks, set of 2-FI ranks, weight), see {@link FkRankSet}. <br/>
      * This method is intended to be applied per transaction.
      */
-    Tuple2<int[], long[]> toSortedRanks1AndBitArrayOfRanks2(int[] sortedTr, CurrSizeFiRanks f2RanksHelper) {
+    Tuple3<int[], long[], Integer> toSortedRanks1AndBitArrayOfRanks2(
+            int[] sortedTr, Integer weight, CurrSizeFiRanks f2RanksHelper) {
         long[] ranks2 = computeBitArrayOfRanks2(sortedTr, f2RanksHelper);
-        return new Tuple2<>(sortedTr, ranks2);
+        return new Tuple3<>(sortedTr, ranks2, weight);
     }
 
     /**
-     * @return pair (sorted frequent item ranks, bit array of k-FI ranks). <br/>
+     * @return triplet (sorted frequent item ranks, set of k-FI ranks, weight), see {@link FkRankSet}. <br/>
      * This method is intended to be applied per transaction.
      */
-    Tuple2<int[], long[]> toSortedRanks1AndBitArrayOfRanksK(
-            int[] sortedTr, long[] sortedRanksKm1, CurrSizeFiRanks fkRanksHelper) {
+    Tuple3<int[], long[], Integer> toSortedRanks1AndBitArrayOfRanksK(
+            int[] sortedTr, long[] sortedRanksKm1, Integer weight, CurrSizeFiRanks fkRanksHelper) {
         long[] ranksK = computeBitArrayOfRanksK(sortedTr, sortedRanksKm1, fkRanksHelper);
-        return new Tuple2<>(sortedTr, ranksK);
+        return new Tuple3<>(sortedTr, ranksK, weight);
+    }
+
+    /**
+     * Drops the transaction if it contains no k-FI, and if the trimmer is set, trims its items,
+     * see {@link FkTransactionTrimmer}. <br/>
+     * This method is intended to be applied per transaction.
+     *
+     * @return either the trimmed transaction or nothing
+     */
+    Iterator<Tuple3<int[], long[], Integer>> trimTr(
+            Tuple3<int[], long[], Integer> f1AndFkBitSet, FkTransactionTrimmer trimmerOrNull) {
+        long[] fkBitSet = f1AndFkBitSet._2();
+        if (FkRankSet.isEmpty(fkBitSet)) {
+            return Collections.emptyIterator();
+        }
+        if (trimmerOrNull == null) {
+            return Collections.singletonList(f1AndFkBitSet).iterator();
+        }
+
+        int[] f1 = f1AndFkBitSet._1();
+        int[] trimmedF1 = trimmerOrNull.trimOrNull(f1, fkBitSet);
+        if (trimmedF1 == null) {
+            return Collections.emptyIterator();
+        }
+        Tuple3<int[], long[], Integer> res =
+                (trimmedF1 == f1) ? f1AndFkBitSet : new Tuple3<>(trimmedF1, fkBitSet, f1AndFkBitSet._3());
+        return Collections.singletonList(res).iterator();
+    }
+
+    /**
+     * Convert the counts of each frequent item rank to pairs and filter out infrequent ones,
+     * see {@link #fkColToPairs(int[], long)}. <br/>
+     * This method is intended to be applied per block of merged counts.
+     */
+    List<int[]> countsToFilteredPairs(CandCounts counts, long minSuppCount) {
+        List<int[]> res = new ArrayList<>();
+        for (int elem1 = counts.firstElem1; elem1 < counts.endElem1; ++elem1) {
+            res.addAll(fkColToPairs(counts.toCol(elem1), minSuppCount));
+        }
+        return res;
     }
 
     /**
@@ -147,39 +216,87 @@ class AprCandidateFisGenerator implements Serializable {
 
 
     private long[] computeBitArrayOfRanks2(int[] sortedTr, CurrSizeFiRanks f2RanksHelper) {
-        final int START_IND = 0;
-        long[] resRanks2 = new long[BitArrays.requiredSize(f2RanksHelper.getTotalCurrSizeRanks(), START_IND)];
+        final int totalRanks2 = f2RanksHelper.getTotalCurrSizeRanks();
         final int arrSize = sortedTr.length;
+        int[] ranks2 = new int[(int) Math.min(totalRanks2, (long) arrSize * (arrSize - 1) / 2)];
+        int ranks2Cnt = 0;
         for (int ii = 0; ii < arrSize; ++ii) {
-            int elem1 = sortedTr[ii];
-            int[] itemToR2 = f2RanksHelper.getPrevSizeRankToCurrSizeRank(elem1);
-            for (int jj = ii + 1; jj < arrSize; ++jj) {
-                int elem2 = sortedTr[jj];
-                int rank2 = itemToR2[elem2];
-                if (rank2 >= 0) {
-                    BitArrays.set(resRanks2, START_IND, rank2);
-                }
-            }
+            //the ranks of the pairs (sortedTr[ii], sortedTr[jj]) for jj > ii:
+            ranks2Cnt = f2RanksHelper.addCurrSizeRanksByPairs(
+                    sortedTr[ii], sortedTr, ii + 1, arrSize, ranks2, ranks2Cnt);
         }
 
-        return resRanks2;
+        return FkRankSet.fromRanks(ranks2, ranks2Cnt, totalRanks2);
     }
 
-    private long[] computeBitArrayOfRanksK(int[] sortedTr, long[] sortedRanksKm1Bs, CurrSizeFiRanks fkRanksHelper) {
-        final int START_IND = 0;
-        long[] resRanksK = new long[BitArrays.requiredSize(fkRanksHelper.getTotalCurrSizeRanks(), START_IND)];
+    private long[] computeBitArrayOfRanksK(int[] sortedTr, long[] ranksKm1Set, CurrSizeFiRanks fkRanksHelper) {
+        final int totalRanksK = fkRanksHelper.getTotalCurrSizeRanks();
+        //the (k-1)-ranks of the transaction are looked up per item in the item's pairs of the compact index:
+        int[] trRkm1s = FkRankSet.toRanks(ranksKm1Set);
+        int[] ranksK = new int[Math.min(totalRanksK, trRkm1s.length + 1)];
+        int ranksKCnt = 0;
 
         for (int r1 : sortedTr) {
-            long[] possibleRkm1sBs = fkRanksHelper.getPrevRanksForCurrSizeFisAsBitSet(r1);
-            long[] actRkm1sBs = BitArrays.andReturn(sortedRanksKm1Bs, possibleRkm1sBs, START_IND, sortedRanksKm1Bs.length);
-            final int[] actRkm1s = BitArrays.asNumbers(actRkm1sBs, START_IND);
-            final int[] rKm1ToRk = fkRanksHelper.getPrevSizeRankToCurrSizeRank(r1);
-            for (int rKm1 : actRkm1s) {
-                int rankK = rKm1ToRk[rKm1];
-                BitArrays.set(resRanksK, START_IND, rankK);
+            //the items' pairs are disjoint, so this never exceeds the total number of k-ranks:
+            final int maxNewRanksK = Math.min(trRkm1s.length, fkRanksHelper.getTotalCurrSizeFisOfItem(r1));
+            if (ranksKCnt + maxNewRanksK > ranksK.length) {
+                int newLen = Math.max(2 * ranksK.length, ranksKCnt + maxNewRanksK);
+                ranksK = Arrays.copyOf(ranksK, Math.min(totalRanksK, newLen));
             }
+            ranksKCnt = fkRanksHelper.addCurrSizeRanksByPairs(r1, trRkm1s, 0, trRkm1s.length, ranksK, ranksKCnt);
         }
 
-        return resRanksK;
+        return FkRankSet.fromRanks(ranksK, ranksKCnt, totalRanksK);
+    }
+
+    /**
+     * Counts the k-candidates of a single partition, one transaction at a time,
+     * by the engine chosen by the helper, see {@link NextSizeItemsetGenHelper.CountingEngine}
+     */
+    private static class CandKCounter {
+        private final int km1;
+        private final NextSizeItemsetGenHelper genHelper;
+        private final boolean isTrie;
+        private final CandCounts candToCount;
+        //reused for all the transactions of the partition, to keep the DENSE inner loop allocation-free:
+        private final int[] rKm1ForCandKsBuf;
+
+        private CandKCounter(int km1, NextSizeItemsetGenHelper genHelper) {
+            this.km1 = km1;
+            this.genHelper = genHelper;
+            this.isTrie = (genHelper.getCountingEngine() == NextSizeItemsetGenHelper.CountingEngine.TRIE);
+            this.candToCount = isTrie ?
+                    CandCounts.newCandidateCounts(
+                            genHelper.getNextSizeCandRanksPerItem(), genHelper.getTotalCurrSizeRanks()) :
+                    CandCounts.newCounts(
+                            CandCounts.Layout.DENSE, genHelper.getTotalFreqItems(), genHelper.getTotalCurrSizeRanks());
+            this.rKm1ForCandKsBuf = isTrie ? null : new int[genHelper.getTotalCurrSizeRanks()];
+        }
+
+        /**
+         * @return false if the transaction could not contain any k-candidate
+         */
+        private boolean addTr(int[] f1, long[] fKm1Set, int weight) {
+            if (f1.length <= km1 || FkRankSet.isEmpty(fKm1Set)) {
+                return false;
+            }
+
+            final int resColumnsSize = f1.length - km1;
+            if (isTrie) {
+                CandCounts.Candidates candCounts = (CandCounts.Candidates) candToCount;
+                for (int ii = 0; ii < resColumnsSize; ++ii) {
+                    candCounts.addAllIn(f1[ii], fKm1Set, weight);
+                }
+                return true;
+            }
+
+            for (int ii = 0; ii < resColumnsSize; ++ii) {
+                int item = f1[ii];
+                long[] hasChanceForNextRkm1Bs = genHelper.getCurrRanksForNextSizeCandsBitSet(item);
+                int rKm1ForCandKsCnt = FkRankSet.andAsNumbers(fKm1Set, hasChanceForNextRkm1Bs, rKm1ForCandKsBuf);
+                candToCount.addAll(item, rKm1ForCandKsBuf, 0, rKm1ForCandKsCnt, weight);
+            }
+            return true;
+        }
     }
 }
@@ -5,9 +5,13 @@ import org.apache.spark.HashPartitioner;
 import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function0;
+import org.apache.spark.broadcast.Broadcast;
 import org.openu.fimcmp.itemset.FreqItemset;
 import org.openu.fimcmp.itemset.FreqItemsetAsRanksBs;
 import org.openu.fimcmp.algs.bigfim.BigFimAlgProperties;
+import org.openu.fimcmp.result.FiResultHolder;
+import org.openu.fimcmp.util.Assert;
 import org.openu.fimcmp.util.IteratorOverArray;
 import scala.Tuple2;
 import scala.Tuple3;
@@ -17,7 +21,9 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * The main class that implements Apriori algorithm.
+ * The main class that implements Apriori algorithm. <br/>
+ * The per-level helpers (candidates, FI ranks, TIDs helpers) are expected as broadcast variables,
+ * so that each executor gets them once rather than with each stage's tasks. <br/>
  */
 @SuppressWarnings("WeakerAccess")
 public class AprioriAlg<T extends Comparable<T>> implements Serializable {
@@ -28,8 +34,15 @@ public class AprioriAlg<T extends Comparable<T>> implements Serializable {
         return new Class[]{
                 AprCandidateFisGenerator.class,
                 AprioriAlg.class,
+                CandCounts.Dense.class,
+                CandCounts.Triangular.class,
+                CandCounts.Sparse.class,
+                CandCounts.Candidates.class,
                 CurrSizeFiRanks.class,
+                DhpPairBuckets.class,
+                DhpPairBuckets.Filter.class,
                 FiRanksToFromItems.class,
+                FkTransactionTrimmer.class,
                 NextSizeItemsetGenHelper.class,
                 PairElem1IteratorOverRankToTidSet.class,
                 PairRanks.class,
@@ -74,58 +87,201 @@ public class AprioriAlg<T extends Comparable<T>> implements Serializable {
     }
 
     /**
-     * Compute a mapping 2-itemset to count. <br/>
-     * The infrequent 2-itemsets are not yet filtered out. <br/>
-     * See {@link #countArrToCols(int[][], int)} for details on the returned object
+     * Compute the frequent 2-itemsets. <br/>
+     * See {@link #mergeAndFilterCounts} for details on the returned object
      */
-    public List<int[]> computeF2_Part(JavaRDD<int[]> filteredTrs, int totalFreqItems) {
-        int[][] candToCount = filteredTrs
-                .mapPartitions(trIt -> candidateFisGenerator.countCands2_Part(trIt, totalFreqItems))
-                .fold(new int[0][], candidateFisGenerator::mergeCounts_Part);
+    public List<int[]> computeF2(JavaRDD<Tuple2<int[], Integer>> filteredTrs, int totalFreqItems) {
+        return computeF2(filteredTrs, totalFreqItems, null);
+    }
 
-        return countArrToCols(candToCount, totalFreqItems);
+    /**
+     * Same as {@link #computeF2(JavaRDD, int)}, but only counts the candidate pairs, if set,
+     * see {@link DhpPairBuckets.Filter#toCandidatePairsOrNull}
+     */
+    public List<int[]> computeF2(
+            JavaRDD<Tuple2<int[], Integer>> filteredTrs, int totalFreqItems, Broadcast<int[][]> candPairsBcOrNull) {
+        final int numBlocks = filteredTrs.getNumPartitions();
+        int[] blockStarts = (candPairsBcOrNull != null) ?
+                CandCounts.toBlockStarts(candPairsBcOrNull.value(), numBlocks) :
+                CandCounts.toBlockStarts(CandCounts.choosePairsLayout(totalFreqItems),
+                        totalFreqItems, totalFreqItems, numBlocks);
+        JavaRDD<CandCounts> partCounts = filteredTrs.mapPartitions(trIt -> candidateFisGenerator.countCands2_Part(
+                trIt, totalFreqItems, valueOrNull(candPairsBcOrNull)));
+        return mergeAndFilterCounts(partCounts, blockStarts,
+                (candPairsBcOrNull != null) ? candPairsBcOrNull::value : null);
+    }
+
+    /**
+     * Compute the frequent k-itemsets. <br/>
+     * See {@link #mergeAndFilterCounts} for details on the returned object
+     */
+    public List<int[]> computeFk(int k, JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndKm1,
+                                 Broadcast<NextSizeItemsetGenHelper> genHelperBc) {
+        int[] blockStarts = toBlockStarts(genHelperBc.value(), ranks1AndKm1.getNumPartitions());
+        JavaRDD<CandCounts> partCounts = ranks1AndKm1
+                .mapPartitions(trIt -> candidateFisGenerator.countCandsK_Part(trIt, k - 1, genHelperBc.value()));
+        return mergeAndFilterCounts(partCounts, blockStarts, toCandidates(genHelperBc));
     }
 
     /**
-     * Compute a mapping k-itemset to count. <br/>
-     * The infrequent k-itemsets are not yet filtered out. <br/>
-     * See {@link #countArrToCols(int[][], int)} for details on the returned object
+     * Compute the frequent k-itemsets and the frequent (k+1)-itemsets in a single scan of the transactions. <br/>
+     * The (k+1)-candidates are generated from all the k-candidates, as if all of them were frequent,
+     * see {@link AprCandidateFisGenerator#countCandsKAndKp1_Part}. <br/>
+     * Both levels are merged and filtered by a single job, see {@link #mergeAndFilterCounts}.
+     *
+     * @param candKRanksBc    the ranks of the k-candidates, see {@link NextSizeItemsetGenHelper#getCandsAsPairs()}
+     * @param nextGenHelperBc generates the (k+1)-candidates from the k-candidates ranks
+     * @return the k-FIs, as returned by {@link #computeFk}, and the (k+1)-FIs,
+     * as triplets (frequent item rank, k-candidate rank, count), see {@link #candRanksToFkRanks}
      */
-    public List<int[]> computeFk_Part(
-            int k, JavaRDD<Tuple2<int[], long[]>> ranks1AndKm1, NextSizeItemsetGenHelper genHelper) {
-//        rangePartitioner = new RangePartitioner(50, pairRdd)
-        int[][] candToCount = ranks1AndKm1
-                .mapPartitions(trIt -> candidateFisGenerator.countCandsK_Part(trIt, k - 1, genHelper))
-                .fold(new int[0][], candidateFisGenerator::mergeCounts_Part);
-
-        final int totalFreqItems = genHelper.getTotalFreqItems();
-        return countArrToCols(candToCount, totalFreqItems);
+    public Tuple2<List<int[]>, List<int[]>> computeFkAndFkp1(
+            int k, JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndKm1,
+            Broadcast<NextSizeItemsetGenHelper> genHelperBc, Broadcast<CurrSizeFiRanks> candKRanksBc,
+            Broadcast<NextSizeItemsetGenHelper> nextGenHelperBc) {
+        final int numBlocks = ranks1AndKm1.getNumPartitions();
+        int[] blockStarts = toBlockStarts(genHelperBc.value(), numBlocks);
+        int[] nextBlockStarts = toBlockStarts(nextGenHelperBc.value(), numBlocks);
+        //the blocks of the (k+1)-candidates follow the blocks of the k-candidates:
+        JavaPairRDD<Integer, CandCounts> blockIndAndCounts = ranks1AndKm1
+                .mapPartitions(trIt -> candidateFisGenerator.countCandsKAndKp1_Part(
+                        trIt, k - 1, genHelperBc.value(), candKRanksBc.value(), nextGenHelperBc.value()))
+                .flatMapToPair(counts -> {
+                    List<Tuple2<Integer, CandCounts>> res = counts._1.toBlocks(blockStarts);
+                    res.addAll(counts._2.toBlocks(nextBlockStarts, numBlocks));
+                    return res.iterator();
+                });
+
+        List<Tuple2<Integer, List<int[]>>> blockIndAndFks = mergeAndFilterBlocks(
+                blockIndAndCounts, numBlocks, Arrays.asList(toCandidates(genHelperBc), toCandidates(nextGenHelperBc)));
+        List<int[]> fk = new ArrayList<>();
+        List<int[]> fkp1 = new ArrayList<>();
+        for (Tuple2<Integer, List<int[]>> blockIndAndFk : blockIndAndFks) {
+            (blockIndAndFk._1 < numBlocks ? fk : fkp1).addAll(blockIndAndFk._2);
+        }
+        return new Tuple2<>(fk, fkp1);
     }
 
     /**
-     * @return (k_itemset to count) mapping as a list of 'columns'. <br/>
-     * A 'column' = array whose first element is a frequent item rank, and the rest is a mapping ((k-1)-FI rank to count)
+     * Maps the (k+1)-FIs counted against the k-candidates ranks to the k-FIs ranks. <br/>
+     * All the k-subsets of a frequent (k+1)-itemset are frequent, so each of them has a k-FI rank.
+     *
+     * @param fkp1ByCandRanks triplets (frequent item rank, k-candidate rank, count), see {@link #computeFkAndFkp1}
+     * @param candKRanks      the ranks of the k-candidates
+     * @param fkRanks         the ranks of the k-FIs
+     * @return triplets (frequent item rank, k-FI rank, count), sorted as the ones returned by {@link #computeFk}
      */
-    private List<int[]> countArrToCols(int[][] candToCount, int totalFreqItems) {
-        List<int[]> res = new ArrayList<>(totalFreqItems);
-        for (int item = 0; item < totalFreqItems; ++item) {
-            int[] srcCol = candToCount[item];
-            int[] resCol = new int[1 + srcCol.length];
-            resCol[0] = item;
-            System.arraycopy(srcCol, 0, resCol, 1, srcCol.length);
-            res.add(resCol);
+    public static List<int[]> candRanksToFkRanks(
+            List<int[]> fkp1ByCandRanks, CurrSizeFiRanks candKRanks, CurrSizeFiRanks fkRanks) {
+        List<int[]> res = new ArrayList<>(fkp1ByCandRanks.size());
+        for (int[] itemAndCandRankAndCount : fkp1ByCandRanks) {
+            int[] candAsPair = candKRanks.getCurrSizeFiAsPairByRank(itemAndCandRankAndCount[1]);
+            int rankK = fkRanks.getCurrSizeFiRankByPair(candAsPair[0], candAsPair[1]);
+            Assert.isTrue(rankK >= 0);
+            res.add(new int[]{itemAndCandRankAndCount[0], rankK, itemAndCandRankAndCount[2]});
         }
+        res.sort((t1, t2) -> (t1[0] != t2[0]) ? Integer.compare(t1[0], t2[0]) : Integer.compare(t1[1], t2[1]));
         return res;
     }
 
-    public JavaRDD<Tuple2<int[], long[]>> toRddOfRanks1And2(
-            JavaRDD<int[]> filteredTrs, CurrSizeFiRanks preprocessedF2) {
-        return filteredTrs.map(tr -> candidateFisGenerator.toSortedRanks1AndBitArrayOfRanks2(tr, preprocessedF2));
+    /**
+     * @return the candidates counted by the TRIE engine, fetched from the broadcast helper when needed
+     */
+    private static Function0<int[][]> toCandidates(Broadcast<NextSizeItemsetGenHelper> genHelperBc) {
+        return () -> genHelperBc.value().getNextSizeCandRanksPerItem();
+    }
+
+    private static int[] toBlockStarts(NextSizeItemsetGenHelper genHelper, int numBlocks) {
+        return (genHelper.getCountingEngine() == NextSizeItemsetGenHelper.CountingEngine.TRIE) ?
+                CandCounts.toBlockStarts(genHelper.getNextSizeCandRanksPerItem(), numBlocks) :
+                CandCounts.toBlockStarts(CandCounts.Layout.DENSE,
+                        genHelper.getTotalFreqItems(), genHelper.getTotalCurrSizeRanks(), numBlocks);
+    }
+
+    /**
+     * Merges the per-partition candidate counts and filters out the infrequent candidates. <br/>
+     * The counts of each partition are split into blocks of frequent item ranks, and each block is merged and filtered
+     * by a separate task, so neither the merge nor the counts of the infrequent candidates reach the driver.
+     *
+     * @return triplets (frequent item rank, (k-1)-FI rank, count), sorted by the frequent item rank and then by
+     * the (k-1)-FI rank, see {@link AprCandidateFisGenerator#fkColToPairs(int[], long)}
+     */
+    private List<int[]> mergeAndFilterCounts(JavaRDD<CandCounts> partCounts, int[] blockStarts,
+                                             Function0<int[][]> candidatesOrNull) {
+        JavaPairRDD<Integer, CandCounts> blockIndAndCounts =
+                partCounts.flatMapToPair(counts -> counts.toBlocks(blockStarts).iterator());
+        List<int[]> res = new ArrayList<>();
+        List<Tuple2<Integer, List<int[]>>> blockIndAndFks = mergeAndFilterBlocks(
+                blockIndAndCounts, blockStarts.length, Collections.singletonList(candidatesOrNull));
+        for (Tuple2<Integer, List<int[]>> blockIndAndFk : blockIndAndFks) {
+            res.addAll(blockIndAndFk._2);
+        }
+        return res;
+    }
+
+    /**
+     * The blocks of the {@link CandCounts.Candidates} counts are shuffled without their candidates, so the candidates
+     * are restored from the broadcast they have been generated from before the counts are filtered. <br/>
+     *
+     * @param blocksPerLevel   the number of blocks of each counted level
+     * @param levelCandsOrNull per counted level, its candidates as sorted elem2's per elem1
+     *                         (null if the level is not counted by candidates)
+     * @return (block index, the frequent candidates of the block), ordered by the block index
+     */
+    private List<Tuple2<Integer, List<int[]>>> mergeAndFilterBlocks(
+            JavaPairRDD<Integer, CandCounts> blockIndAndCounts, int blocksPerLevel,
+            List<Function0<int[][]>> levelCandsOrNull) {
+        //block i goes to partition i, so the collected blocks are ordered by their indexes:
+        IntToSamePartitioner partitioner = new IntToSamePartitioner(blocksPerLevel * levelCandsOrNull.size());
+        return blockIndAndCounts
+                .reduceByKey(partitioner, candidateFisGenerator::mergeCounts_Part)
+                .mapToPair(blockIndAndCnt -> {
+                    CandCounts counts = blockIndAndCnt._2;
+                    if (counts.getLayout() == CandCounts.Layout.CANDIDATES) {
+                        int[][] candidates = levelCandsOrNull.get(blockIndAndCnt._1 / blocksPerLevel).call();
+                        ((CandCounts.Candidates) counts).restoreCandidates(candidates);
+                    }
+                    return new Tuple2<>(blockIndAndCnt._1,
+                            candidateFisGenerator.countsToFilteredPairs(counts, minSuppCount));
+                })
+                .collect();
+    }
+
+    public JavaRDD<Tuple3<int[], long[], Integer>> toRddOfRanks1And2(
+            JavaRDD<Tuple2<int[], Integer>> filteredTrs, Broadcast<CurrSizeFiRanks> preprocessedF2Bc) {
+        return filteredTrs.map(tr -> candidateFisGenerator.toSortedRanks1AndBitArrayOfRanks2(
+                tr._1, tr._2, preprocessedF2Bc.value()));
+    }
+
+    public JavaRDD<Tuple3<int[], long[], Integer>> toRddOfRanks1AndK(
+            JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndKm1, Broadcast<CurrSizeFiRanks> preprocessedFkBc) {
+        return ranks1AndKm1.map(row -> candidateFisGenerator.toSortedRanks1AndBitArrayOfRanksK(
+                row._1(), row._2(), row._3(), preprocessedFkBc.value()));
+    }
+
+    /**
+     * Same as {@link #toRddOfRanks1And2(JavaRDD, Broadcast)}, but drops the transactions that contain no 2-FI
+     * and trims the rest if the trimmer is set, see {@link FkTransactionTrimmer}
+     */
+    public JavaRDD<Tuple3<int[], long[], Integer>> toRddOfRanks1And2(
+            JavaRDD<Tuple2<int[], Integer>> filteredTrs, Broadcast<CurrSizeFiRanks> preprocessedF2Bc,
+            Broadcast<FkTransactionTrimmer> trimmerBcOrNull) {
+        return toRddOfRanks1And2(filteredTrs, preprocessedF2Bc)
+                .flatMap(row -> candidateFisGenerator.trimTr(row, valueOrNull(trimmerBcOrNull)));
+    }
+
+    /**
+     * Same as {@link #toRddOfRanks1AndK(JavaRDD, Broadcast)}, but drops the transactions that contain no k-FI
+     * and trims the rest if the trimmer is set, see {@link FkTransactionTrimmer}
+     */
+    public JavaRDD<Tuple3<int[], long[], Integer>> toRddOfRanks1AndK(
+            JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndKm1, Broadcast<CurrSizeFiRanks> preprocessedFkBc,
+            Broadcast<FkTransactionTrimmer> trimmerBcOrNull) {
+        return toRddOfRanks1AndK(ranks1AndKm1, preprocessedFkBc)
+                .flatMap(row -> candidateFisGenerator.trimTr(row, valueOrNull(trimmerBcOrNull)));
     }
 
-    public JavaRDD<Tuple2<int[], long[]>> toRddOfRanks1AndK(
-            JavaRDD<Tuple2<int[], long[]>> ranks1AndKm1, CurrSizeFiRanks preprocessedFk) {
-        return ranks1AndKm1.map(row -> candidateFisGenerator.toSortedRanks1AndBitArrayOfRanksK(row._1, row._2, preprocessedFk));
+    private static <V> V valueOrNull(Broadcast<V> bcOrNull) {
+        return (bcOrNull != null) ? bcOrNull.value() : null;
     }
 
     /**
@@ -138,7 +294,7 @@ public class AprioriAlg<T extends Comparable<T>> implements Serializable {
      * is expected to be much less than the number of transactions.
      */
     public JavaRDD<long[][]> computeCurrRankToTidBitSet_Part(
-            JavaRDD<long[]> kRanksBsRdd, TidsGenHelper tidsGenHelper) {
+            JavaRDD<long[]> kRanksBsRdd, Broadcast<TidsGenHelper> tidsGenHelperBc) {
         JavaPairRDD<long[], Long> kRanksBsWithTidRdd = kRanksBsRdd.zipWithIndex();
         List<Tuple3<Integer, Long, Long>> partIndMinAndMaxTidList =
                 kRanksBsWithTidRdd.mapPartitionsWithIndex(TidMergeSet::findMinAndMaxTids, true).collect();
@@ -146,12 +302,12 @@ public class AprioriAlg<T extends Comparable<T>> implements Serializable {
 
         return kRanksBsWithTidRdd
                 .mapPartitionsWithIndex((partInd, kRanksBsAndTidIt) -> TidMergeSet.processPartition(
-                        kRanksBsAndTidIt, tidsGenHelper, partIndToMinAndMaxTid.get(partInd)), true);
+                        kRanksBsAndTidIt, tidsGenHelperBc.value(), partIndToMinAndMaxTid.get(partInd)), true);
     }
 
-    public long[][] mergePartitions(JavaRDD<long[][]> rankToTidBsRdd, TidsGenHelper tidsGenHelper) {
+    public long[][] mergePartitions(JavaRDD<long[][]> rankToTidBsRdd, Broadcast<TidsGenHelper> tidsGenHelperBc) {
         return rankToTidBsRdd
-                .fold(new long[0][], (p1, p2) -> TidMergeSet.mergePartitions(p1, p2, tidsGenHelper));
+                .fold(new long[0][], (p1, p2) -> TidMergeSet.mergePartitions(p1, p2, tidsGenHelperBc.value()));
     }
 
     /**
@@ -236,21 +392,9 @@ public class AprioriAlg<T extends Comparable<T>> implements Serializable {
         return res;
     }
 
-    /**
-     * Filter out infrequent candidates and convert 'columns' to triplets (frequent item rank, (k-1)-FI rank, count). <br/>
-     * See {@link AprCandidateFisGenerator#fkColToPairs(int[], long)} for details.
-     */
-    public List<int[]> fkAsArraysToFilteredRankPairs(List<int[]> cols) {
-        List<int[]> res = new ArrayList<>(cols.size() * cols.size());
-        for (int[] col : cols) {
-            res.addAll(candidateFisGenerator.fkColToPairs(col, minSuppCount));
-        }
-        return res;
-    }
-
-    public List<FreqItemset> fkAsArraysToResItemsets(
-            List<int[]> cols, String[] rankToItem, FiRanksToFromItems fiRanksToFromItems) {
-        List<long[]> resBs = fkAsArraysToItemsetBitsets(cols, fiRanksToFromItems, rankToItem.length);
+    public List<FreqItemset> fkToResItemsets(
+            List<int[]> fk, String[] rankToItem, FiRanksToFromItems fiRanksToFromItems) {
+        List<long[]> resBs = fkToItemsetBitsets(fk, fiRanksToFromItems, rankToItem.length);
 
         List<FreqItemset> res = new ArrayList<>(resBs.size());
         for (long[] ranksWithSuppBs : resBs) {
@@ -262,24 +406,36 @@ public class AprioriAlg<T extends Comparable<T>> implements Serializable {
         return res;
     }
 
-    public List<long[]> fkAsArraysToItemsetBitsets(
-            List<int[]> cols, FiRanksToFromItems fiRanksToFromItems, int totalFreqItemsets) {
-        ArrayList<long[]> res = new ArrayList<>((int) Math.pow(cols.size(), 3));
+    /**
+     * Adds the frequent k-itemsets to the result holder one by one, without collecting them first,
+     * see {@link #fkToItemsetBitsets}
+     */
+    public void addFkToResult(List<int[]> fk, FiRanksToFromItems fiRanksToFromItems, FiResultHolder resultHolder) {
         final int kk = fiRanksToFromItems.getMaxK() + 1; //no fiRanks object for the maximal rank (k)
-        for (int[] col : cols) {
-            List<int[]> itemAndPairRanks = candidateFisGenerator.fkColToPairs(col, minSuppCount);
-            for (int[] itemAndPairRank : itemAndPairRanks) {
-                final int freq = itemAndPairRank[2];
-                int[] resItemset = new int[kk];
-                resItemset[0] = itemAndPairRank[0];
-                int[] itemsetAsR1s = fiRanksToFromItems.getItemsetByRank(itemAndPairRank[1], kk - 1);
-                System.arraycopy(itemsetAsR1s, 0, resItemset, 1, itemsetAsR1s.length);
-
-                res.add(FreqItemsetAsRanksBs.toBitSet(freq, resItemset, totalFreqItemsets));
-            }
+        for (int[] itemAndPairRank : fk) {
+            int[] itemset = new int[kk];
+            itemset[0] = itemAndPairRank[0];
+            fiRanksToFromItems.copyItemsetByRank(itemAndPairRank[1], kk - 1, itemset, 1);
+            resultHolder.addFrequentItemset(itemAndPairRank[2], itemset);
+        }
+    }
+
+    /**
+     * @param fk triplets (frequent item rank, (k-1)-FI rank, count) of the frequent k-itemsets, see {@link #computeFk}
+     */
+    public List<long[]> fkToItemsetBitsets(
+            List<int[]> fk, FiRanksToFromItems fiRanksToFromItems, int totalFreqItemsets) {
+        ArrayList<long[]> res = new ArrayList<>(fk.size());
+        final int kk = fiRanksToFromItems.getMaxK() + 1; //no fiRanks object for the maximal rank (k)
+        for (int[] itemAndPairRank : fk) {
+            final int freq = itemAndPairRank[2];
+            int[] resItemset = new int[kk];
+            resItemset[0] = itemAndPairRank[0];
+            fiRanksToFromItems.copyItemsetByRank(itemAndPairRank[1], kk - 1, resItemset, 1);
+
+            res.add(FreqItemsetAsRanksBs.toBitSet(freq, resItemset, totalFreqItemsets));
         }
 
-        res.trimToSize();
         return res;
     }
 }
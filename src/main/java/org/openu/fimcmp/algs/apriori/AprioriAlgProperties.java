@@ -0,0 +1,38 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+
+/**
+ * Holds the properties of the level-wise Apriori, shared by all the algorithms that run it,
+ * see {@link AprioriStepExecutor}.
+ */
+@SuppressWarnings("WeakerAccess")
+public class AprioriAlgProperties extends CommonAlgProperties {
+    /**
+     * How Apriori counts the candidates of size 3 and above, see {@link NextSizeItemsetGenHelper.CountingEngine}
+     */
+    public NextSizeItemsetGenHelper.CountingEngine aprCountingEngine = NextSizeItemsetGenHelper.CountingEngine.AUTO;
+    /**
+     * How Apriori generates the candidates of size 3 and above,
+     * see {@link NextSizeItemsetGenHelper.CandidateGeneration}
+     */
+    public NextSizeItemsetGenHelper.CandidateGeneration aprCandsGeneration =
+            NextSizeItemsetGenHelper.CandidateGeneration.PREFIX_JOIN;
+    /**
+     * If set, Apriori counts the candidates of two consecutive sizes in a single scan of the transactions
+     * whenever the counters of both fit this budget, i.e. the next-size candidates are generated speculatively,
+     * as if all the current-size candidates were frequent. <br/>
+     * A counter takes 1-4 bytes per partition, see {@link NextSizeItemsetGenHelper#getTotalCounters()}. <br/>
+     */
+    public Integer aprMultiLevelMaxCounters;
+    /**
+     * Whether each Apriori level drops the items that could not be part of any larger FI from the persisted
+     * transactions, and the transactions left with too few items, see {@link FkTransactionTrimmer}. <br/>
+     * The transactions with no k-FI at all are dropped regardless.
+     */
+    public boolean isAprTrimTransactions = true;
+
+    public AprioriAlgProperties(double minSupp) {
+        super(minSupp);
+    }
+}
@@ -0,0 +1,264 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.storage.StorageLevel;
+import org.apache.spark.util.SizeEstimator;
+import org.openu.fimcmp.algs.algbase.F1Context;
+import scala.Tuple2;
+import scala.Tuple3;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes the levels of the level-wise Apriori, shared by all the algorithms that run it. <br/>
+ * Holds the state that allows it to move from one level to the other: the persisted transactions' RDDs,
+ * each computed from the previous one, see {@link #computeCurrSizeRdd}. <br/>
+ * The per-level Apriori helpers are broadcast, see {@link #broadcast}. <br/>
+ * Each level's FIs are passed to {@link #addFis} as soon as they are computed. <br/>
+ */
+public abstract class AprioriStepExecutor<P extends AprioriAlgProperties> {
+    protected final P props;
+    protected final F1Context cxt;
+    protected final JavaSparkContext sc;
+    protected final ArrayList<JavaRDD> allRanksRdds;
+
+    protected AprioriStepExecutor(P props, F1Context cxt, JavaSparkContext sc) {
+        this.props = props;
+        this.cxt = cxt;
+        this.sc = sc;
+        allRanksRdds = new ArrayList<>();
+    }
+
+    /**
+     * @param persistedRanks1Rdd the persisted transactions' RDD, either as arrays of items ranks or as pairs
+     *                           (array of items ranks, weight). <br/>
+     *                           It is tracked for unpersisting once the next-size RDDs are computed.
+     */
+    public void addRddRanks1(JavaRDD<?> persistedRanks1Rdd) {
+        allRanksRdds.add(persistedRanks1Rdd);
+    }
+
+    /**
+     * @param isForTids whether the RDD is only an input to compute the TIDs of the k-FIs: it is neither trimmed
+     *                  nor persisted, as the TIDs are needed for every transaction that contains a k-FI
+     * @return Transactions' RDD; for each transaction we have: <br/><ol>
+     * <li>int[] - transaction's items represented as their F1 ranks</li>
+     * <li>long[] - set of the ranks of the k-FIs contained in this transaction, see {@link FkRankSet}</li>
+     * <li>Integer - the transaction's weight</li>
+     * </ol>
+     * The transactions that contain no k-FI are dropped. <br/>
+     * Unless the RDD is for the TIDs, the items that could not be part of a larger FI are dropped as well,
+     * see {@link AprioriAlgProperties#isAprTrimTransactions}.
+     */
+    public JavaRDD<Tuple3<int[], long[], Integer>> computeCurrSizeRdd(
+            AprioriStepRes currStep, JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndKm1,
+            JavaRDD<Tuple2<int[], Integer>> ranks1Rdd, boolean isForTids) {
+        List<Broadcast<?>> usedBcs = new ArrayList<>();
+        Broadcast<CurrSizeFiRanks> fkRanksBc =
+                broadcast("F" + currStep.kk + " ranks", currStep.currSizeRanks, usedBcs);
+        Broadcast<FkTransactionTrimmer> trimmerBcOrNull = (isForTids || !props.isAprTrimTransactions) ? null :
+                broadcast("F" + currStep.kk + " trimmer",
+                        new FkTransactionTrimmer(currStep.currSizeAllRanks, currStep.getFkSize()), usedBcs);
+        JavaRDD<Tuple3<int[], long[], Integer>> res;
+        StorageLevel storageLevel;
+        if (ranks1AndKm1 == null) {
+            res = cxt.apr.toRddOfRanks1And2(ranks1Rdd, fkRanksBc, trimmerBcOrNull);
+            storageLevel = StorageLevel.MEMORY_ONLY_SER();
+        } else {
+            if (currStep.countedWithPrevStep != null) {
+                AprioriStepRes prevStep = currStep.countedWithPrevStep;
+                ranks1AndKm1 = cxt.apr.toRddOfRanks1AndK(ranks1AndKm1,
+                        broadcast("F" + prevStep.kk + " ranks", prevStep.currSizeRanks, usedBcs), null);
+            }
+            res = cxt.apr.toRddOfRanks1AndK(ranks1AndKm1, fkRanksBc, trimmerBcOrNull);
+            storageLevel = StorageLevel.MEMORY_AND_DISK_SER();
+        }
+
+        if (!isForTids) {
+            res = res.persist(storageLevel);
+            //materialize it before dropping the previous one, also to tell how many transactions are left:
+            long totalTrs = res.count();
+            unpersistPrevIfNeeded();
+            //re-fetched from the driver should the persisted RDD ever need to be recomputed:
+            unpersist(usedBcs);
+            cxt.pp(String.format("Computed and saved RDD ranks %s (%s transactions)", currStep.kk, totalTrs));
+        }
+
+        allRanksRdds.add(res);
+        return res;
+    }
+
+    /**
+     * Counts only the pairs that survive the DHP filter, if any,
+     * see {@link DhpPairBuckets.Filter#toCandidatePairsOrNull}
+     */
+    public AprioriStepRes computeF2(JavaRDD<Tuple2<int[], Integer>> ranks1Rdd) {
+        int[][] candPairsOrNull = null;
+        if (cxt.pairFilterOrNull != null) {
+            long startMs = System.currentTimeMillis();
+            candPairsOrNull = cxt.pairFilterOrNull.toCandidatePairsOrNull(cxt.totalFreqItems);
+            String candsStr = (candPairsOrNull != null) ? String.valueOf(totalCands(candPairsOrNull)) : "most";
+            cxt.pp(String.format("F2 candidates after DHP: %s of %s pairs, generated in %s ms%s", candsStr,
+                    CandCounts.Triangular.totalCells(cxt.totalFreqItems), System.currentTimeMillis() - startMs,
+                    (candPairsOrNull != null) ? "" : " => counting all the pairs"));
+        }
+
+        List<int[]> fk;
+        if (candPairsOrNull == null) {
+            fk = cxt.apr.computeF2(ranks1Rdd, cxt.totalFreqItems);
+        } else {
+            List<Broadcast<?>> usedBcs = new ArrayList<>();
+            fk = cxt.apr.computeF2(ranks1Rdd, cxt.totalFreqItems,
+                    broadcast("F2 candidates", candPairsOrNull, usedBcs));
+            unpersist(usedBcs);
+        }
+
+        FiRanksToFromItems prevSizeAllRanks = new FiRanksToFromItems();
+        return toNextAprioriStep(2, fk, cxt.totalFreqItems, prevSizeAllRanks);
+    }
+
+    /**
+     * @return the step of the next size, or the step after it if both have been counted in a single scan,
+     * see {@link AprioriAlgProperties#aprMultiLevelMaxCounters}. <br/>
+     * Null if no more FIs could be found.
+     */
+    public AprioriStepRes computeFk(JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndK, AprioriStepRes currStep) {
+        long genStartMs = System.currentTimeMillis();
+        NextSizeItemsetGenHelper nextSizeGenHelper = currStep.computeNextSizeGenHelper(
+                cxt.totalFreqItems, props.aprCountingEngine, props.aprCandsGeneration);
+        final int kp1 = currStep.kk + 1;
+        ppCands(kp1, nextSizeGenHelper, genStartMs);
+
+        FiRanksToFromItems prevSizeAllRanks = currStep.currSizeAllRanks;
+        CurrSizeFiRanks candKp1Ranks = null;
+        NextSizeItemsetGenHelper nextNextSizeGenHelper = null;
+        if (isMultiLevelPossible(nextSizeGenHelper)) {
+            //speculatively take all the (k+1)-candidates as (k+1)-FIs to generate the (k+2)-candidates:
+            candKp1Ranks = CurrSizeFiRanks.construct(
+                    nextSizeGenHelper.getCandsAsPairs(), cxt.totalFreqItems, currStep.getFkSize());
+            genStartMs = System.currentTimeMillis();
+            nextNextSizeGenHelper = NextSizeItemsetGenHelper.construct(
+                    prevSizeAllRanks.toNextSize(candKp1Ranks), cxt.totalFreqItems,
+                    (int) nextSizeGenHelper.getTotalCands(), props.aprCountingEngine, props.aprCandsGeneration);
+            ppCands(kp1 + 1, nextNextSizeGenHelper, genStartMs);
+            final long totalCounters = nextSizeGenHelper.getTotalCounters() + nextNextSizeGenHelper.getTotalCounters();
+            final boolean isMultiLevel =
+                    (nextNextSizeGenHelper.getTotalCands() > 0 && totalCounters <= props.aprMultiLevelMaxCounters);
+            cxt.pp(String.format("F%s and F%s counters: %s (max %s) => counting both in a single scan = %s",
+                    kp1, kp1 + 1, totalCounters, props.aprMultiLevelMaxCounters, isMultiLevel));
+            nextNextSizeGenHelper = isMultiLevel ? nextNextSizeGenHelper : null;
+        }
+
+        List<Broadcast<?>> usedBcs = new ArrayList<>();
+        Broadcast<NextSizeItemsetGenHelper> genHelperBc =
+                broadcast("F" + kp1 + " candidates", nextSizeGenHelper, usedBcs);
+        if (nextNextSizeGenHelper == null) {
+            List<int[]> fk = cxt.apr.computeFk(kp1, ranks1AndK, genHelperBc);
+            unpersist(usedBcs);
+            return toNextAprioriStep(kp1, fk, currStep.getFkSize(), prevSizeAllRanks);
+        }
+
+        Tuple2<List<int[]>, List<int[]>> fkAndFkp1 = cxt.apr.computeFkAndFkp1(kp1, ranks1AndK, genHelperBc,
+                broadcast("C" + kp1 + " ranks", candKp1Ranks, usedBcs),
+                broadcast("F" + (kp1 + 1) + " candidates", nextNextSizeGenHelper, usedBcs));
+        unpersist(usedBcs);
+        AprioriStepRes nextStep = toNextAprioriStep(kp1, fkAndFkp1._1, currStep.getFkSize(), prevSizeAllRanks);
+        if (nextStep == null) {
+            return null;
+        }
+
+        List<int[]> fkp1 = AprioriAlg.candRanksToFkRanks(fkAndFkp1._2, candKp1Ranks, nextStep.currSizeRanks);
+        AprioriStepRes res = toNextAprioriStep(kp1 + 1, fkp1, nextStep.getFkSize(), nextStep.currSizeAllRanks);
+        if (res != null) {
+            res.countedWithPrevStep = nextStep;
+        }
+        return res;
+    }
+
+    /**
+     * Drops all the transactions' RDDs computed so far, once no more levels are going to be computed
+     */
+    public void unpersistAllRanksRdds() {
+        for (JavaRDD rdd : allRanksRdds) {
+            rdd.unpersist();
+        }
+        allRanksRdds.clear();
+    }
+
+    /**
+     * Called with each non-empty Fk as soon as it is computed, in the increasing order of k
+     */
+    protected abstract void addFis(AprioriStepRes step);
+
+    /**
+     * Broadcasts a per-level helper, so that each executor fetches it once (serialized by Kryo if enabled)
+     * rather than getting it with the closure of each stage. <br/>
+     * Reports its estimated size, as it is the bulk of what is sent to the executors per level.
+     */
+    protected <T> Broadcast<T> broadcast(String name, T value) {
+        Broadcast<T> res = sc.broadcast(value);
+        cxt.pp(String.format("Broadcast %s: %s KB", name, SizeEstimator.estimate(value) / 1024));
+        return res;
+    }
+
+    protected void unpersistPrevIfNeeded() {
+        if (allRanksRdds.size() >= 2) {
+            allRanksRdds.get(allRanksRdds.size() - 2).unpersist();
+        }
+    }
+
+    /**
+     * Whether the next-size candidates are few enough to try counting the candidates of the size after it
+     * in the same scan, see {@link AprioriAlgProperties#aprMultiLevelMaxCounters}
+     */
+    private boolean isMultiLevelPossible(NextSizeItemsetGenHelper nextSizeGenHelper) {
+        return props.aprMultiLevelMaxCounters != null && nextSizeGenHelper.getTotalCands() > 0 &&
+                nextSizeGenHelper.getTotalCounters() <= props.aprMultiLevelMaxCounters;
+    }
+
+    /**
+     * Reports the candidates generation as a phase of its own, since it runs on the driver
+     */
+    private void ppCands(int kp1, NextSizeItemsetGenHelper nextSizeGenHelper, long genStartMs) {
+        cxt.pp(String.format("F%s candidates: %s (density %.5f), counting engine: %s, generated in %s ms", kp1,
+                nextSizeGenHelper.getTotalCands(), nextSizeGenHelper.getCandsDensity(),
+                nextSizeGenHelper.getCountingEngine(), System.currentTimeMillis() - genStartMs));
+    }
+
+    private <T> Broadcast<T> broadcast(String name, T value, List<Broadcast<?>> usedBcs) {
+        Broadcast<T> res = broadcast(name, value);
+        usedBcs.add(res);
+        return res;
+    }
+
+    private static long totalCands(int[][] elem1ToSortedElems2) {
+        long res = 0;
+        for (int[] sortedElems2 : elem1ToSortedElems2) {
+            res += sortedElems2.length;
+        }
+        return res;
+    }
+
+    private static void unpersist(List<Broadcast<?>> bcs) {
+        for (Broadcast<?> bc : bcs) {
+            bc.unpersist(false);
+        }
+    }
+
+    private AprioriStepRes toNextAprioriStep(int kp1, List<int[]> fk, int fkSize, FiRanksToFromItems prevSizeAllRanks) {
+        if (fk.isEmpty()) {
+            cxt.pp(String.format("F%s is empty => stopping", kp1));
+            return null;
+        }
+
+        AprioriStepRes res = new AprioriStepRes(kp1, fk, prevSizeAllRanks, fkSize, cxt);
+
+        res.print(cxt, props.isPrintIntermediateRes);
+
+        addFis(res);
+        return res;
+    }
+}
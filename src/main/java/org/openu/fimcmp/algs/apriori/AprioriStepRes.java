@@ -0,0 +1,74 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openu.fimcmp.itemset.FreqItemset;
+import org.openu.fimcmp.algs.algbase.F1Context;
+import org.openu.fimcmp.result.FiResultHolder;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Auxiliary class to hold results of a single Apriori step, see {@link AprioriStepExecutor}
+ */
+public class AprioriStepRes {
+    public final int kk;
+    private final FiRanksToFromItems prevSizeAllRanks;
+    private final List<int[]> fk;
+    public final CurrSizeFiRanks currSizeRanks;
+    public final FiRanksToFromItems currSizeAllRanks;
+    /**
+     * The step of the previous size if both have been counted in a single scan, otherwise null. <br/>
+     * In this case the transactions' RDD of the previous size has never been computed.
+     */
+    public AprioriStepRes countedWithPrevStep;
+
+    AprioriStepRes(
+            int kk, List<int[]> fk,
+            FiRanksToFromItems prevSizeAllRanks, int fkm1Size, F1Context cxt) {
+        this.kk = kk;
+        this.fk = fk;
+        this.prevSizeAllRanks = prevSizeAllRanks;
+
+        this.currSizeRanks = CurrSizeFiRanks.construct(this.fk, cxt.totalFreqItems, fkm1Size);
+        this.currSizeAllRanks = prevSizeAllRanks.toNextSize(currSizeRanks);
+    }
+
+    public int getFkSize() {
+        return fk.size();
+    }
+
+    public List<long[]> getItemsetBitsets(F1Context cxt) {
+        return cxt.apr.fkToItemsetBitsets(fk, prevSizeAllRanks, cxt.totalFreqItems);
+    }
+
+    public void addFisTo(FiResultHolder resultHolder, F1Context cxt) {
+        cxt.apr.addFkToResult(fk, prevSizeAllRanks, resultHolder);
+    }
+
+    public NextSizeItemsetGenHelper computeNextSizeGenHelper(
+            int totalFreqItems, NextSizeItemsetGenHelper.CountingEngine countingEngine,
+            NextSizeItemsetGenHelper.CandidateGeneration generation) {
+        return NextSizeItemsetGenHelper.construct(
+                currSizeAllRanks, totalFreqItems, fk.size(), countingEngine, generation);
+    }
+
+    public TidsGenHelper constructTidGenHelper(long totalTids, int[] tidToWeight) {
+        return currSizeRanks.constructTidGenHelper(fk, (int) totalTids, tidToWeight);
+    }
+
+    public void print(F1Context cxt, boolean isPrintFks) {
+        cxt.pp(String.format("F%s size: %s", kk, fk.size()));
+        final int maxSampleSize = 10;
+
+        if (isPrintFks) {
+            List<FreqItemset> fkRes = cxt.apr.fkToResItemsets(fk, cxt.rankToItem, prevSizeAllRanks);
+            fkRes = fkRes.stream()
+                    .sorted((fi1, fi2) -> Integer.compare(fi2.freq, fi1.freq))
+                    .collect(Collectors.toList());
+            int sampleSize = Math.min(maxSampleSize, fkRes.size());
+            fkRes = fkRes.subList(0, sampleSize);
+            cxt.pp(String.format("F%s (sample size %s):\n%s", kk, sampleSize, StringUtils.join(fkRes, "\n")));
+        }
+    }
+}
@@ -0,0 +1,569 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.openu.fimcmp.util.AdaptiveCounters;
+import org.openu.fimcmp.util.IntIntOpenHashMap;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Counts of the candidate itemsets, as a mapping (elem1, elem2) -> count. <br/>
+ * For F2 both elements are frequent item ranks, for Fk elem1 is a frequent item rank and elem2 is a (k-1)-FI rank.
+ * <pre>
+ * The counts could be held in one of the following layouts:
+ * - DENSE:      a row of totalElems2 counters per elem1, for Fk candidates
+ * - TRIANGULAR: only the upper triangle (elem1 &lt; elem2) of the F2 matrix, packed row by row,
+ *               half the size of the dense matrix
+ * - SPARSE:     a hash map per elem1 holding only the counted pairs, for F2 on a large F1,
+ *               where even the triangle is too large to allocate per partition
+ * - CANDIDATES: a counter per known candidate, the candidates of each elem1 as sorted elem2's,
+ *               for sparse Fk candidates, see {@link NextSizeItemsetGenHelper.CountingEngine#TRIE},
+ *               and for the F2 candidates left by DHP, see {@link DhpPairBuckets.Filter#toCandidatePairsOrNull}
+ * </pre>
+ * The rows of the DENSE, TRIANGULAR and CANDIDATES layouts start with byte counters and get wider only on overflow,
+ * see {@link AdaptiveCounters}. <br/>
+ * The F2 layout is chosen automatically by the F1 size, see {@link #newPairCounts(int)}. <br/>
+ * The object holds the counts of the elem1 rows in [firstElem1, endElem1): a partition counts all the rows,
+ * and then splits them into row blocks, see {@link #toBlocks(int[])}, so that the blocks could be merged in parallel.
+ */
+abstract class CandCounts implements Serializable {
+    /**
+     * The max number of cells of the triangular F2 layout, 32M-128M per partition, depending on the counter width. <br/>
+     * F1 of 8K items fits, for larger F1 the sparse layout is used.
+     */
+    static final long MAX_TRIANGULAR_CELLS = 1L << 25;
+
+    enum Layout {DENSE, TRIANGULAR, SPARSE, CANDIDATES}
+
+    final int totalElems1;
+    final int totalElems2;
+    final int firstElem1;
+    final int endElem1;
+
+    static CandCounts newPairCounts(int totalFreqItems) {
+        return newCounts(choosePairsLayout(totalFreqItems), totalFreqItems, totalFreqItems);
+    }
+
+    static Layout choosePairsLayout(int totalFreqItems) {
+        return (Triangular.totalCells(totalFreqItems) <= MAX_TRIANGULAR_CELLS) ? Layout.TRIANGULAR : Layout.SPARSE;
+    }
+
+    static CandCounts newCounts(Layout layout, int totalElems1, int totalElems2) {
+        switch (layout) {
+            case DENSE:
+                return new Dense(totalElems1, totalElems2);
+            case TRIANGULAR:
+                if (totalElems1 != totalElems2) {
+                    throw new IllegalArgumentException(String.format(
+                            "Triangular layout requires a square matrix, got %sx%s", totalElems1, totalElems2));
+                }
+                return new Triangular(totalElems1);
+            case SPARSE:
+                return new Sparse(totalElems1, totalElems2);
+            case CANDIDATES:
+                throw new IllegalArgumentException("Candidate counts require the candidates, see newCandidateCounts()");
+            default:
+                throw new IllegalArgumentException("Unsupported layout " + layout);
+        }
+    }
+
+    /**
+     * @param elem1ToSortedElems2 the candidates (elem1, elem2) as sorted elem2's per elem1
+     */
+    static CandCounts newCandidateCounts(int[][] elem1ToSortedElems2, int totalElems2) {
+        return new Candidates(elem1ToSortedElems2, totalElems2);
+    }
+
+    /**
+     * Splits the elem1 rows into about 'numBlocks' blocks of about the same number of cells. <br/>
+     * The rows of the pair counts get shorter as elem1 grows, so the later blocks hold more rows.
+     *
+     * @return the first elem1 of each block, ascending, the first one is 0
+     */
+    static int[] toBlockStarts(Layout layout, int totalElems1, int totalElems2, int numBlocks) {
+        if (layout == Layout.DENSE) {
+            return toBlockStarts(totalElems1, elem1 -> totalElems2, numBlocks);
+        }
+        return toBlockStarts(totalElems1, elem1 -> totalElems1 - 1 - elem1, numBlocks);
+    }
+
+    /**
+     * Same as {@link #toBlockStarts(Layout, int, int, int)}, but for the CANDIDATES layout
+     */
+    static int[] toBlockStarts(int[][] elem1ToSortedElems2, int numBlocks) {
+        return toBlockStarts(elem1ToSortedElems2.length, elem1 -> elem1ToSortedElems2[elem1].length, numBlocks);
+    }
+
+    private static int[] toBlockStarts(int totalElems1, IntToLongFunction elem1ToCells, int numBlocks) {
+        numBlocks = Math.max(1, Math.min(numBlocks, totalElems1));
+        long totalCells = 0;
+        for (int elem1 = 0; elem1 < totalElems1; ++elem1) {
+            totalCells += elem1ToCells.applyAsLong(elem1);
+        }
+        final double cellsPerBlock = Math.max(1.0, 1.0 * totalCells / numBlocks);
+
+        List<Integer> res = new ArrayList<>(numBlocks);
+        res.add(0);
+        long cellsBefore = 0;
+        for (int elem1 = 0; elem1 < totalElems1; ++elem1) {
+            int blockInd = (int) (cellsBefore / cellsPerBlock);
+            if (blockInd >= res.size() && res.size() < numBlocks) {
+                res.add(elem1);
+            }
+            cellsBefore += elem1ToCells.applyAsLong(elem1);
+        }
+        return res.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private CandCounts(int totalElems1, int totalElems2, int firstElem1, int endElem1) {
+        this.totalElems1 = totalElems1;
+        this.totalElems2 = totalElems2;
+        this.firstElem1 = firstElem1;
+        this.endElem1 = endElem1;
+    }
+
+    abstract Layout getLayout();
+
+    /**
+     * Adds the weight to the counts of (elem1, sortedElems2[ii]) for ii in [fromInd, toInd). <br/>
+     * The triangular layout requires each elem2 to be larger than elem1.
+     */
+    abstract void addAll(int elem1, int[] sortedElems2, int fromInd, int toInd, int weight);
+
+    abstract int get(int elem1, int elem2);
+
+    /**
+     * Adds the other counts to this object, both should have the same layout and hold the same rows
+     *
+     * @return this object
+     */
+    CandCounts mergeWith(CandCounts other) {
+        if (getLayout() != other.getLayout() || totalElems1 != other.totalElems1 ||
+                totalElems2 != other.totalElems2 || firstElem1 != other.firstElem1 || endElem1 != other.endElem1) {
+            throw new IllegalArgumentException(String.format("Can't merge %s counts into %s counts", other, this));
+        }
+        mergeSameLayout(other);
+        return this;
+    }
+
+    abstract void mergeSameLayout(CandCounts other);
+
+    /**
+     * @param blockStarts see {@link #toBlockStarts}
+     * @return (block index, the counts of its rows) per block. <br/>
+     * The blocks may share the rows with this object, so it should not be used afterwards.
+     */
+    List<Tuple2<Integer, CandCounts>> toBlocks(int[] blockStarts) {
+        return toBlocks(blockStarts, 0);
+    }
+
+    /**
+     * Same as {@link #toBlocks(int[])}, but the block indexes start from 'firstBlockInd', so that the blocks of
+     * several counts could be merged together
+     */
+    List<Tuple2<Integer, CandCounts>> toBlocks(int[] blockStarts, int firstBlockInd) {
+        List<Tuple2<Integer, CandCounts>> res = new ArrayList<>(blockStarts.length);
+        for (int blockInd = 0; blockInd < blockStarts.length; ++blockInd) {
+            int blockEnd = (blockInd + 1 < blockStarts.length) ? blockStarts[blockInd + 1] : totalElems1;
+            res.add(new Tuple2<>(firstBlockInd + blockInd, subBlock(blockStarts[blockInd], blockEnd)));
+        }
+        return res;
+    }
+
+    /**
+     * @return the counts of the rows [fromElem1, toElem1), possibly sharing the rows with this object
+     */
+    abstract CandCounts subBlock(int fromElem1, int toElem1);
+
+    /**
+     * @return col[0]=elem1, the rest is: col[elem2 + 1] = count. <br/>
+     * The trailing zero counts are omitted, so an elem1 without any counts gets a single-element column.
+     */
+    int[] toCol(int elem1) {
+        int[] res = new int[1 + totalElems2];
+        res[0] = elem1;
+        int resSize = 1;
+        for (int elem2 = 0; elem2 < totalElems2; ++elem2) {
+            int count = get(elem1, elem2);
+            if (count != 0) {
+                res[elem2 + 1] = count;
+                resSize = elem2 + 2;
+            }
+        }
+        return (resSize == res.length) ? res : Arrays.copyOf(res, resSize);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %sx%s rows [%s, %s)", getLayout(), totalElems1, totalElems2, firstElem1, endElem1);
+    }
+
+    /**
+     * A row of counters per elem1, see {@link AdaptiveCounters}: <br/>
+     * row[elem2] = count
+     */
+    static class Dense extends CandCounts {
+        final AdaptiveCounters[] rows;
+
+        private Dense(int totalElems1, int totalElems2) {
+            this(totalElems1, totalElems2, 0, totalElems1, new AdaptiveCounters[totalElems1]);
+            for (int elem1 = 0; elem1 < totalElems1; ++elem1) {
+                rows[elem1] = new AdaptiveCounters(totalElems2);
+            }
+        }
+
+        private Dense(int totalElems1, int totalElems2, int firstElem1, int endElem1, AdaptiveCounters[] rows) {
+            super(totalElems1, totalElems2, firstElem1, endElem1);
+            this.rows = rows;
+        }
+
+        @Override
+        Layout getLayout() {
+            return Layout.DENSE;
+        }
+
+        /**
+         * @return the elem2 counted at the start of the row
+         */
+        int firstElem2(int elem1) {
+            return 0;
+        }
+
+        @Override
+        void addAll(int elem1, int[] sortedElems2, int fromInd, int toInd, int weight) {
+            rows[elem1 - firstElem1].addAll(sortedElems2, fromInd, toInd, firstElem2(elem1), weight);
+        }
+
+        @Override
+        int get(int elem1, int elem2) {
+            final int ind = elem2 - firstElem2(elem1);
+            return (ind >= 0) ? rows[elem1 - firstElem1].get(ind) : 0;
+        }
+
+        @Override
+        void mergeSameLayout(CandCounts other) {
+            AdaptiveCounters[] otherRows = ((Dense) other).rows;
+            for (int ii = 0; ii < rows.length; ++ii) {
+                rows[ii].addAll(otherRows[ii]);
+            }
+        }
+
+        @Override
+        CandCounts subBlock(int fromElem1, int toElem1) {
+            AdaptiveCounters[] resRows = Arrays.copyOfRange(rows, fromElem1 - firstElem1, toElem1 - firstElem1);
+            return new Dense(totalElems1, totalElems2, fromElem1, toElem1, resRows);
+        }
+
+        @Override
+        int[] toCol(int elem1) {
+            AdaptiveCounters row = rows[elem1 - firstElem1];
+            int lastInd = row.size() - 1;
+            while (lastInd >= 0 && row.get(lastInd) == 0) {
+                --lastInd;
+            }
+
+            final int rowFirstElem2 = firstElem2(elem1);
+            int[] res = new int[(lastInd >= 0) ? rowFirstElem2 + lastInd + 2 : 1];
+            res[0] = elem1;
+            for (int ind = 0; ind <= lastInd; ++ind) {
+                res[rowFirstElem2 + ind + 1] = row.get(ind);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * The pairs (elem1, elem2) with elem1 &lt; elem2, i.e. the row of elem1 holds the counts of
+     * (elem1, elem1 + 1), ..., (elem1, n - 1)
+     */
+    static class Triangular extends Dense {
+        private Triangular(int totalElems) {
+            this(totalElems, 0, totalElems, new AdaptiveCounters[totalElems]);
+            for (int elem1 = 0; elem1 < totalElems; ++elem1) {
+                rows[elem1] = new AdaptiveCounters(totalElems - 1 - elem1);
+            }
+        }
+
+        private Triangular(int totalElems, int firstElem1, int endElem1, AdaptiveCounters[] rows) {
+            super(totalElems, totalElems, firstElem1, endElem1, rows);
+        }
+
+        static long totalCells(int totalElems) {
+            return (long) totalElems * (totalElems - 1) / 2;
+        }
+
+        @Override
+        Layout getLayout() {
+            return Layout.TRIANGULAR;
+        }
+
+        @Override
+        int firstElem2(int elem1) {
+            return elem1 + 1;
+        }
+
+        @Override
+        CandCounts subBlock(int fromElem1, int toElem1) {
+            AdaptiveCounters[] resRows = Arrays.copyOfRange(rows, fromElem1 - firstElem1, toElem1 - firstElem1);
+            return new Triangular(totalElems1, fromElem1, toElem1, resRows);
+        }
+    }
+
+    /**
+     * A hash map per elem1, allocated on its first count
+     */
+    static class Sparse extends CandCounts {
+        private static final int ROW_EXPECTED_SIZE = 16;
+        private final IntIntOpenHashMap[] rows;
+
+        private Sparse(int totalElems1, int totalElems2) {
+            this(totalElems1, totalElems2, 0, totalElems1, new IntIntOpenHashMap[totalElems1]);
+        }
+
+        private Sparse(int totalElems1, int totalElems2, int firstElem1, int endElem1, IntIntOpenHashMap[] rows) {
+            super(totalElems1, totalElems2, firstElem1, endElem1);
+            this.rows = rows;
+        }
+
+        @Override
+        Layout getLayout() {
+            return Layout.SPARSE;
+        }
+
+        @Override
+        void addAll(int elem1, int[] sortedElems2, int fromInd, int toInd, int weight) {
+            if (fromInd >= toInd) {
+                return;
+            }
+            final int rowInd = elem1 - firstElem1;
+            IntIntOpenHashMap row = rows[rowInd];
+            if (row == null) {
+                row = rows[rowInd] = new IntIntOpenHashMap(Math.max(ROW_EXPECTED_SIZE, toInd - fromInd));
+            }
+            for (int ii = fromInd; ii < toInd; ++ii) {
+                row.addTo(sortedElems2[ii], weight);
+            }
+        }
+
+        @Override
+        int get(int elem1, int elem2) {
+            IntIntOpenHashMap row = rows[elem1 - firstElem1];
+            return (row != null) ? row.get(elem2) : 0;
+        }
+
+        @Override
+        void mergeSameLayout(CandCounts other) {
+            IntIntOpenHashMap[] otherRows = ((Sparse) other).rows;
+            for (int ii = 0; ii < rows.length; ++ii) {
+                if (otherRows[ii] == null) {
+                    continue;
+                }
+                if (rows[ii] == null) {
+                    rows[ii] = otherRows[ii];
+                } else {
+                    rows[ii].addAll(otherRows[ii]);
+                }
+            }
+        }
+
+        @Override
+        CandCounts subBlock(int fromElem1, int toElem1) {
+            IntIntOpenHashMap[] resRows = Arrays.copyOfRange(rows, fromElem1 - firstElem1, toElem1 - firstElem1);
+            return new Sparse(totalElems1, totalElems2, fromElem1, toElem1, resRows);
+        }
+
+        @Override
+        int[] toCol(int elem1) {
+            IntIntOpenHashMap row = rows[elem1 - firstElem1];
+            if (row == null) {
+                return new int[]{elem1};
+            }
+
+            int[] maxElem2 = {-1};
+            row.forEach((elem2, count) -> {
+                if (count != 0) {
+                    maxElem2[0] = Math.max(maxElem2[0], elem2);
+                }
+            });
+            int[] res = new int[maxElem2[0] + 2];
+            res[0] = elem1;
+            row.forEach((elem2, count) -> {
+                if (elem2 <= maxElem2[0]) {
+                    res[elem2 + 1] = count;
+                }
+            });
+            return res;
+        }
+    }
+
+    /**
+     * A counter per candidate: the row of elem1 holds the counts of (elem1, elem1ToSortedElems2[elem1][ind]). <br/>
+     * The candidates are shared by all the blocks and are not serialized with them, so that only the counters
+     * are shuffled. Once shuffled, a block should get the candidates back, see {@link #restoreCandidates}.
+     */
+    static class Candidates extends CandCounts {
+        private transient int[][] elem1ToSortedElems2;
+        private final AdaptiveCounters[] rows;
+        //reusable buffer of the row indexes to count:
+        private transient int[] indsBuf;
+        //the index to look the candidates up by, built on the first lookup:
+        private transient long[] candsBs;
+        private transient int[] wordToCandsBefore;
+        private transient int wordsPerRow;
+
+        private Candidates(int[][] elem1ToSortedElems2, int totalElems2) {
+            this(elem1ToSortedElems2.length, totalElems2, 0, elem1ToSortedElems2.length,
+                    elem1ToSortedElems2, new AdaptiveCounters[elem1ToSortedElems2.length]);
+            for (int elem1 = 0; elem1 < totalElems1; ++elem1) {
+                rows[elem1] = new AdaptiveCounters(elem1ToSortedElems2[elem1].length);
+            }
+        }
+
+        private Candidates(int totalElems1, int totalElems2, int firstElem1, int endElem1,
+                           int[][] elem1ToSortedElems2, AdaptiveCounters[] rows) {
+            super(totalElems1, totalElems2, firstElem1, endElem1);
+            this.elem1ToSortedElems2 = elem1ToSortedElems2;
+            this.rows = rows;
+        }
+
+        /**
+         * @param elem1ToSortedElems2 all the candidates, the same ones the counts have been created with
+         */
+        void restoreCandidates(int[][] elem1ToSortedElems2) {
+            if (elem1ToSortedElems2.length != totalElems1) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected candidates of %s elem1's, got %s", totalElems1, elem1ToSortedElems2.length));
+            }
+            this.elem1ToSortedElems2 = elem1ToSortedElems2;
+            candsBs = null;
+            wordToCandsBefore = null;
+        }
+
+        @Override
+        Layout getLayout() {
+            return Layout.CANDIDATES;
+        }
+
+        /**
+         * Adds the weight to the counts of the candidates (elem1, elem2) whose elem2 is in the set,
+         * see {@link FkRankSet}. <br/>
+         * I.e. walks elem1's candidates rather than the set's elements.
+         */
+        void addAllIn(int elem1, long[] elems2Set, int weight) {
+            final int rowInd = elem1 - firstElem1;
+            int[] sortedElems2 = elem1ToSortedElems2[elem1];
+            if (indsBuf == null || indsBuf.length < sortedElems2.length) {
+                indsBuf = new int[Math.max(sortedElems2.length, 2 * (indsBuf != null ? indsBuf.length : 8))];
+            }
+
+            int indsCnt = 0;
+            for (int ind = 0; ind < sortedElems2.length; ++ind) {
+                if (FkRankSet.contains(elems2Set, sortedElems2[ind])) {
+                    indsBuf[indsCnt++] = ind;
+                }
+            }
+            rows[rowInd].addAll(indsBuf, 0, indsCnt, 0, weight);
+        }
+
+        /**
+         * Same as {@link #addAll}, but skips the pairs that are not candidates. <br/>
+         * Looks the pairs up in a bit set of the candidates, with the number of the candidates before each word of
+         * the set, so that the index of a candidate in its row is a single bit count, see {@link #buildCandsIndex()}.
+         */
+        void addAllCandidates(int elem1, int[] sortedElems2, int fromInd, int toInd, int weight) {
+            if (candsBs == null) {
+                buildCandsIndex();
+            }
+            if (indsBuf == null || indsBuf.length < toInd - fromInd) {
+                indsBuf = new int[Math.max(toInd - fromInd, 2 * (indsBuf != null ? indsBuf.length : 8))];
+            }
+
+            final int rowFirstWord = (elem1 - firstElem1) * wordsPerRow;
+            int indsCnt = 0;
+            for (int ii = fromInd; ii < toInd; ++ii) {
+                final int elem2 = sortedElems2[ii];
+                final int wordInd = rowFirstWord + (elem2 >>> 6);
+                final long word = candsBs[wordInd];
+                final long bit = 1L << elem2;
+                if ((word & bit) != 0) {
+                    indsBuf[indsCnt++] = wordToCandsBefore[wordInd] + Long.bitCount(word & (bit - 1));
+                }
+            }
+            rows[elem1 - firstElem1].addAll(indsBuf, 0, indsCnt, 0, weight);
+        }
+
+        /**
+         * A row of bits per elem1, starting at a word of its own
+         */
+        private void buildCandsIndex() {
+            wordsPerRow = (totalElems2 + 63) >>> 6;
+            candsBs = new long[(endElem1 - firstElem1) * wordsPerRow];
+            wordToCandsBefore = new int[candsBs.length];
+            for (int elem1 = firstElem1; elem1 < endElem1; ++elem1) {
+                final int rowFirstWord = (elem1 - firstElem1) * wordsPerRow;
+                for (int elem2 : elem1ToSortedElems2[elem1]) {
+                    candsBs[rowFirstWord + (elem2 >>> 6)] |= 1L << elem2;
+                }
+                int candsBefore = 0;
+                for (int wordInd = rowFirstWord; wordInd < rowFirstWord + wordsPerRow; ++wordInd) {
+                    wordToCandsBefore[wordInd] = candsBefore;
+                    candsBefore += Long.bitCount(candsBs[wordInd]);
+                }
+            }
+        }
+
+        @Override
+        void addAll(int elem1, int[] sortedElems2, int fromInd, int toInd, int weight) {
+            final int rowInd = elem1 - firstElem1;
+            for (int ii = fromInd; ii < toInd; ++ii) {
+                int ind = Arrays.binarySearch(elem1ToSortedElems2[elem1], sortedElems2[ii]);
+                if (ind < 0) {
+                    throw new IllegalArgumentException(
+                            String.format("(%s, %s) is not a candidate", elem1, sortedElems2[ii]));
+                }
+                rows[rowInd].add(ind, weight);
+            }
+        }
+
+        @Override
+        int get(int elem1, int elem2) {
+            int ind = Arrays.binarySearch(elem1ToSortedElems2[elem1], elem2);
+            return (ind >= 0) ? rows[elem1 - firstElem1].get(ind) : 0;
+        }
+
+        @Override
+        void mergeSameLayout(CandCounts other) {
+            AdaptiveCounters[] otherRows = ((Candidates) other).rows;
+            for (int ii = 0; ii < rows.length; ++ii) {
+                rows[ii].addAll(otherRows[ii]);
+            }
+        }
+
+        @Override
+        CandCounts subBlock(int fromElem1, int toElem1) {
+            AdaptiveCounters[] resRows = Arrays.copyOfRange(rows, fromElem1 - firstElem1, toElem1 - firstElem1);
+            return new Candidates(totalElems1, totalElems2, fromElem1, toElem1, elem1ToSortedElems2, resRows);
+        }
+
+        @Override
+        int[] toCol(int elem1) {
+            int[] sortedElems2 = elem1ToSortedElems2[elem1];
+            AdaptiveCounters row = rows[elem1 - firstElem1];
+            int lastInd = sortedElems2.length - 1;
+            while (lastInd >= 0 && row.get(lastInd) == 0) {
+                --lastInd;
+            }
+
+            int[] res = new int[(lastInd >= 0) ? sortedElems2[lastInd] + 2 : 1];
+            res[0] = elem1;
+            for (int ind = 0; ind <= lastInd; ++ind) {
+                res[sortedElems2[ind] + 1] = row.get(ind);
+            }
+            return res;
+        }
+    }
+}
@@ -10,7 +10,6 @@ import java.util.*;
  */
 public class CurrSizeFiRanks implements Serializable {
     private final PairRanks currSizeRanks;
-    private final long[][] currSizeFisR1ToRkm1;
 
     /**
      * @param fkAsPairs      list of triplets (elem1, elem2, frequency)
@@ -28,10 +27,8 @@ public class CurrSizeFiRanks implements Serializable {
         List<int[]> sortedFk = getSortedByDecreasingFreq(fkAsPairs);
         //enumerate the k-FIs, i.e. give them integer ranks:
         PairRanks fkRanks = PairRanks.construct(sortedFk, totalFreqItems, totalFkm1);
-        //construct a bit set per item: bs[r<k-1>]=1 <=> rankK exists as a pair (item, r<k-1>):
-        long[][] currSizeFisR1ToRkm1 = fkRanks.constructElem1ToElem2BitSet();
 
-        return new CurrSizeFiRanks(fkRanks, currSizeFisR1ToRkm1);
+        return new CurrSizeFiRanks(fkRanks);
     }
 
     int[] getCurrSizeFiAsPairByRank(int rank) {
@@ -54,19 +51,26 @@ public class CurrSizeFiRanks implements Serializable {
      * See {@link #construct} for definition of rank1 and rankKm1 (elem1 and elem2)
      */
     int getCurrSizeFiRankByPair(int rank1, int rankKm1) {
-        return currSizeRanks.pairToRank[rank1][rankKm1];
+        return currSizeRanks.getRankByPair(rank1, rankKm1);
     }
 
-    public TidsGenHelper constructTidGenHelper(List<int[]> fk, int totalTids) {
-        return TidsGenHelper.construct(fk, currSizeRanks, totalTids);
+    public TidsGenHelper constructTidGenHelper(List<int[]> fk, int totalTids, int[] tidToWeight) {
+        return TidsGenHelper.construct(fk, currSizeRanks, totalTids, tidToWeight);
     }
 
-    long[] getPrevRanksForCurrSizeFisAsBitSet(int item) {
-        return currSizeFisR1ToRkm1[item];
+    /**
+     * @return the number of the current-size FIs (item, rankKm1) of the item
+     */
+    int getTotalCurrSizeFisOfItem(int item) {
+        return currSizeRanks.totalPairsOfElem1(item);
     }
 
-    int[] getPrevSizeRankToCurrSizeRank(int item) {
-        return currSizeRanks.getElem2ToRank(item);
+    /**
+     * Adds the ranks of the current-size FIs (item, rankKm1) for the sorted rankKm1s at [from, to),
+     * see {@link PairRanks#addRanksByPairs}
+     */
+    int addCurrSizeRanksByPairs(int item, int[] sortedRankKm1s, int from, int to, int[] resBuf, int resCnt) {
+        return currSizeRanks.addRanksByPairs(item, sortedRankKm1s, from, to, resBuf, resCnt);
     }
 
     private static List<int[]> getSortedByDecreasingFreq(List<int[]> currSizeFisAsPairs) {
@@ -75,8 +79,7 @@ public class CurrSizeFiRanks implements Serializable {
         return res;
     }
 
-    private CurrSizeFiRanks(PairRanks currSizeRanks, long[][] currSizeFisR1ToRkm1) {
+    private CurrSizeFiRanks(PairRanks currSizeRanks) {
         this.currSizeRanks = currSizeRanks;
-        this.currSizeFisR1ToRkm1 = currSizeFisR1ToRkm1;
     }
 }
\ No newline at end of file
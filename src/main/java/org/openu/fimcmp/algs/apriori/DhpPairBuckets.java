@@ -0,0 +1,152 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.openu.fimcmp.util.BitArrays;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Direct Hashing and Pruning (DHP) of the F2 candidates: <br/>
+ * <pre>
+ * While counting the items (the F1 pass), every pair of items of every transaction is also counted in a fixed-size
+ * array of hash buckets. The count of a bucket is at least the support of any pair hashed to it,
+ * so a pair whose bucket has not reached the min support could not be frequent, see {@link Filter}.
+ * </pre>
+ * The items are identified by their int hashes, e.g. String.hashCode() or the item id, and a pair is hashed
+ * regardless of the order of its items, since the items are ordered differently in the F1 and the F2 passes. <br/>
+ * The bucket counts saturate at Integer.MAX_VALUE rather than wrap around, and a saturated bucket is always frequent.
+ * <br/>
+ * Pays off on sparse (e.g. retail-like) data, where most of the pairs of the frequent items are infrequent:
+ * then only the surviving pairs are counted, see {@link Filter#toCandidatePairsOrNull(int)}. <br/>
+ * Costs an extra hash per pair of each transaction in the F1 pass and a hash per pair of the frequent items
+ * on the driver, and saves nothing if most of the pairs survive.
+ */
+public class DhpPairBuckets implements Serializable {
+    private final int[] bucketToCount;
+
+    public DhpPairBuckets(int numBuckets) {
+        if (numBuckets <= 0) {
+            throw new IllegalArgumentException("Number of DHP buckets should be positive, got " + numBuckets);
+        }
+        this.bucketToCount = new int[numBuckets];
+    }
+
+    /**
+     * Counts all the pairs of the transaction's items, given as itemHashes[0, size)
+     */
+    public void addPairs(int[] itemHashes, int size) {
+        final int numBuckets = bucketToCount.length;
+        for (int ii = 0; ii < size - 1; ++ii) {
+            final int hash1 = itemHashes[ii];
+            for (int jj = ii + 1; jj < size; ++jj) {
+                final int bucket = bucket(hash1, itemHashes[jj], numBuckets);
+                if (bucketToCount[bucket] != Integer.MAX_VALUE) {
+                    ++bucketToCount[bucket];
+                }
+            }
+        }
+    }
+
+    public DhpPairBuckets merge(DhpPairBuckets other) {
+        if (bucketToCount.length != other.bucketToCount.length) {
+            throw new IllegalArgumentException(String.format("Can't merge %s DHP buckets with %s ones",
+                    bucketToCount.length, other.bucketToCount.length));
+        }
+        for (int ii = 0; ii < bucketToCount.length; ++ii) {
+            bucketToCount[ii] = (int) Math.min(Integer.MAX_VALUE, (long) bucketToCount[ii] + other.bucketToCount[ii]);
+        }
+        return this;
+    }
+
+    public int totalBuckets() {
+        return bucketToCount.length;
+    }
+
+    /**
+     * @param rankToItemHash the hash of each frequent item, the same one the buckets have been counted with
+     */
+    public Filter toFilter(long minSuppCnt, int[] rankToItemHash) {
+        long[] freqBucketsBs = new long[BitArrays.requiredSize(bucketToCount.length, 0)];
+        for (int bucket = 0; bucket < bucketToCount.length; ++bucket) {
+            if (bucketToCount[bucket] >= minSuppCnt || bucketToCount[bucket] == Integer.MAX_VALUE) {
+                BitArrays.set(freqBucketsBs, 0, bucket);
+            }
+        }
+        return new Filter(bucketToCount.length, freqBucketsBs, rankToItemHash);
+    }
+
+    static int bucket(int itemHash1, int itemHash2, int numBuckets) {
+        long lo = Math.min(itemHash1, itemHash2);
+        long hi = Math.max(itemHash1, itemHash2);
+        long hash = (lo * 0x9E3779B97F4A7C15L) ^ hi;
+        hash ^= (hash >>> 33);
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= (hash >>> 33);
+        return (int) ((hash & Long.MAX_VALUE) % numBuckets);
+    }
+
+    /**
+     * The frequent buckets, to tell whether a pair of frequent item ranks is an F2 candidate
+     */
+    public static class Filter implements Serializable {
+        private static final int MIN_PRUNED_TO_CAND_RATIO = 4;
+
+        private final int numBuckets;
+        private final long[] freqBucketsBs;
+        private final int[] rankToItemHash;
+
+        private Filter(int numBuckets, long[] freqBucketsBs, int[] rankToItemHash) {
+            this.numBuckets = numBuckets;
+            this.freqBucketsBs = freqBucketsBs;
+            this.rankToItemHash = rankToItemHash;
+        }
+
+        /**
+         * Checks all the pairs of the frequent items on the driver, so that the executors count only the candidates,
+         * see {@link CandCounts#newCandidateCounts}. <br/>
+         * A candidate costs more than a cell of the pairs layout (the candidate itself and a binary search),
+         * so the candidates are worth counting only if most of the pairs are pruned.
+         *
+         * @return the candidate pairs as sorted rank2's per rank1, rank1 &lt; rank2. <br/>
+         * Null if more than 1/{@value #MIN_PRUNED_TO_CAND_RATIO} of the pairs are candidates, or if the candidates
+         * are too many to broadcast, see {@link CandCounts#MAX_TRIANGULAR_CELLS}: then all the pairs should be counted.
+         */
+        public int[][] toCandidatePairsOrNull(int totalFreqItems) {
+            final long maxCands =
+                    Math.min(CandCounts.Triangular.totalCells(totalFreqItems), CandCounts.MAX_TRIANGULAR_CELLS) /
+                            MIN_PRUNED_TO_CAND_RATIO;
+            int[][] res = new int[totalFreqItems][];
+            int[] rank2Buf = new int[totalFreqItems];
+            long totalCands = 0;
+            for (int rank1 = 0; rank1 < totalFreqItems; ++rank1) {
+                int rank2Cnt = 0;
+                for (int rank2 = rank1 + 1; rank2 < totalFreqItems; ++rank2) {
+                    if (isCandidate(rank1, rank2)) {
+                        rank2Buf[rank2Cnt++] = rank2;
+                    }
+                }
+                totalCands += rank2Cnt;
+                if (totalCands > maxCands) {
+                    return null;
+                }
+                res[rank1] = Arrays.copyOf(rank2Buf, rank2Cnt);
+            }
+            return res;
+        }
+
+        /**
+         * @return false if the pair is surely infrequent
+         */
+        boolean isCandidate(int rank1, int rank2) {
+            return BitArrays.get(freqBucketsBs, 0, bucket(rankToItemHash[rank1], rankToItemHash[rank2], numBuckets));
+        }
+
+        public int totalFreqBuckets() {
+            return BitArrays.cardinality(freqBucketsBs, 0);
+        }
+
+        public int totalBuckets() {
+            return numBuckets;
+        }
+    }
+}
@@ -1,24 +1,28 @@
 package org.openu.fimcmp.algs.apriori;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.openu.fimcmp.util.Assert;
 
 import java.io.Serializable;
 import java.util.*;
 
 /**
- * Map any FI rank to and from the actual itemset (i.e. list of items)
+ * Map any FI rank to and from the actual itemset (i.e. list of items) <br/>
+ * The rank -> itemset direction is served from flat per-size tables,
+ * each built once from the previous size's table when the mapper of its size is added, see {@link #toNextSize}. <br/>
  */
 public class FiRanksToFromItems implements Serializable {
     private final ArrayList<CurrSizeFiRanks> fiRanksKto2;
+    //aligned with 'fiRanksKto2': the items of the k-FI rank r are at [r*k, (r+1)*k) of the k's table:
+    private final ArrayList<int[]> itemsetTablesKto2;
     private final int maxK;
 
     public FiRanksToFromItems(CurrSizeFiRanks... fiRanksKto2) {
-        this(Arrays.asList(fiRanksKto2));
+        this(Arrays.asList(fiRanksKto2), constructItemsetTables(Arrays.asList(fiRanksKto2)));
     }
 
-    private FiRanksToFromItems(List<CurrSizeFiRanks> fiRanksKto2) {
+    private FiRanksToFromItems(List<CurrSizeFiRanks> fiRanksKto2, List<int[]> itemsetTablesKto2) {
         this.fiRanksKto2 = new ArrayList<>(fiRanksKto2);
+        this.itemsetTablesKto2 = new ArrayList<>(itemsetTablesKto2);
         this.maxK = 1 + fiRanksKto2.size(); //rank mappers start from 2, but k starts from 1
     }
 
@@ -26,13 +30,26 @@ public class FiRanksToFromItems implements Serializable {
         List<CurrSizeFiRanks> newFiRanksList = new ArrayList<>(1 + fiRanksKto2.size());
         newFiRanksList.add(nextSizeFiRanks);
         newFiRanksList.addAll(fiRanksKto2);
-        return new FiRanksToFromItems(newFiRanksList);
+
+        List<int[]> newItemsetTables = new ArrayList<>(1 + itemsetTablesKto2.size());
+        int[] maxKItemsetTable = itemsetTablesKto2.isEmpty() ? null : itemsetTablesKto2.get(0);
+        newItemsetTables.add(constructItemsetTable(nextSizeFiRanks, maxKItemsetTable, maxK));
+        newItemsetTables.addAll(itemsetTablesKto2);
+        return new FiRanksToFromItems(newFiRanksList, newItemsetTables);
     }
 
     int getMaxK() {
         return maxK;
     }
 
+    /**
+     * @return the ranks of the maxK-FIs, as pairs (item, (maxK-1)-FI rank)
+     */
+    CurrSizeFiRanks getMaxKFiRanks() {
+        Assert.isTrue(maxK >= 2);
+        return fiRanksKto2.get(0);
+    }
+
     public List<List<String>> toOrigItemsetsForDebug(List<long[]> tidMergeSets, int k, String[] r1ToItem, int maxItemsets) {
         maxItemsets = Math.min(maxItemsets, tidMergeSets.size());
         List<List<String>> res = new ArrayList<>(maxItemsets+1);
@@ -119,22 +136,29 @@ public class FiRanksToFromItems implements Serializable {
     }
 
     int[] getItemsetByRank(int rankK, int k) {
-        Assert.isTrue(k <= maxK && k >= 1);
-
-        List<Integer> res = new ArrayList<>(k);
-        int currRank = rankK;
-        Iterator<CurrSizeFiRanks> fiRanksIt = fiRanksKto2.listIterator(maxK - k);
-        while (fiRanksIt.hasNext()) {
-            CurrSizeFiRanks fiRanks = fiRanksIt.next();
-            int[] pair = fiRanks.getCurrSizeFiAsPairByRank(currRank);
-            //pair matching rankK = (item, rank<i-1>):
-            res.add(pair[0]);
-            currRank = pair[1]; //(i-1)-FI rank
+        int[] res = new int[k];
+        copyItemsetByRank(rankK, k, res, 0);
+        return res;
+    }
+
+    /**
+     * Same as {@link #getItemsetByRank}, but writes the items to 'dest' starting from 'destPos'
+     */
+    void copyItemsetByRank(int rankK, int k, int[] dest, int destPos) {
+        if (k == 1) {
+            dest[destPos] = rankK; //1-FI rank is the item itself
+        } else {
+            System.arraycopy(getItemsetTable(k), rankK * k, dest, destPos, k);
         }
-        res.add(currRank); //should be an item
+    }
 
-        Assert.isTrue(res.size() == k);
-        return ArrayUtils.toPrimitive(res.toArray(new Integer[k]));
+    /**
+     * @return the flat table of all the k-FIs: the items of rank r are at [r*k, (r+1)*k). <br/>
+     * Shared, should not be modified.
+     */
+    int[] getItemsetTable(int k) {
+        Assert.isTrue(k <= maxK && k > 1);
+        return itemsetTablesKto2.get(maxK - k);
     }
 
     public PairRanks constructRkToRkm1AndR1ForMaxK() {
@@ -147,9 +171,9 @@ public class FiRanksToFromItems implements Serializable {
         final CurrSizeFiRanks fiRanksK = fiRanksKto2.get(maxK - k);
         final int totalRanksK = fiRanksK.getTotalCurrSizeRanks();
         int[][] rkToRkm1AndR1 = new int[totalRanksK][];
+        int[] itemsetK = new int[k];
         for (int rankK=0; rankK < totalRanksK; ++rankK) {
-            int[] itemsetK = getItemsetByRank(rankK, k);
-            Assert.isTrue(itemsetK.length == k);
+            copyItemsetByRank(rankK, k, itemsetK, 0);
             int rKm1 = getRankByItemsetIfExists(itemsetK, itemsetK.length - 1);
             Assert.isTrue(rKm1 >= 0);
             int r1 = itemsetK[itemsetK.length - 1];
@@ -161,6 +185,40 @@ public class FiRanksToFromItems implements Serializable {
         return PairRanks.constructByRankToPair(rkToRkm1AndR1, totalRkm1s, totalR1s);
     }
 
+    private static List<int[]> constructItemsetTables(List<CurrSizeFiRanks> fiRanksKto2) {
+        LinkedList<int[]> res = new LinkedList<>();
+        int[] prevTable = null;
+        for (int ind = fiRanksKto2.size() - 1; ind >= 0; --ind) {
+            final int kMinus1 = fiRanksKto2.size() - ind;
+            prevTable = constructItemsetTable(fiRanksKto2.get(ind), prevTable, kMinus1);
+            res.addFirst(prevTable);
+        }
+        return res;
+    }
+
+    /**
+     * @param fkRanks   the mapper of the k-FI rank to (item, (k-1)-FI rank)
+     * @param fkm1Table the table of the (k-1)-FIs, or null if k=2
+     * @param kMinus1   k-1
+     * @return the table of the k-FIs: (item, items of the (k-1)-FI) per rank
+     */
+    private static int[] constructItemsetTable(CurrSizeFiRanks fkRanks, int[] fkm1Table, int kMinus1) {
+        final int k = kMinus1 + 1;
+        final int totalRanksK = fkRanks.getTotalCurrSizeRanks();
+        int[] res = new int[totalRanksK * k];
+        for (int rankK = 0; rankK < totalRanksK; ++rankK) {
+            int[] itemAndRkm1 = fkRanks.getCurrSizeFiAsPairByRank(rankK);
+            final int start = rankK * k;
+            res[start] = itemAndRkm1[0];
+            if (fkm1Table == null) {
+                res[start + 1] = itemAndRkm1[1]; //1-FI rank is the item itself
+            } else {
+                System.arraycopy(fkm1Table, itemAndRkm1[1] * kMinus1, res, start + 1, kMinus1);
+            }
+        }
+        return res;
+    }
+
     private boolean existsItemset(int[] itemset, int itemsetLen) {
         return getRankByItemsetIfExists(itemset, itemsetLen) >= 0;
     }
@@ -0,0 +1,152 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.openu.fimcmp.util.Assert;
+import org.openu.fimcmp.util.BitArrays;
+
+import java.util.Arrays;
+
+/**
+ * Set of the k-FI ranks contained in a single transaction. <br/>
+ * Like {@link TidMergeSet}, holds everything in long[] and has all its operations as static,
+ * so that the transactions' RDD could hold long[] rather than objects. <br/>
+ * <pre>
+ * The form is chosen per transaction, whichever is smaller:
+ * - Dense:  {DENSE_TAG, (bitset of the ranks)}, |Fk|/64 words regardless of the number of ranks
+ * - Sparse: {size, (sorted ranks, two per word)}, e.g. a transaction that holds 10 of 100K k-FIs takes 6 words
+ * </pre>
+ * All the operations work on either form directly, the sparse form is never converted to a bitset. <br/>
+ */
+public class FkRankSet {
+    private static final int HEADER_IND = 0;
+    private static final long DENSE_TAG = -1;
+    private static final int BITSET_START_IND = 1;
+    private static final int RANKS_START_IND = 1;
+
+    /**
+     * @param sortedRanks the ranks, sorted and distinct, at [0, size)
+     * @param totalRanks  the total number of k-FIs
+     */
+    static long[] fromSortedRanks(int[] sortedRanks, int size, int totalRanks) {
+        final int denseWords = BitArrays.requiredSize(totalRanks, BITSET_START_IND);
+        final int sparseWords = RANKS_START_IND + (size + 1) / 2;
+        if (denseWords <= sparseWords) {
+            long[] res = new long[denseWords];
+            res[HEADER_IND] = DENSE_TAG;
+            for (int ii = 0; ii < size; ++ii) {
+                BitArrays.set(res, BITSET_START_IND, sortedRanks[ii]);
+            }
+            return res;
+        }
+
+        long[] res = new long[sparseWords];
+        res[HEADER_IND] = size;
+        for (int ii = 0; ii < size; ++ii) {
+            res[RANKS_START_IND + (ii >> 1)] |= ((long) sortedRanks[ii]) << ((ii & 1) << 5);
+        }
+        return res;
+    }
+
+    /**
+     * Same as {@link #fromSortedRanks}, for distinct ranks in any order. <br/>
+     * The ranks are sorted in place.
+     */
+    static long[] fromRanks(int[] ranks, int size, int totalRanks) {
+        Arrays.sort(ranks, 0, size);
+        return fromSortedRanks(ranks, size, totalRanks);
+    }
+
+    static boolean isDense(long[] rankSet) {
+        return rankSet[HEADER_IND] == DENSE_TAG;
+    }
+
+    public static boolean isEmpty(long[] rankSet) {
+        return isDense(rankSet) ? BitArrays.isZerosOnly(rankSet, BITSET_START_IND) : rankSet[HEADER_IND] == 0;
+    }
+
+    public static int size(long[] rankSet) {
+        return isDense(rankSet) ? BitArrays.cardinality(rankSet, BITSET_START_IND) : (int) rankSet[HEADER_IND];
+    }
+
+    static boolean contains(long[] rankSet, int rank) {
+        if (isDense(rankSet)) {
+            return BitArrays.wordIndex(rank, BITSET_START_IND) < rankSet.length &&
+                    BitArrays.get(rankSet, BITSET_START_IND, rank);
+        }
+
+        int low = 0;
+        int high = (int) rankSet[HEADER_IND] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midRank = get(rankSet, mid);
+            if (midRank < rank) {
+                low = mid + 1;
+            } else if (midRank > rank) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param resBuf should be able to hold all the ranks of the set
+     * @return the number of the sorted ranks written to resBuf
+     */
+    static int toRanks(long[] rankSet, int[] resBuf) {
+        if (isDense(rankSet)) {
+            return BitArrays.asNumbers(rankSet, BITSET_START_IND, resBuf);
+        }
+
+        final int size = (int) rankSet[HEADER_IND];
+        for (int ii = 0; ii < size; ++ii) {
+            resBuf[ii] = get(rankSet, ii);
+        }
+        return size;
+    }
+
+    public static int[] toRanks(long[] rankSet) {
+        int[] res = new int[size(rankSet)];
+        toRanks(rankSet, res);
+        return res;
+    }
+
+    /**
+     * Intersects the set with a plain bitset of ranks, see {@link BitArrays#andAsNumbers}. <br/>
+     *
+     * @param ranksBs the bitset, starting at 0
+     * @param resBuf  should be able to hold all the ranks of the set
+     * @return the number of the sorted common ranks written to resBuf
+     */
+    static int andAsNumbers(long[] rankSet, long[] ranksBs, int[] resBuf) {
+        if (isDense(rankSet)) {
+            return BitArrays.andAsNumbers(rankSet, BITSET_START_IND, ranksBs, 0, resBuf);
+        }
+
+        final int size = (int) rankSet[HEADER_IND];
+        int resCnt = 0;
+        for (int ii = 0; ii < size; ++ii) {
+            int rank = get(rankSet, ii);
+            if (BitArrays.wordIndex(rank, 0) < ranksBs.length && BitArrays.get(ranksBs, 0, rank)) {
+                resBuf[resCnt++] = rank;
+            }
+        }
+        return resCnt;
+    }
+
+    /**
+     * Same as {@link BitArrays#notXor} of a plain bitset of ranks (starting at 0) with the set's bitset. <br/>
+     * Only applies to the dense form.
+     */
+    static void notXor(long[] ranksBsAndRes, long[] denseRankSet) {
+        Assert.isTrue(isDense(denseRankSet) && ranksBsAndRes.length == denseRankSet.length - BITSET_START_IND);
+        BitArrays.notXor(ranksBsAndRes, 0, denseRankSet, BITSET_START_IND);
+    }
+
+    /**
+     * @return the rank at the given index of the sorted ranks, only applies to the sparse form
+     */
+    static int get(long[] sparseRankSet, int ind) {
+        return (int) (sparseRankSet[RANKS_START_IND + (ind >> 1)] >>> ((ind & 1) << 5));
+    }
+}
@@ -0,0 +1,62 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.openu.fimcmp.util.Assert;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Trims the transactions once their k-FIs are known, so that each Apriori level scans less data: <br/>
+ * <pre>
+ * Each item of a (k+1)-itemset is contained in k of its k-subsets.
+ * So if a (k+1)-candidate (or any larger one) is contained in a transaction,
+ * each of its items appears in at least k of the transaction's k-FIs.
+ * The rest of the items are dropped, and if no more than k items are left, the whole transaction is dropped.
+ * </pre>
+ * The transaction's set of k-FIs ranks is left as is, so the trimmed transaction still contains all its k-FIs.
+ */
+public class FkTransactionTrimmer implements Serializable {
+    private final int k;
+    //the items of k-FI rank r are at [r*k, (r+1)*k):
+    private final int[] rankToItems;
+
+    public FkTransactionTrimmer(FiRanksToFromItems fkAllRanks, int fkSize) {
+        this.k = fkAllRanks.getMaxK();
+        Assert.isTrue(k >= 2);
+        this.rankToItems = fkAllRanks.getItemsetTable(k);
+        Assert.isTrue(rankToItems.length == fkSize * k);
+    }
+
+    /**
+     * @param sortedTr  the transaction's frequent item ranks, sorted
+     * @param fkRankSet the set of the k-FIs ranks contained in the transaction, see {@link FkRankSet}
+     * @return the items that could still be part of a larger FI, or null if the transaction could not contain any
+     */
+    public int[] trimOrNull(int[] sortedTr, long[] fkRankSet) {
+        if (sortedTr.length <= k) {
+            return null;
+        }
+
+        int[] posToFkCnt = new int[sortedTr.length];
+        int[] ranksK = FkRankSet.toRanks(fkRankSet);
+        for (int rankK : ranksK) {
+            final int end = (rankK + 1) * k;
+            for (int ii = rankK * k; ii < end; ++ii) {
+                ++posToFkCnt[Arrays.binarySearch(sortedTr, rankToItems[ii])];
+            }
+        }
+
+        int[] res = new int[sortedTr.length];
+        int resSize = 0;
+        for (int pos = 0; pos < sortedTr.length; ++pos) {
+            if (posToFkCnt[pos] >= k) {
+                res[resSize++] = sortedTr[pos];
+            }
+        }
+
+        if (resSize <= k) {
+            return null;
+        }
+        return (resSize == sortedTr.length) ? sortedTr : Arrays.copyOf(res, resSize);
+    }
+}
@@ -1,31 +1,168 @@
 package org.openu.fimcmp.algs.apriori;
 
+import org.openu.fimcmp.util.Assert;
 import org.openu.fimcmp.util.BitArrays;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Helps in next-size candidate itemsets in Apriori. <br/>
  *
  * The idea is that an itemset of size (k+1) {newItem, i1...ik} can be frequent only if all its subsets of size k
  * that include 'newItem' are frequent. <br/>
+ * The candidates are generated as chosen by {@link CandidateGeneration}. <br/>
+ * Also decides how the candidates are counted, see {@link CountingEngine}.
  */
 public class NextSizeItemsetGenHelper implements Serializable {
+    /**
+     * The candidates density below which AUTO chooses the TRIE engine. <br/>
+     * Per transaction item, DENSE intersects totalCurrSizeRanks / 64 bitset words,
+     * while TRIE tests a bit per candidate of that item, so TRIE is cheaper below 1 / 64.
+     */
+    static final double MAX_TRIE_DENSITY = 1.0 / 64;
+
+    /**
+     * How countCandsK_Part counts the next-size candidates (item, k-FI rank): <br/>
+     * DENSE: intersects the transaction's k-FIs bitset with the item's candidates bitset,
+     * and counts into an (item x k-FI rank) matrix. <br/>
+     * TRIE: walks the transaction's items through a two-level trie holding only the true candidates:
+     * item -> its sorted candidate k-FI ranks, and counts a counter per candidate. <br/>
+     * AUTO: TRIE if the candidates density is below {@link #MAX_TRIE_DENSITY}, otherwise DENSE.
+     */
+    public enum CountingEngine {AUTO, DENSE, TRIE}
+
+    /**
+     * How the next-size candidates (item, k-FI rank) are generated: <br/>
+     * SCREENING: checks every frequent item against every k-FI, i.e. F1 x Fk subset checks. <br/>
+     * PREFIX_JOIN: apriori-gen, joins each two k-FIs that differ only by the first item,
+     * i.e. (i0, rank{i2...ik}) and (i1, rank{i2...ik}) give the candidate (i0, rank{i1...ik}),
+     * and only checks the subsets of the joined ones. <br/>
+     * Both generate the same candidates, but PREFIX_JOIN is output-sensitive.
+     */
+    public enum CandidateGeneration {SCREENING, PREFIX_JOIN}
+
     private final int totalFreqItems;
     private final int totalCurrSizeRanks;
-    //nextSizeCandsR1ToRk[item][rankK] = true <-> itemset (item, k-FI from rankK) has chance to be frequent:
+    private final long totalCands;
+    private final CountingEngine countingEngine;
+    //nextSizeCandsR1ToRk[item][rankK] = true <-> itemset (item, k-FI from rankK) has chance to be frequent,
+    //held only for the DENSE engine:
     private final long[][] nextSizeCandsR1ToRk;
+    //nextSizeCandsR1ToRks[item] = sorted ranks of such k-FIs, held only for the TRIE engine:
+    private final int[][] nextSizeCandsR1ToRks;
 
     public static NextSizeItemsetGenHelper construct(
             FiRanksToFromItems mappersTillK, int totalFreqItems, int totalCurrSizeRanks) {
-        long[][] nextSizeCandsR1ToRk = constructNextSizeCands(mappersTillK, totalFreqItems, totalCurrSizeRanks);
-        return new NextSizeItemsetGenHelper(totalFreqItems, totalCurrSizeRanks, nextSizeCandsR1ToRk);
+        return construct(mappersTillK, totalFreqItems, totalCurrSizeRanks, CountingEngine.AUTO);
+    }
+
+    public static NextSizeItemsetGenHelper construct(
+            FiRanksToFromItems mappersTillK, int totalFreqItems, int totalCurrSizeRanks, CountingEngine engine) {
+        return construct(mappersTillK, totalFreqItems, totalCurrSizeRanks, engine, CandidateGeneration.PREFIX_JOIN);
+    }
+
+    public static NextSizeItemsetGenHelper construct(
+            FiRanksToFromItems mappersTillK, int totalFreqItems, int totalCurrSizeRanks, CountingEngine engine,
+            CandidateGeneration generation) {
+        //only one of the two is computed, the other one is derived from it if the engine needs it:
+        long[][] nextSizeCandsR1ToRk = null;
+        int[][] nextSizeCandsR1ToRks = null;
+        long totalCands = 0;
+        if (generation == CandidateGeneration.PREFIX_JOIN && mappersTillK.getMaxK() >= 2) {
+            nextSizeCandsR1ToRks = joinNextSizeCands(mappersTillK, totalFreqItems);
+            for (int[] candRks : nextSizeCandsR1ToRks) {
+                totalCands += candRks.length;
+            }
+        } else {
+            nextSizeCandsR1ToRk = constructNextSizeCands(mappersTillK, totalFreqItems, totalCurrSizeRanks);
+            for (long[] candsBs : nextSizeCandsR1ToRk) {
+                totalCands += BitArrays.cardinality(candsBs, 0);
+            }
+        }
+
+        if (engine == CountingEngine.AUTO) {
+            double density = computeDensity(totalCands, totalFreqItems, totalCurrSizeRanks);
+            engine = (density < MAX_TRIE_DENSITY) ? CountingEngine.TRIE : CountingEngine.DENSE;
+        }
+        if (engine == CountingEngine.DENSE) {
+            if (nextSizeCandsR1ToRk == null) {
+                nextSizeCandsR1ToRk = new long[totalFreqItems][BitArrays.requiredSize(totalCurrSizeRanks, 0)];
+                for (int item = 0; item < totalFreqItems; ++item) {
+                    BitArrays.setAll(nextSizeCandsR1ToRk[item], 0, nextSizeCandsR1ToRks[item]);
+                }
+            }
+            return new NextSizeItemsetGenHelper(
+                    totalFreqItems, totalCurrSizeRanks, totalCands, engine, nextSizeCandsR1ToRk, null);
+        }
+
+        if (nextSizeCandsR1ToRks == null) {
+            nextSizeCandsR1ToRks = new int[totalFreqItems][];
+            for (int item = 0; item < totalFreqItems; ++item) {
+                nextSizeCandsR1ToRks[item] = BitArrays.asNumbers(nextSizeCandsR1ToRk[item], 0);
+            }
+        }
+        return new NextSizeItemsetGenHelper(
+                totalFreqItems, totalCurrSizeRanks, totalCands, engine, null, nextSizeCandsR1ToRks);
     }
 
     long[] getCurrRanksForNextSizeCandsBitSet(int item) {
         return nextSizeCandsR1ToRk[item];
     }
 
+    /**
+     * @return item -> sorted ranks of the k-FIs that could be frequent together with the item,
+     * available only for the TRIE engine
+     */
+    int[][] getNextSizeCandRanksPerItem() {
+        return nextSizeCandsR1ToRks;
+    }
+
+    /**
+     * @return either DENSE or TRIE
+     */
+    public CountingEngine getCountingEngine() {
+        return countingEngine;
+    }
+
+    public long getTotalCands() {
+        return totalCands;
+    }
+
+    /**
+     * @return the ratio of the next-size candidates to all the (item, k-FI rank) pairs
+     */
+    public double getCandsDensity() {
+        return computeDensity(totalCands, totalFreqItems, totalCurrSizeRanks);
+    }
+
+    /**
+     * @return the number of the counters a partition needs to count the candidates, 1-4 bytes each,
+     * see {@link CandCounts}
+     */
+    public long getTotalCounters() {
+        return (countingEngine == CountingEngine.TRIE) ? totalCands : (long) totalFreqItems * totalCurrSizeRanks;
+    }
+
+    /**
+     * @return triplets (frequent item rank, k-FI rank, 0), a triplet per next-size candidate,
+     * in the form of the FIs, see {@link CurrSizeFiRanks#construct}
+     */
+    public List<int[]> getCandsAsPairs() {
+        List<int[]> res = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, totalCands));
+        for (int item = 0; item < totalFreqItems; ++item) {
+            int[] rks = (countingEngine == CountingEngine.TRIE) ?
+                    nextSizeCandsR1ToRks[item] : BitArrays.asNumbers(nextSizeCandsR1ToRk[item], 0);
+            for (int rk : rks) {
+                res.add(new int[]{item, rk, 0});
+            }
+        }
+        return res;
+    }
+
     int getTotalCurrSizeRanks() {
         return totalCurrSizeRanks;
     }
@@ -34,25 +171,116 @@ public class NextSizeItemsetGenHelper implements Serializable {
         return totalFreqItems;
     }
 
-    //construct a bit set (item, k-FI as rank) -> whether has chance to be frequent:
+    //construct a bit set (item, k-FI as rank) -> whether has chance to be frequent.
+    //The items are checked in parallel (fork-join): each item fills its own bit set,
+    //and the subset checks only read the mappers:
     private static long[][] constructNextSizeCands(FiRanksToFromItems mappersTillK, int totalItems, int totalFks) {
         long[][] r1ToFkBitSet = new long[totalItems][BitArrays.requiredSize(totalFks, 0)];
 
-        for (int item1 = 0; item1 < totalItems; ++item1) {
+        IntStream.range(0, totalItems).parallel().forEach(item1 -> {
             long[] fkBitSet = r1ToFkBitSet[item1];
             for (int kFiRank = 0; kFiRank < totalFks; ++kFiRank) {
                 if (mappersTillK.couldBeFrequentAndOrdered(item1, kFiRank)) {
                     BitArrays.set(fkBitSet, 0, kFiRank);
                 }
             }
-        }
+        });
 
         return r1ToFkBitSet;
     }
 
-    private NextSizeItemsetGenHelper(int totalFreqItems, int totalCurrSizeRanks, long[][] nextSizeCandsR1ToRk) {
+    /**
+     * Apriori-gen, see {@link CandidateGeneration#PREFIX_JOIN}: <br/>
+     * The k-FIs are sorted by (rank of all the items but the first, first item),
+     * so the k-FIs that could be joined are adjacent. <br/>
+     * The joined candidates are checked for the rest of their subsets in parallel, like in the screening.
+     *
+     * @return item -> sorted ranks of the k-FIs that could be frequent together with the item
+     */
+    private static int[][] joinNextSizeCands(FiRanksToFromItems mappersTillK, int totalItems) {
+        CurrSizeFiRanks fkRanks = mappersTillK.getMaxKFiRanks();
+        final int totalFks = fkRanks.getTotalCurrSizeRanks();
+        //(rank{i2...ik}, i1) per k-FI {i1, i2...ik}:
+        long[] rkm1AndR1s = new long[totalFks];
+        for (int rankK = 0; rankK < totalFks; ++rankK) {
+            int[] r1AndRkm1 = fkRanks.getCurrSizeFiAsPairByRank(rankK);
+            rkm1AndR1s[rankK] = toLong(r1AndRkm1[1], r1AndRkm1[0]);
+        }
+        Arrays.sort(rkm1AndR1s);
+
+        //(i0, rank{i1...ik}) per joined pair:
+        List<long[]> joinedPerRkm1 = new ArrayList<>();
+        for (int groupStart = 0; groupStart < totalFks; ) {
+            final int rKm1 = high(rkm1AndR1s[groupStart]);
+            int groupEnd = groupStart + 1;
+            while (groupEnd < totalFks && high(rkm1AndR1s[groupEnd]) == rKm1) {
+                ++groupEnd;
+            }
+
+            final int groupSize = groupEnd - groupStart;
+            if (groupSize > 1) {
+                final long totalJoined = (long) groupSize * (groupSize - 1) / 2;
+                Assert.isTrue(totalJoined <= Integer.MAX_VALUE, String.format(
+                        "Too many k-FIs with the same suffix to join: %s (%s pairs)", groupSize, totalJoined));
+                long[] joined = new long[(int) totalJoined];
+                int joinedCnt = 0;
+                for (int jj = groupStart + 1; jj < groupEnd; ++jj) {
+                    final int i1 = low(rkm1AndR1s[jj]);
+                    final int rankK = fkRanks.getCurrSizeFiRankByPair(i1, rKm1);
+                    for (int ii = groupStart; ii < jj; ++ii) {
+                        joined[joinedCnt++] = toLong(low(rkm1AndR1s[ii]), rankK);
+                    }
+                }
+                joinedPerRkm1.add(joined);
+            }
+            groupStart = groupEnd;
+        }
+
+        long[] r1AndRks = joinedPerRkm1.parallelStream()
+                .flatMapToLong(Arrays::stream)
+                .filter(r1AndRk -> mappersTillK.couldBeFrequentAndOrdered(high(r1AndRk), low(r1AndRk)))
+                .sorted()
+                .toArray();
+
+        int[][] res = new int[totalItems][];
+        int candInd = 0;
+        for (int item = 0; item < totalItems; ++item) {
+            int itemCandsStart = candInd;
+            while (candInd < r1AndRks.length && high(r1AndRks[candInd]) == item) {
+                ++candInd;
+            }
+            res[item] = new int[candInd - itemCandsStart];
+            for (int ii = itemCandsStart; ii < candInd; ++ii) {
+                res[item][ii - itemCandsStart] = low(r1AndRks[ii]);
+            }
+        }
+        return res;
+    }
+
+    private static long toLong(int high, int low) {
+        return ((long) high << 32) | low;
+    }
+
+    private static int high(long val) {
+        return (int) (val >>> 32);
+    }
+
+    private static int low(long val) {
+        return (int) val;
+    }
+
+    private static double computeDensity(long totalCands, int totalFreqItems, int totalCurrSizeRanks) {
+        return (1.0 * totalCands) / ((long) totalFreqItems * totalCurrSizeRanks);
+    }
+
+    private NextSizeItemsetGenHelper(
+            int totalFreqItems, int totalCurrSizeRanks, long totalCands, CountingEngine countingEngine,
+            long[][] nextSizeCandsR1ToRk, int[][] nextSizeCandsR1ToRks) {
         this.totalFreqItems = totalFreqItems;
         this.totalCurrSizeRanks = totalCurrSizeRanks;
+        this.totalCands = totalCands;
+        this.countingEngine = countingEngine;
         this.nextSizeCandsR1ToRk = nextSizeCandsR1ToRk;
+        this.nextSizeCandsR1ToRks = nextSizeCandsR1ToRks;
     }
 }
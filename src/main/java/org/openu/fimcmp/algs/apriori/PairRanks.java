@@ -1,7 +1,6 @@
 package org.openu.fimcmp.algs.apriori;
 
 import org.openu.fimcmp.util.Assert;
-import org.openu.fimcmp.util.BitArrays;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -11,10 +10,17 @@ import java.util.List;
  * Mapping of pair (int, int) to int rank and vice versa. <br/>
  * The first elements of the pair are supposed to be in the range [0, totalElems1). <br/>
  * The second elements of the pair are supposed to be in the range [0, totalElems2). <br/>
+ * The pair -> rank direction is held compactly, so that it takes memory proportional to the number of the pairs
+ * rather than to totalElems1 * totalElems2: <br/>
+ * the pairs of each elem1 are at [elem1ToStart[elem1], elem1ToStart[elem1+1]) of 'sortedElems2' (sorted)
+ * and 'elems2Ranks' (their ranks), and are looked up by binary search. <br/>
  */
 public class PairRanks implements Serializable {
     final int[][] rankToPair;
-    final int[][] pairToRank;
+    private final int[] elem1ToStart;
+    private final int[] sortedElems2;
+    private final int[] elems2Ranks;
+    private final int totalElems2;
 
     static PairRanks construct(List<int[]> sortedPairs, int totalElems1, int totalElems2) {
         int[][] rankToPair = constructPairRankToPair(sortedPairs);
@@ -22,16 +28,40 @@ public class PairRanks implements Serializable {
     }
 
     static PairRanks constructByRankToPair(int[][] rankToPair, int totalElems1, int totalElems2) {
-        int[][] pairToRank = constructPairToRank(rankToPair, totalElems1, totalElems2);
-        return new PairRanks(rankToPair, pairToRank);
-    }
+        Assert.isTrue(totalElems1 > 1);
+        Assert.isTrue(totalElems2 > 1);
 
-    boolean existsPair(int elem1, int elem2) {
-        return pairToRank[elem1][elem2] >= 0;
+        //count the pairs per elem1:
+        int[] elem1ToStart = new int[totalElems1 + 1];
+        for (int[] pair : rankToPair) {
+            ++elem1ToStart[pair[0] + 1];
+        }
+        for (int elem1 = 0; elem1 < totalElems1; ++elem1) {
+            elem1ToStart[elem1 + 1] += elem1ToStart[elem1];
+        }
+
+        //place the pairs of each elem1 together as (elem2, rank), then sort them by elem2:
+        long[] elems2AndRanks = new long[rankToPair.length];
+        int[] elem1ToNext = Arrays.copyOf(elem1ToStart, totalElems1);
+        for (int rank = 0; rank < rankToPair.length; ++rank) {
+            int[] pair = rankToPair[rank];
+            elems2AndRanks[elem1ToNext[pair[0]]++] = ((long) pair[1] << 32) | rank;
+        }
+        int[] sortedElems2 = new int[rankToPair.length];
+        int[] elems2Ranks = new int[rankToPair.length];
+        for (int elem1 = 0; elem1 < totalElems1; ++elem1) {
+            Arrays.sort(elems2AndRanks, elem1ToStart[elem1], elem1ToStart[elem1 + 1]);
+        }
+        for (int ind = 0; ind < elems2AndRanks.length; ++ind) {
+            sortedElems2[ind] = (int) (elems2AndRanks[ind] >>> 32);
+            elems2Ranks[ind] = (int) elems2AndRanks[ind];
+        }
+
+        return new PairRanks(rankToPair, elem1ToStart, sortedElems2, elems2Ranks, totalElems2);
     }
 
-    int[] getElem2ToRank(int elem1) {
-        return pairToRank[elem1];
+    boolean existsPair(int elem1, int elem2) {
+        return getRankByPair(elem1, elem2) >= 0;
     }
 
     int getElem1ByRank(int rank) {
@@ -43,27 +73,38 @@ public class PairRanks implements Serializable {
         return rankToPair[rank][1];
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * @return the rank of the pair, or -1 if there is no such pair
+     */
     int getRankByPair(int elem1, int elem2) {
-        return pairToRank[elem1][elem2];
-    }
-
-    long[][] constructElem1ToElem2BitSet() {
-        final int START_IND=0;
-        final int totalElems1 = totalElems1();
-        final int totalElems2 = totalElems2();
-
-        long[][] res = new long[totalElems1][];
-        for (int elem1=0; elem1<totalElems1; ++elem1) {
-            long[] elem2Bs = new long[BitArrays.requiredSize(totalElems2, START_IND)];
-            for (int elem2=0; elem2 < totalElems2; ++elem2) {
-                if (existsPair(elem1, elem2)) {
-                    BitArrays.set(elem2Bs, START_IND, elem2);
-                }
+        int ind = Arrays.binarySearch(sortedElems2, elem1ToStart[elem1], elem1ToStart[elem1 + 1], elem2);
+        return (ind >= 0) ? elems2Ranks[ind] : -1;
+    }
+
+    /**
+     * Looks up the ranks of the pairs (elem1, sortedElems2[ii]), ii in [from, to), skipping the missing pairs. <br/>
+     * Since the given elems2 are sorted, each search starts where the previous one has ended. <br/>
+     *
+     * @param resBuf should be able to hold resCnt plus all the found ranks
+     * @return the number of the ranks in resBuf, i.e. resCnt plus the number of the found pairs
+     */
+    int addRanksByPairs(int elem1, int[] sortedElems2, int from, int to, int[] resBuf, int resCnt) {
+        int low = elem1ToStart[elem1];
+        final int high = elem1ToStart[elem1 + 1];
+        for (int ii = from; ii < to && low < high; ++ii) {
+            int ind = Arrays.binarySearch(this.sortedElems2, low, high, sortedElems2[ii]);
+            if (ind >= 0) {
+                resBuf[resCnt++] = elems2Ranks[ind];
+                low = ind + 1;
+            } else {
+                low = -ind - 1;
             }
-            res[elem1] = elem2Bs;
         }
-        return res;
+        return resCnt;
+    }
+
+    int totalPairsOfElem1(int elem1) {
+        return elem1ToStart[elem1 + 1] - elem1ToStart[elem1];
     }
 
     int totalRanks() {
@@ -71,7 +112,7 @@ public class PairRanks implements Serializable {
     }
 
     public int totalElems1() {
-        return pairToRank.length;
+        return elem1ToStart.length - 1;
     }
 
     int computeMaxElem1() {
@@ -79,8 +120,7 @@ public class PairRanks implements Serializable {
     }
 
     int totalElems2() {
-        Assert.isTrue(pairToRank.length > 0);
-        return pairToRank[0].length;
+        return totalElems2;
     }
 
     int computeMaxElem2() {
@@ -106,26 +146,11 @@ public class PairRanks implements Serializable {
         return res;
     }
 
-    private static int[][] constructPairToRank(int[][] rankToPair, int totalElems1, int totalElems2) {
-        Assert.isTrue(totalElems1 > 1);
-        Assert.isTrue(totalElems2 > 1);
-
-        //initialize the result
-        int[][] res = new int[totalElems1][totalElems2];
-        for (int[] col : res) {
-            Arrays.fill(col, -1);
-        }
-
-        //have a map: pair -> rank
-        for (int rank = 0; rank < rankToPair.length; ++rank) {
-            int[] pair = rankToPair[rank];
-            res[pair[0]][pair[1]] = rank;
-        }
-        return res;
-    }
-
-    private PairRanks(int[][] rankToPair, int[][] pairToRank) {
+    private PairRanks(int[][] rankToPair, int[] elem1ToStart, int[] sortedElems2, int[] elems2Ranks, int totalElems2) {
         this.rankToPair = rankToPair;
-        this.pairToRank = pairToRank;
+        this.elem1ToStart = elem1ToStart;
+        this.sortedElems2 = sortedElems2;
+        this.elems2Ranks = elems2Ranks;
+        this.totalElems2 = totalElems2;
     }
 }
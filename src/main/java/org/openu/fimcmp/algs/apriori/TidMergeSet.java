@@ -42,7 +42,8 @@ public class TidMergeSet implements Serializable {
      * Compute a mapping rankK -> 'tid-set'. <br/>
      * The 'tid-set' is a bitset of TIDs prefixed with some metadata. <br/>
      * @param kRanksBsAndTidIt iterator over transactions in this partition. <br/>
-     *                         Each transaction holds a bitset of its k-FI ranks and a transaction ID
+     *                         Each transaction holds a set of its k-FI ranks, see {@link FkRankSet},
+     *                         and a transaction ID
      * @param minAndMaxTids    Min and max TID in this partition
      * @return iterator over a single long[][] array that holds an entire mapping rankK to 'tid-set' for this partition
      */
@@ -50,8 +51,9 @@ public class TidMergeSet implements Serializable {
             Iterator<Tuple2<long[], Long>> kRanksBsAndTidIt,
             TidsGenHelper tidsGenHelper,
             Tuple2<Long, Long> minAndMaxTids) {
-        final int RANKS_BITSET_START_IND = 0;
         long[][] rankKToTidSet = new long[tidsGenHelper.totalRanks()][];
+        //reused for all the transactions of the partition:
+        int[] kRanksToBeStored = new int[tidsGenHelper.totalRanks()];
         boolean hasElems = false;
 
         final long minTidInPartition = minAndMaxTids._1;
@@ -61,15 +63,12 @@ public class TidMergeSet implements Serializable {
         while(kRanksBsAndTidIt.hasNext()) {
             hasElems = true;
             Tuple2<long[], Long> kRanksBsAndTid = kRanksBsAndTidIt.next();
-            long[] kRanksBs = kRanksBsAndTid._1;
-
-            long[] kRanksToBeStoredBs = new long[kRanksBs.length];
-            tidsGenHelper.setToResRanksToBeStoredBitSet(kRanksToBeStoredBs, RANKS_BITSET_START_IND, kRanksBs);
-            int[] kRanksToBeStored = BitArrays.asNumbers(kRanksToBeStoredBs, RANKS_BITSET_START_IND);
+            final int kRanksToBeStoredCnt = tidsGenHelper.getRanksToBeStored(kRanksBsAndTid._1, kRanksToBeStored);
 
             //storing a smaller number than TID:
             final long tidToStore = kRanksBsAndTid._2 - tidCorrection;
-            for (int rankK : kRanksToBeStored) {
+            for (int ii = 0; ii < kRanksToBeStoredCnt; ++ii) {
+                final int rankK = kRanksToBeStored[ii];
                 long[] tidSet = rankKToTidSet[rankK];
                 if (tidSet != null) {
                     BitArrays.set(tidSet, BITSET_START_IND, (int) tidToStore); //requires to set min, max and size later
@@ -152,7 +151,7 @@ public class TidMergeSet implements Serializable {
         }
 
         int itemsetSize = fiRanksToFromItems.getMaxK();
-        return new ItemsetAndTidsCollection(resList, itemsetSize, totalTids);
+        return new ItemsetAndTidsCollection(resList, itemsetSize, totalTids, tidsGenHelper.getTidToWeight());
     }
 
     private static Map<Integer, List<long[]>> computeRankToTidSets(List<long[]> tidSets) {
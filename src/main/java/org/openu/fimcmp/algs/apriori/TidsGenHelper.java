@@ -4,6 +4,7 @@ import org.openu.fimcmp.util.Assert;
 import org.openu.fimcmp.util.BitArrays;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -14,16 +15,25 @@ import java.util.List;
 public class TidsGenHelper implements Serializable {
     private final boolean[] rankToIsStoreTids;
     private final long[] rankToIsStoreTidsBitSet;
+    //the sorted ranks whose TIDs are stored as 'not':
+    private final int[] veryFreqRanks;
     private final int[] rankToSupportCnt;
     private final int totalTids;
+    private final int[] tidToWeight;
 
-    static TidsGenHelper construct(List<int[]> fk, PairRanks rankPairsK, int totalTids) {
+    /**
+     * @param tidToWeight optional weight of each TID, see {@link org.openu.fimcmp.algs.algbase.WeightedRanks}. <br/>
+     *                    Null means each TID counts as 1, in which case 'totalTids' is required.
+     */
+    static TidsGenHelper construct(List<int[]> fk, PairRanks rankPairsK, int totalTids, int[] tidToWeight) {
         Assert.isTrue(totalTids > 0);
+        Assert.isTrue(tidToWeight == null || tidToWeight.length == totalTids);
 
         int[] rankToSupport = computeRankToSupport(fk, rankPairsK);
-        boolean[] rankToIsStoreContainingTids = computeRankToIsStoreContainingTids(rankToSupport, totalTids);
+        long totalWeight = (tidToWeight != null) ? sum(tidToWeight) : totalTids;
+        boolean[] rankToIsStoreContainingTids = computeRankToIsStoreContainingTids(rankToSupport, totalWeight);
 
-        return new TidsGenHelper(rankToIsStoreContainingTids, rankToSupport, totalTids);
+        return new TidsGenHelper(rankToIsStoreContainingTids, rankToSupport, totalTids, tidToWeight);
     }
 
     int totalRanks() {
@@ -34,20 +44,48 @@ public class TidsGenHelper implements Serializable {
         return totalTids;
     }
 
+    int[] getTidToWeight() {
+        return tidToWeight;
+    }
+
     /**
-     * Sets 1's for ranks that the pair (current TID, rank) should be stored and processed. <br/>
+     * Collects the ranks that the pair (current TID, rank) should be stored and processed. <br/>
      * The idea is to minimize the number of produced pairs (TID, rank). <br/>
      * The pair should be processed if either <ol>
      * <li>The rank is not very frequent and is contained in the current transaction, OR</li>
      * <li>The rank is very frequent and is not contained in the current transaction</li>
      * </ol>
      *  Rank is 'not very frequent' means that the rank is contained in less than half of transactions. <br/>
-     * @param ranksBitSet   bitset of k-ranks contained in the current transaction
+     * @param rankSet the k-ranks contained in the current transaction, in either form, see {@link FkRankSet}
+     * @param resBuf  should be able to hold {@link #totalRanks()} ranks
+     * @return the number of the ranks written to resBuf
      */
-    void setToResRanksToBeStoredBitSet(long[] res, int resStartInd, long[] ranksBitSet) {
-        Assert.isTrue(rankToIsStoreTidsBitSet.length == ranksBitSet.length);
-        System.arraycopy(rankToIsStoreTidsBitSet, 0, res, resStartInd, rankToIsStoreTidsBitSet.length);
-        BitArrays.notXor(res, resStartInd, ranksBitSet, 0);
+    int getRanksToBeStored(long[] rankSet, int[] resBuf) {
+        if (FkRankSet.isDense(rankSet)) {
+            long[] resBs = Arrays.copyOf(rankToIsStoreTidsBitSet, rankToIsStoreTidsBitSet.length);
+            FkRankSet.notXor(resBs, rankSet);
+            return BitArrays.asNumbers(resBs, 0, resBuf);
+        }
+
+        //merge the contained ranks with the very frequent ones, skipping the ranks that are both:
+        final int size = FkRankSet.size(rankSet);
+        int resCnt = 0;
+        int freqInd = 0;
+        for (int ii = 0; ii < size; ++ii) {
+            final int rank = FkRankSet.get(rankSet, ii);
+            while (freqInd < veryFreqRanks.length && veryFreqRanks[freqInd] < rank) {
+                resBuf[resCnt++] = veryFreqRanks[freqInd++];
+            }
+            if (freqInd < veryFreqRanks.length && veryFreqRanks[freqInd] == rank) {
+                ++freqInd;
+            } else {
+                resBuf[resCnt++] = rank;
+            }
+        }
+        while (freqInd < veryFreqRanks.length) {
+            resBuf[resCnt++] = veryFreqRanks[freqInd++];
+        }
+        return resCnt;
     }
 
     boolean isStoreContainingTid(int rank) {
@@ -62,7 +100,7 @@ public class TidsGenHelper implements Serializable {
         final int totalRanks = rankPairsK.totalRanks();
         int[] rankToSupport = new int[totalRanks]; //initialized with 0's
         for (int[] itemsetAsPairAndSupport : fk) {
-            int rankK = rankPairsK.pairToRank[itemsetAsPairAndSupport[0]][itemsetAsPairAndSupport[1]];
+            int rankK = rankPairsK.getRankByPair(itemsetAsPairAndSupport[0], itemsetAsPairAndSupport[1]);
             int support = itemsetAsPairAndSupport[2];
             rankToSupport[rankK] = support;
         }
@@ -75,20 +113,41 @@ public class TidsGenHelper implements Serializable {
      * as 'this itemset is contained in this transaction'. <br/>
      * The decision is made per k-itemset, i.e. per k-itemset rank. <br/>
      */
-    private static boolean[] computeRankToIsStoreContainingTids(int[] rankToSupport, int totalTids) {
+    private static boolean[] computeRankToIsStoreContainingTids(int[] rankToSupport, long totalWeight) {
         final int totalRanks = rankToSupport.length;
         boolean[] rankToIsStoreContainingTids = new boolean[totalRanks];
         for (int rank=0; rank<totalRanks; ++rank) {
-            rankToIsStoreContainingTids[rank] = (2 * rankToSupport[rank] <= totalTids);
+            rankToIsStoreContainingTids[rank] = (2L * rankToSupport[rank] <= totalWeight);
         }
         return rankToIsStoreContainingTids;
     }
 
-    private TidsGenHelper(boolean[] rankToIsStoreTids, int[] rankToSupport, int totalTids) {
+    private static long sum(int[] arr) {
+        long res = 0;
+        for (int elem : arr) {
+            res += elem;
+        }
+        return res;
+    }
+
+    private TidsGenHelper(boolean[] rankToIsStoreTids, int[] rankToSupport, int totalTids, int[] tidToWeight) {
         this.rankToIsStoreTids = rankToIsStoreTids;
         this.rankToIsStoreTidsBitSet = getRankToIsStoreTidsBitSet(rankToIsStoreTids);
+        this.veryFreqRanks = getVeryFreqRanks(rankToIsStoreTids);
         this.rankToSupportCnt = rankToSupport;
         this.totalTids = totalTids;
+        this.tidToWeight = tidToWeight;
+    }
+
+    private static int[] getVeryFreqRanks(boolean[] rankToIsStoreTids) {
+        int[] res = new int[rankToIsStoreTids.length];
+        int resCnt = 0;
+        for (int rank = 0; rank < rankToIsStoreTids.length; ++rank) {
+            if (!rankToIsStoreTids[rank]) {
+                res[resCnt++] = rank;
+            }
+        }
+        return Arrays.copyOf(res, resCnt);
     }
 
     private static long[] getRankToIsStoreTidsBitSet(boolean[] rankToIsStoreTids) {
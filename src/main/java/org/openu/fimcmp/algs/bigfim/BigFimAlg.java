@@ -4,9 +4,14 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.openu.fimcmp.algs.algbase.AlgBase;
+import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+import org.openu.fimcmp.algs.algbase.RankedInput;
+import org.openu.fimcmp.algs.algbase.VerticalInput;
+import org.openu.fimcmp.algs.apriori.AprioriStepRes;
 import org.openu.fimcmp.cmdline.CmdLineOptions;
 import org.openu.fimcmp.result.FiResultHolder;
 import scala.Tuple2;
+import scala.Tuple3;
 
 
 /**
@@ -41,22 +46,35 @@ public class BigFimAlg extends AlgBase<BigFimAlgProperties, BigFimResult> {
 
     @Override
     public BigFimResult run(JavaSparkContext sc, StopWatch sw) throws Exception {
-        JavaRDD<String[]> trs = readInput(sc, sw);
-
-        pp(sw, "Starting FI computation");
-        BigFimResult res = computeFis(trs, sw);
+        BigFimResult res;
+        if (props.inputFormat == CommonAlgProperties.InputFormat.VERTICAL) {
+            res = computeFis(readVerticalInput(sc, sw), sc);
+        } else {
+            res = computeFis(readRankedInput(sc, sw), sc, sw);
+        }
         res.outputResults(props.isCountingOnly, props.isPrintAllFis, sw);
 
         return res;
     }
 
-    private BigFimResult computeFis(JavaRDD<String[]> trs, StopWatch sw) {
-        BigFimStepExecutor helper = new BigFimStepExecutor(props, computeF1Context(trs, sw));
+    /**
+     * The vertical input already holds the frequent items' TIDs, so there is no point in running Apriori
+     */
+    private BigFimResult computeFis(VerticalInput verticalInput, JavaSparkContext sc) {
+        BigFimStepExecutor helper = new BigFimStepExecutor(props, verticalInput.f1Context, sc);
+        JavaRDD<FiResultHolder> eclatFis = helper.computeWithEclat(verticalInput, sc);
+        return helper.createResult(eclatFis);
+    }
+
+    private BigFimResult computeFis(RankedInput rankedInput, JavaSparkContext sc, StopWatch sw) {
+        BigFimStepExecutor helper = new BigFimStepExecutor(props, rankedInput.f1Context, sc);
 
-        JavaRDD<int[]> ranks1Rdd = helper.computeRddRanks1(trs);
+        JavaRDD<Tuple2<int[], Integer>> ranks1Rdd = toWeightedRanks1(rankedInput.ranks1Rdd, sw);
+        //without the dedup the weighted RDD is just a lazy view of the persisted input:
+        helper.addRddRanks1(props.isDedupTransactions ? ranks1Rdd : rankedInput.ranks1Rdd);
         AprioriStepRes currStep = helper.computeF2(ranks1Rdd);
 
-        JavaRDD<Tuple2<int[], long[]>> ranks1AndK = null;
+        JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndK = null;
         while (currStep != null && helper.isContinueWithApriori()) {
             ranks1AndK = helper.computeCurrSizeRdd(currStep, ranks1AndK, ranks1Rdd, false);
             currStep = helper.computeFk(ranks1AndK, currStep); //FIs of the next size
@@ -1,17 +1,18 @@
 package org.openu.fimcmp.algs.bigfim;
 
-import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+import org.openu.fimcmp.algs.apriori.AprioriAlgProperties;
 
 /**
  * Holds all the properties for BigFim algorithm.
  */
 @SuppressWarnings("WeakerAccess")
-public class BigFimAlgProperties extends CommonAlgProperties {
+public class BigFimAlgProperties extends AprioriAlgProperties {
     /**
      * Determines when to stop Apriori an switch to Eclat. <br/>
      * E.g. prefixLenToStartEclat=2 means that the Apriori should compute F3 (so that the prefix size is 2). <br/>
      * Note that the algorithm could still continue with Apriori if it decides that the dataset is 'sparse',
-     * see {@link #currToPrevResSignificantIncreaseRatio}.
+     * see {@link #currToPrevResSignificantIncreaseRatio}. <br/>
+     * With {@link #aprMultiLevelMaxCounters} the switch to Eclat could happen one size later than without it.
      */
     public final int prefixLenToStartEclat;
 
@@ -3,13 +3,14 @@ package org.openu.fimcmp.algs.bigfim;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
-import org.openu.fimcmp.cmdline.AbstractCmdLineOptionsParser;
+import org.openu.fimcmp.algs.apriori.AbstractAprioriCmdLineOptionsParser;
 import org.openu.fimcmp.cmdline.CmdLineOptions;
 
 /**
  * Parse command line options to create BigFim algorithm
  */
-public class BigFimCmdLineOptionsParser extends AbstractCmdLineOptionsParser<BigFimAlgProperties, BigFimAlg> {
+public class BigFimCmdLineOptionsParser
+        extends AbstractAprioriCmdLineOptionsParser<BigFimAlgProperties, BigFimAlg> {
 
     private static final String ECLAT_PREF_LEN_OPT = "start-eclat-prefix-len";
     private static final String CURR_TO_PREV_THR_OPT = "curr-to-prev-res-ratio-threshold";
@@ -28,6 +29,7 @@ public class BigFimCmdLineOptionsParser extends AbstractCmdLineOptionsParser<Big
 
         options.addOption(null, CURR_TO_PREV_THR_OPT, true,
                 "Threshold to determine sparse datasets for which continue with Apriori");
+        addAprioriOptions(options);
 
         options.addOption(null, ECLAT_DIFF_SETS_OPT, true, "Eclat: whether to enable the diff-sets");
         options.addOption(null, ECLAT_SQUEEZE_OPT, true, "Eclat: whether to enable the squeezing");
@@ -41,6 +43,7 @@ public class BigFimCmdLineOptionsParser extends AbstractCmdLineOptionsParser<Big
 
         algProps.currToPrevResSignificantIncreaseRatio =
                 getDoubleVal(line, CURR_TO_PREV_THR_OPT, "" + algProps.currToPrevResSignificantIncreaseRatio);
+        setAprioriProperties(line, algProps);
 
         algProps.isUseDiffSets = getBooleanVal(line, ECLAT_DIFF_SETS_OPT, algProps.isUseDiffSets);
         algProps.isSqueezingEnabled = getBooleanVal(line, ECLAT_SQUEEZE_OPT, algProps.isSqueezingEnabled);
@@ -2,14 +2,18 @@ package org.openu.fimcmp.algs.bigfim;
 
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
 import org.apache.spark.storage.StorageLevel;
 import org.openu.fimcmp.itemset.ItemsetAndTidsCollection;
 import org.openu.fimcmp.algs.algbase.F1Context;
+import org.openu.fimcmp.algs.algbase.VerticalInput;
 import org.openu.fimcmp.algs.apriori.*;
 import org.openu.fimcmp.algs.eclat.EclatAlg;
 import org.openu.fimcmp.algs.eclat.EclatProperties;
 import org.openu.fimcmp.result.FiResultHolder;
 import scala.Tuple2;
+import scala.Tuple3;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -18,19 +22,15 @@ import java.util.List;
 /**
  * Executes steps of BigFIM algorithm. <br/>
  * Unlike the upper-level BigFimAlg, holds state that allows it to move from one step to the other. <br/>
+ * The Apriori steps are shared with the other algorithms, see {@link AprioriStepExecutor}. <br/>
  */
-class BigFimStepExecutor {
-    private final BigFimAlgProperties props;
-    private final F1Context cxt;
+class BigFimStepExecutor extends AprioriStepExecutor<BigFimAlgProperties> {
     //holds F1, F2, F3, ... - each Fi as a list of itemsets, each itemset as a bitset
     private final ArrayList<List<long[]>> aprioriFis;
-    private final ArrayList<JavaRDD> allRanksRdds;
 
-    BigFimStepExecutor(BigFimAlgProperties props, F1Context cxt) {
-        this.props = props;
-        this.cxt = cxt;
+    BigFimStepExecutor(BigFimAlgProperties props, F1Context cxt, JavaSparkContext sc) {
+        super(props, cxt, sc);
         aprioriFis = new ArrayList<>();
-        allRanksRdds = new ArrayList<>();
 
         aprioriFis.add(cxt.freqItemRanksAsItemsetBs());
     }
@@ -73,73 +73,9 @@ class BigFimStepExecutor {
         return lastRes.size() > 1;
     }
 
-    /**
-     * @return Transactions' RDD, but each transaction is represented as an array of items ranks
-     */
-    JavaRDD<int[]> computeRddRanks1(JavaRDD<String[]> trs) {
-        JavaRDD<int[]> res = cxt.computeRddRanks1(trs);
-        allRanksRdds.add(res);
-        return res;
-    }
-
-    /**
-     * @return Transactions' RDD; for each transaction we have: <br/><ol>
-     * <li>int[] - transaction's items represented as their F1 ranks</li>
-     * <li>long[] - bitset of frequent k-itemsets contained in this transaction</li>
-     * </ol>
-     */
-    JavaRDD<Tuple2<int[], long[]>> computeCurrSizeRdd(
-            AprioriStepRes currStep, JavaRDD<Tuple2<int[], long[]>> ranks1AndKm1, JavaRDD<int[]> ranks1Rdd,
-            boolean isForEclat) {
-        JavaRDD<Tuple2<int[], long[]>> res;
-        StorageLevel storageLevel;
-        if (ranks1AndKm1 == null) {
-            res = cxt.apr.toRddOfRanks1And2(ranks1Rdd, currStep.currSizeRanks);
-            storageLevel = StorageLevel.MEMORY_ONLY_SER();
-        } else {
-            res = cxt.apr.toRddOfRanks1AndK(ranks1AndKm1, currStep.currSizeRanks);
-            storageLevel = StorageLevel.MEMORY_AND_DISK_SER();
-        }
-
-        if (!isForEclat) {
-            res = res.persist(storageLevel);
-            unpersistPrevIfNeeded();
-            cxt.pp("Computed and saved RDD ranks " + currStep.kk);
-        }
-
-        allRanksRdds.add(res);
-        return res;
-    }
-
-    AprioriStepRes computeF2(JavaRDD<int[]> ranks1Rdd) {
-        List<int[]> fkAsArrays = cxt.apr.computeF2_Part(ranks1Rdd, cxt.totalFreqItems);
-
-        FiRanksToFromItems prevSizeAllRanks = new FiRanksToFromItems();
-        return toNextAprioriStep(2, fkAsArrays, cxt.totalFreqItems, prevSizeAllRanks);
-    }
-
-    AprioriStepRes computeFk(JavaRDD<Tuple2<int[], long[]>> ranks1AndK, AprioriStepRes currStep) {
-        NextSizeItemsetGenHelper nextSizeGenHelper = currStep.computeNextSizeGenHelper(cxt.totalFreqItems);
-        final int kp1 = currStep.kk + 1;
-        List<int[]> fkAsArrays = cxt.apr.computeFk_Part(kp1, ranks1AndK, nextSizeGenHelper);
-
-        FiRanksToFromItems prevSizeAllRanks = currStep.currSizeAllRanks;
-        return toNextAprioriStep(kp1, fkAsArrays, currStep.getFkSize(), prevSizeAllRanks);
-    }
-
-    private AprioriStepRes toNextAprioriStep(int kp1, List<int[]> fkAsArrays, int fkSize, FiRanksToFromItems prevSizeAllRanks) {
-        List<int[]> fk = cxt.apr.fkAsArraysToFilteredRankPairs(fkAsArrays); //filter our infrequent candidates
-        if (fk.isEmpty()) {
-            cxt.pp(String.format("F%s is empty => stopping", kp1));
-            return null;
-        }
-
-        AprioriStepRes res = new AprioriStepRes(kp1, fkAsArrays, prevSizeAllRanks, fkSize, cxt);
-
-        res.print(cxt, props.isPrintIntermediateRes);
-
-        aprioriFis.add(res.getItemsetBitsets(cxt));
-        return res;
+    @Override
+    protected void addFis(AprioriStepRes step) {
+        aprioriFis.add(step.getItemsetBitsets(cxt));
     }
 
     /**
@@ -148,13 +84,30 @@ class BigFimStepExecutor {
      * @param ranks1AndK Transactions in the form described in {@link #computeCurrSizeRdd}
      * @return All FIs per (k-1)-rank
      */
-    JavaRDD<FiResultHolder> computeWithEclat(AprioriStepRes currStep, JavaRDD<Tuple2<int[], long[]>> ranks1AndK) {
+    JavaRDD<FiResultHolder> computeWithEclat(
+            AprioriStepRes currStep, JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndK) {
         //Compute list of (itemset, all ots TIds) per (k-1)-rank:
         JavaPairRDD<Integer, ItemsetAndTidsCollection> rKm1ToEclatInput = computeEclatInput(currStep, ranks1AndK);
         cxt.pp("\n\n");
         return computeWithSequentialEclat(rKm1ToEclatInput);
     }
 
+    /**
+     * Run Eclat directly on the frequent items' TIDs, skipping Apriori and the TIDs generation altogether. <br/>
+     * Each frequent item is a separate Eclat prefix, see {@link EclatAlg}. <br/>
+     * The TIDs stay distributed: they are shuffled to the partitions of the prefixes that need them,
+     * so the vertical input is not unpersisted here, as it is the source of the returned RDD.
+     */
+    JavaRDD<FiResultHolder> computeWithEclat(VerticalInput verticalInput, JavaSparkContext sc) {
+        int numParts = Math.max(1, Math.min(cxt.totalFreqItems - 1, sc.defaultParallelism()));
+        if (props.maxEclatNumParts != null) {
+            numParts = Math.min(numParts, props.maxEclatNumParts);
+        }
+        cxt.pp(String.format("Starting Eclat computations (prefixes=%s, parts=%s)", cxt.totalFreqItems - 1, numParts));
+        return newEclatAlg().computeFreqItemsetsRdd(
+                verticalInput.rankAndTidsRdd, cxt.totalFreqItems, (int) cxt.totalTrs, numParts);
+    }
+
     BigFimResult createResult(JavaRDD<FiResultHolder> optionalEclatFis) {
         return new BigFimResult(cxt.itemToRank, cxt.rankToItem, aprioriFis, optionalEclatFis);
     }
@@ -164,21 +117,24 @@ class BigFimStepExecutor {
      * The returned 'input' is a map: (k-1)-rank to list of (itemset, its TIDs)
      */
     private JavaPairRDD<Integer, ItemsetAndTidsCollection> computeEclatInput(
-            AprioriStepRes currStep, JavaRDD<Tuple2<int[], long[]>> ranks1AndK) {
+            AprioriStepRes currStep, JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndK) {
         //prepare the input RDD:
         cxt.pp("Preparing to generate Eclat input");
-        JavaRDD<long[]> kRanksBsRdd = ranks1AndK.map(r1AndK -> r1AndK._2);
+        JavaRDD<Tuple2<long[], Integer>> kRanksBsAndWeightRdd =
+                ranks1AndK.map(r1AndK -> new Tuple2<>(r1AndK._2(), r1AndK._3()));
         unpersistPrevIfNeeded();
-        kRanksBsRdd = kRanksBsRdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        kRanksBsAndWeightRdd = kRanksBsAndWeightRdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        JavaRDD<long[]> kRanksBsRdd = kRanksBsAndWeightRdd.map(r -> r._1);
 
         //compute TIDs
         cxt.pp("Computing TIDs");
-        TidsGenHelper tidsGenHelper = currStep.constructTidGenHelper(cxt.totalTrs);
+        Broadcast<TidsGenHelper> tidsGenHelperBc =
+                broadcast("TIDs helper", constructTidsGenHelper(currStep, kRanksBsAndWeightRdd));
         PairRanks rkToRkm1AndR1 = currStep.currSizeAllRanks.constructRkToRkm1AndR1ForMaxK();
-        JavaRDD<long[][]> rankToTidBsRdd = cxt.apr.computeCurrRankToTidBitSet_Part(kRanksBsRdd, tidsGenHelper);
+        JavaRDD<long[][]> rankToTidBsRdd = cxt.apr.computeCurrRankToTidBitSet_Part(kRanksBsRdd, tidsGenHelperBc);
         rankToTidBsRdd = rankToTidBsRdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
         allRanksRdds.get(allRanksRdds.size() - 2).unpersist(); //the last one computed for Eclat should not be persisted
-        kRanksBsRdd.unpersist();
+        kRanksBsAndWeightRdd.unpersist();
 
         //preparing the input
         Tuple2<Integer, String> eclatNumPartsWithMsg =
@@ -187,22 +143,43 @@ class BigFimStepExecutor {
                 rkToRkm1AndR1.totalElems1(), eclatNumPartsWithMsg._2));
         JavaPairRDD<Integer, List<long[]>> rkm1ToTidSets =
                 cxt.apr.groupTidSetsByRankKm1(rankToTidBsRdd, rkToRkm1AndR1, eclatNumPartsWithMsg._1);
-        SerToMergedTidSets toMergedTidSets = new SerToMergedTidSets(tidsGenHelper, currStep.currSizeAllRanks);
+        SerToMergedTidSets toMergedTidSets = new SerToMergedTidSets(
+                tidsGenHelperBc, broadcast("F" + currStep.kk + " itemsets", currStep.currSizeAllRanks));
         return rkm1ToTidSets.mapValues(toMergedTidSets::mergeTidSetsWithSameRankDropMetadata);
     }
 
+    /**
+     * The TIDs are the indexes of the (possibly collapsed) transactions. <br/>
+     * If the transactions have been collapsed, each TID also gets its weight, so that Eclat could compute the supports.
+     */
+    private TidsGenHelper constructTidsGenHelper(
+            AprioriStepRes currStep, JavaRDD<Tuple2<long[], Integer>> kRanksBsAndWeightRdd) {
+        if (!props.isDedupTransactions) {
+            return currStep.constructTidGenHelper(cxt.totalTrs, null);
+        }
+
+        List<Integer> weights = kRanksBsAndWeightRdd.map(r -> r._2).collect();
+        int[] tidToWeight = new int[weights.size()];
+        for (int tid = 0; tid < tidToWeight.length; ++tid) {
+            tidToWeight[tid] = weights.get(tid);
+        }
+        cxt.pp("Total TIDs: " + tidToWeight.length);
+        return currStep.constructTidGenHelper(tidToWeight.length, tidToWeight);
+    }
+
     //Auxiliary - required since 'BigFimStepExecutor' is not serializable
     private static class SerToMergedTidSets implements Serializable {
-        final TidsGenHelper tidsGenHelper;
-        final FiRanksToFromItems currSizeAllRanks;
+        final Broadcast<TidsGenHelper> tidsGenHelperBc;
+        final Broadcast<FiRanksToFromItems> currSizeAllRanksBc;
 
-        SerToMergedTidSets(TidsGenHelper tidsGenHelper, FiRanksToFromItems currSizeAllRanks) {
-            this.tidsGenHelper = tidsGenHelper;
-            this.currSizeAllRanks = currSizeAllRanks;
+        SerToMergedTidSets(Broadcast<TidsGenHelper> tidsGenHelperBc, Broadcast<FiRanksToFromItems> currSizeAllRanksBc) {
+            this.tidsGenHelperBc = tidsGenHelperBc;
+            this.currSizeAllRanksBc = currSizeAllRanksBc;
         }
 
         ItemsetAndTidsCollection mergeTidSetsWithSameRankDropMetadata(List<long[]> tidSets) {
-            return TidMergeSet.mergeTidSetsWithSameRankDropMetadata(tidSets, tidsGenHelper, currSizeAllRanks);
+            return TidMergeSet.mergeTidSetsWithSameRankDropMetadata(
+                    tidSets, tidsGenHelperBc.value(), currSizeAllRanksBc.value());
         }
     }
 
@@ -212,23 +189,20 @@ class BigFimStepExecutor {
     private JavaRDD<FiResultHolder> computeWithSequentialEclat(
             JavaPairRDD<Integer, ItemsetAndTidsCollection> rKm1ToEclatInput) {
         cxt.pp("Starting Eclat computations");
+        JavaRDD<FiResultHolder> resRdd = newEclatAlg().computeFreqItemsetsRdd(rKm1ToEclatInput);
+        cxt.pp("Num partitions for Eclat: " + resRdd.getNumPartitions());
+
+        return resRdd;
+    }
+
+    private EclatAlg newEclatAlg() {
         EclatProperties eclatProps = new EclatProperties(cxt.minSuppCnt, cxt.totalFreqItems);
         eclatProps.setUseDiffSets(props.isUseDiffSets);
         eclatProps.setSqueezingEnabled(props.isSqueezingEnabled);
         eclatProps.setCountingOnly(props.isCountingOnly);
         eclatProps.setPrintIntermediateRes(props.isPrintIntermediateRes);
         eclatProps.setRankToItem(cxt.rankToItem);
-
-        EclatAlg eclat = new EclatAlg(eclatProps);
-        JavaRDD<FiResultHolder> resRdd = eclat.computeFreqItemsetsRdd(rKm1ToEclatInput);
-        cxt.pp("Num partitions for Eclat: " + resRdd.getNumPartitions());
-
-        return resRdd;
+        return new EclatAlg(eclatProps);
     }
 
-    private void unpersistPrevIfNeeded() {
-        if (allRanksRdds.size() >= 2) {
-            allRanksRdds.get(allRanksRdds.size() - 2).unpersist();
-        }
-    }
 }
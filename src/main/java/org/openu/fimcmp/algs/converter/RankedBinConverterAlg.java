@@ -0,0 +1,52 @@
+package org.openu.fimcmp.algs.converter;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.openu.fimcmp.algs.algbase.AlgBase;
+import org.openu.fimcmp.algs.algbase.RankedInput;
+import org.openu.fimcmp.algs.algbase.RankedTrsFile;
+import org.openu.fimcmp.cmdline.CmdLineOptions;
+
+/**
+ * Not really an algorithm: converts the input into the ranked binary format, see {@link RankedTrsFile}. <br/>
+ * The converted file could then be used by any algorithm with '--input-format RANKED_BINARY'
+ * and any min support at least as large as the one used for the conversion.
+ */
+public class RankedBinConverterAlg extends AlgBase<RankedBinConverterAlgProperties, Void> {
+
+    //--spark-master-url local --input-file-name pumsb.dat --min-supp 0.5 --input-parts-num 1 --output-dir pumsb.rtrs
+    public static void main(String[] args) throws Exception {
+        RankedBinConverterCmdLineOptionsParser cmdLineOptionsParser = new RankedBinConverterCmdLineOptionsParser();
+        CmdLineOptions<RankedBinConverterAlgProperties> runProps = cmdLineOptionsParser.parseCmdLine(args, args[0]);
+        if (runProps == null) {
+            return; //help
+        }
+
+        StopWatch sw = new StopWatch();
+        sw.start();
+        pp(sw, runProps);
+        JavaSparkContext sc = createSparkContext(runProps.isUseKryo, runProps.sparkMasterUrl, sw);
+
+        RankedBinConverterAlg alg = cmdLineOptionsParser.createAlg(runProps);
+        alg.run(sc, sw);
+    }
+
+    public static Class[] getClassesToRegister() {
+        return new Class[]{RankedBinConverterAlgProperties.class, RankedBinConverterAlg.class};
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public RankedBinConverterAlg(RankedBinConverterAlgProperties props, String inputFile) {
+        super(props, inputFile);
+    }
+
+    @Override
+    public Void run(JavaSparkContext sc, StopWatch sw) throws Exception {
+        RankedInput rankedInput = readRankedInput(sc, sw);
+
+        pp(sw, "Writing the ranked transactions to " + props.outputDir);
+        RankedTrsFile.write(props.outputDir, rankedInput.f1Context, rankedInput.ranks1Rdd, sc);
+        pp(sw, "Done writing the ranked transactions to " + props.outputDir);
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package org.openu.fimcmp.algs.converter;
+
+import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+
+/**
+ * Properties for converting the input into the ranked binary format.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RankedBinConverterAlgProperties extends CommonAlgProperties {
+    /**
+     * The directory to write the ranked transactions to, should not exist yet
+     */
+    public final String outputDir;
+
+    /**
+     * @param minSupp the lowest min support the converted file should serve: items infrequent w.r.t. it are dropped
+     */
+    public RankedBinConverterAlgProperties(double minSupp, String outputDir) {
+        super(minSupp);
+        this.outputDir = outputDir;
+    }
+}
@@ -0,0 +1,39 @@
+package org.openu.fimcmp.algs.converter;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.apache.commons.lang3.StringUtils;
+import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+import org.openu.fimcmp.cmdline.AbstractCmdLineOptionsParser;
+import org.openu.fimcmp.cmdline.CmdLineOptions;
+
+/**
+ * Parse command line options to create the ranked binary format converter
+ */
+public class RankedBinConverterCmdLineOptionsParser
+        extends AbstractCmdLineOptionsParser<RankedBinConverterAlgProperties, RankedBinConverterAlg> {
+    private static final String OUTPUT_DIR_OPT = "output-dir";
+
+    @Override
+    public RankedBinConverterAlg createAlg(CmdLineOptions<? extends CommonAlgProperties> cmdLineOptions) {
+        return new RankedBinConverterAlg(
+                (RankedBinConverterAlgProperties) cmdLineOptions.algProps, cmdLineOptions.getInputFile());
+    }
+
+    @Override
+    protected void addAlgSpecificOptions(Options options) {
+        options.addOption(null, OUTPUT_DIR_OPT, true, "The directory to write the ranked transactions to");
+    }
+
+    @Override
+    protected RankedBinConverterAlgProperties createAlgProperties(CommandLine line, double minSupp) {
+        String outputDir = line.getOptionValue(OUTPUT_DIR_OPT);
+        if (StringUtils.isBlank(outputDir)) {
+            throw new IllegalArgumentException(errMsg(OUTPUT_DIR_OPT, outputDir, "<any directory path>"));
+        }
+
+        //unless explicitly requested, keep all the items so that the result could serve any min support:
+        double buildMinSupp = line.hasOption(MIN_SUPP_OPT) ? minSupp : 0;
+        return new RankedBinConverterAlgProperties(buildMinSupp, outputDir);
+    }
+}
@@ -0,0 +1,107 @@
+package org.openu.fimcmp.algs.distapriori;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.openu.fimcmp.algs.algbase.AlgBase;
+import org.openu.fimcmp.algs.algbase.F1Context;
+import org.openu.fimcmp.algs.algbase.RankedInput;
+import org.openu.fimcmp.algs.apriori.AprioriAlg;
+import org.openu.fimcmp.algs.apriori.AprioriAlgProperties;
+import org.openu.fimcmp.algs.apriori.AprioriStepRes;
+import org.openu.fimcmp.cmdline.CmdLineOptions;
+import org.openu.fimcmp.itemset.FreqItemset;
+import org.openu.fimcmp.itemset.FreqItemsetAsRanksBs;
+import org.openu.fimcmp.result.BitsetFiResultHolderFactory;
+import org.openu.fimcmp.result.CountingOnlyFiResultHolderFactory;
+import org.openu.fimcmp.result.FiResultHolder;
+import org.openu.fimcmp.result.FiResultHolderFactory;
+import scala.Tuple2;
+import scala.Tuple3;
+
+import java.util.List;
+
+/**
+ * The main class for the standalone distributed Apriori algorithm. <br/>
+ * Runs the level-wise {@link AprioriAlg} to completion: each level counts its candidates in a single scan
+ * of the transactions persisted by the previous level,
+ * possibly along with the next level's, see {@link AprioriAlgProperties#aprMultiLevelMaxCounters}. <br/>
+ * Unlike BigFIM, it never computes TIDs: only the last level's transactions are kept persisted,
+ * and each level's FIs are added to the result holder as soon as they are computed,
+ * see {@link DistAprioriStepExecutor}. <br/>
+ */
+public class DistAprioriAlg extends AlgBase<DistAprioriAlgProperties, FiResultHolder> {
+
+    public static void main(String[] args) throws Exception {
+        DistAprioriCmdLineOptionsParser cmdLineOptionsParser = new DistAprioriCmdLineOptionsParser();
+        CmdLineOptions<DistAprioriAlgProperties> runProps = cmdLineOptionsParser.parseCmdLine(args, args[0]);
+        if (runProps == null) {
+            return; //help
+        }
+
+        StopWatch sw = new StopWatch();
+        sw.start();
+        pp(sw, runProps);
+        JavaSparkContext sc = createSparkContext(runProps.isUseKryo, runProps.sparkMasterUrl, sw);
+
+        DistAprioriAlg alg = cmdLineOptionsParser.createAlg(runProps);
+        alg.run(sc, sw);
+    }
+
+    public static Class[] getClassesToRegister() {
+        return new Class[]{DistAprioriAlgProperties.class, DistAprioriAlg.class};
+    }
+
+    @SuppressWarnings("WeakerAccess")
+    public DistAprioriAlg(DistAprioriAlgProperties props, String inputFile) {
+        super(props, inputFile);
+    }
+
+    @Override
+    public FiResultHolder run(JavaSparkContext sc, StopWatch sw) throws Exception {
+        RankedInput rankedInput = readRankedInput(sc, sw);
+        F1Context f1Context = rankedInput.f1Context;
+        if (props.isPrintIntermediateRes) {
+            f1Context.printRankToItem();
+        }
+        JavaRDD<Tuple2<int[], Integer>> ranks1Rdd = toWeightedRanks1(rankedInput.ranks1Rdd, sw);
+
+        FiResultHolder resultHolder = newResultHolderFactory(f1Context).newResultHolder();
+        for (long[] f1AsBs : f1Context.freqItemRanksAsItemsetBs()) {
+            resultHolder.addFrequentItemset(
+                    FreqItemsetAsRanksBs.extractSupportCnt(f1AsBs), FreqItemsetAsRanksBs.extractItemset(f1AsBs));
+        }
+
+        DistAprioriStepExecutor helper = new DistAprioriStepExecutor(props, f1Context, sc, resultHolder);
+        //without the dedup the weighted RDD is just a lazy view of the persisted input:
+        helper.addRddRanks1(props.isDedupTransactions ? ranks1Rdd : rankedInput.ranks1Rdd);
+        AprioriStepRes currStep = helper.computeF2(ranks1Rdd);
+
+        JavaRDD<Tuple3<int[], long[], Integer>> ranks1AndK = null;
+        while (currStep != null && currStep.getFkSize() > 1) {
+            ranks1AndK = helper.computeCurrSizeRdd(currStep, ranks1AndK, ranks1Rdd, false);
+            currStep = helper.computeFk(ranks1AndK, currStep); //FIs of the next size
+        }
+        helper.unpersistAllRanksRdds();
+
+        outputResults(resultHolder, f1Context, sw);
+        return resultHolder;
+    }
+
+    private FiResultHolderFactory newResultHolderFactory(F1Context f1Context) {
+        return (props.isCountingOnly) ?
+                new CountingOnlyFiResultHolderFactory(f1Context.totalFreqItems) :
+                new BitsetFiResultHolderFactory(f1Context.totalFreqItems, 20_000);
+    }
+
+    private void outputResults(FiResultHolder resultHolder, F1Context f1Context, StopWatch sw) {
+        pp(sw, "Total results: " + resultHolder.size());
+        if (!props.isCountingOnly) {
+            List<FreqItemset> allFrequentItemsets = resultHolder.getAllFrequentItemsets(f1Context.rankToItem);
+            if (props.isPrintAllFis) {
+                allFrequentItemsets = printAllItemsets(allFrequentItemsets);
+            }
+            pp(sw, "Total results: " + allFrequentItemsets.size());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.openu.fimcmp.algs.distapriori;
+
+import org.openu.fimcmp.algs.apriori.AprioriAlgProperties;
+
+/**
+ * Holds all the properties for the standalone distributed Apriori algorithm. <br/>
+ * It has none beyond those of the level-wise Apriori, see {@link AprioriAlgProperties}.
+ */
+public class DistAprioriAlgProperties extends AprioriAlgProperties {
+    public DistAprioriAlgProperties(double minSupp) {
+        super(minSupp);
+    }
+}
@@ -0,0 +1,31 @@
+package org.openu.fimcmp.algs.distapriori;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+import org.openu.fimcmp.algs.apriori.AbstractAprioriCmdLineOptionsParser;
+import org.openu.fimcmp.cmdline.CmdLineOptions;
+
+/**
+ * Parse command line options to create the standalone distributed Apriori algorithm
+ */
+public class DistAprioriCmdLineOptionsParser
+        extends AbstractAprioriCmdLineOptionsParser<DistAprioriAlgProperties, DistAprioriAlg> {
+
+    @Override
+    public DistAprioriAlg createAlg(CmdLineOptions<? extends CommonAlgProperties> cmdLineOptions) {
+        return new DistAprioriAlg((DistAprioriAlgProperties) cmdLineOptions.algProps, cmdLineOptions.getInputFile());
+    }
+
+    @Override
+    protected void addAlgSpecificOptions(Options options) {
+        addAprioriOptions(options);
+    }
+
+    @Override
+    protected DistAprioriAlgProperties createAlgProperties(CommandLine line, double minSupp) {
+        DistAprioriAlgProperties algProps = new DistAprioriAlgProperties(minSupp);
+        setAprioriProperties(line, algProps);
+        return algProps;
+    }
+}
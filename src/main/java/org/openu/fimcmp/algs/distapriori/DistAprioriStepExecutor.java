@@ -0,0 +1,25 @@
+package org.openu.fimcmp.algs.distapriori;
+
+import org.apache.spark.api.java.JavaSparkContext;
+import org.openu.fimcmp.algs.algbase.F1Context;
+import org.openu.fimcmp.algs.apriori.AprioriStepExecutor;
+import org.openu.fimcmp.algs.apriori.AprioriStepRes;
+import org.openu.fimcmp.result.FiResultHolder;
+
+/**
+ * Executes the Apriori steps of {@link DistAprioriAlg}, adding each level's FIs to the result holder
+ */
+class DistAprioriStepExecutor extends AprioriStepExecutor<DistAprioriAlgProperties> {
+    private final FiResultHolder resultHolder;
+
+    DistAprioriStepExecutor(
+            DistAprioriAlgProperties props, F1Context cxt, JavaSparkContext sc, FiResultHolder resultHolder) {
+        super(props, cxt, sc);
+        this.resultHolder = resultHolder;
+    }
+
+    @Override
+    protected void addFis(AprioriStepRes step) {
+        step.addFisTo(resultHolder, cxt);
+    }
+}
@@ -1,6 +1,7 @@
 package org.openu.fimcmp.algs.eclat;
 
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.spark.HashPartitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.openu.fimcmp.itemset.ItemsetAndTids;
@@ -8,10 +9,12 @@ import org.openu.fimcmp.itemset.ItemsetAndTidsCollection;
 import org.openu.fimcmp.result.BitsetFiResultHolder;
 import org.openu.fimcmp.result.CountingOnlyFiResultHolder;
 import org.openu.fimcmp.result.FiResultHolder;
+import scala.Tuple2;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -36,19 +39,100 @@ public class EclatAlg implements Serializable {
                 .values();
     }
 
+    /**
+     * Same as {@link #computeFreqItemsetsRdd(JavaPairRDD)}, but starts from the frequent items' TIDs,
+     * e.g. from the vertical input. <br/>
+     * Each frequent item is a separate prefix: its Eclat input is the frequent 2-itemsets starting with it,
+     * so it needs the TIDs of all the items of the larger ranks. <br/>
+     * The prefixes are dealt to the partitions round-robin, and the TIDs of each item are shuffled only to the
+     * partitions whose first prefix is not larger than the item, see {@link #toPartsOfLargerPrefixes}. <br/>
+     *
+     * @param rankAndTidsRdd (frequent item rank, its sorted TIDs) per frequent item
+     * @return all the frequent itemsets of size 2 and above
+     */
+    public JavaRDD<FiResultHolder> computeFreqItemsetsRdd(
+            JavaRDD<Tuple2<Integer, int[]>> rankAndTidsRdd, int totalFreqItems, int totalTids, int numParts) {
+        return rankAndTidsRdd
+                .flatMapToPair(rankAndTids -> toPartsOfLargerPrefixes(rankAndTids, totalFreqItems, numParts))
+                .groupByKey(new HashPartitioner(numParts))
+                .flatMap(partAndRankAndTids -> computeFreqItemsetsOfPart(
+                        partAndRankAndTids._1, partAndRankAndTids._2, totalFreqItems, totalTids, numParts));
+    }
+
+    /**
+     * The prefix ranks of partition i are i, i + numParts, i + 2*numParts, ..., so the item of rank r is needed by
+     * the partitions [0, min(r + 1, numParts)): the ones having a prefix rank of at most r. <br/>
+     * The last item is not a prefix, as it has no items to join with.
+     */
+    private static Iterator<Tuple2<Integer, Tuple2<Integer, int[]>>> toPartsOfLargerPrefixes(
+            Tuple2<Integer, int[]> rankAndTids, int totalFreqItems, int numParts) {
+        final int endPart = Math.min(Math.min(rankAndTids._1 + 1, numParts), totalFreqItems - 1);
+        List<Tuple2<Integer, Tuple2<Integer, int[]>>> res = new ArrayList<>(endPart);
+        for (int part = 0; part < endPart; ++part) {
+            res.add(new Tuple2<>(part, rankAndTids));
+        }
+        return res.iterator();
+    }
+
+    /**
+     * @param rankAndTidsIt the TIDs of the items of ranks [part, totalFreqItems), see {@link #toPartsOfLargerPrefixes}
+     */
+    private Iterator<FiResultHolder> computeFreqItemsetsOfPart(
+            int part, Iterable<Tuple2<Integer, int[]>> rankAndTidsIt, int totalFreqItems, int totalTids, int numParts) {
+        ItemsetAndTids[] partF1Tids = new ItemsetAndTids[totalFreqItems - part];
+        for (Tuple2<Integer, int[]> rankAndTids : rankAndTidsIt) {
+            partF1Tids[rankAndTids._1 - part] =
+                    ItemsetAndTids.fromTids(new int[]{rankAndTids._1}, rankAndTids._2, totalTids);
+        }
+
+        List<ItemsetAndTids> sortedF1Tids = Arrays.asList(partF1Tids);
+        List<FiResultHolder> res = new ArrayList<>();
+        for (int rank = part; rank < totalFreqItems - 1; rank += numParts) {
+            res.add(computeFreqItemsetsWithPrefix(rank - part, sortedF1Tids, totalTids));
+        }
+        return res.iterator();
+    }
+
+    /**
+     * @param headInd the index of the prefix item, followed by all the items of the larger ranks
+     */
+    private FiResultHolder computeFreqItemsetsWithPrefix(
+            int headInd, List<ItemsetAndTids> sortedF1Tids, int totalTids) {
+        ItemsetAndTids head = sortedF1Tids.get(headInd);
+        ItemsetAndTidsCollection tail =
+                new ItemsetAndTidsCollection(sortedF1Tids.subList(headInd + 1, sortedF1Tids.size()), 1, totalTids);
+        FiResultHolder res = newResultHolder();
+        ItemsetAndTidsCollection f2WithPrefix = tail.joinWithHead(head, res, props.minSuppCount, props.isUseDiffSets);
+        computeFreqItemsetsSequentially(f2WithPrefix, res);
+        return res;
+    }
+
     private FiResultHolder computeFreqItemsetsSequentially(ItemsetAndTidsCollection initFis) {
         if (initFis.size() <= 1) {
             return BitsetFiResultHolder.emptyHolder();
         }
 
+        FiResultHolder res = newResultHolder();
+        computeFreqItemsetsSequentially(initFis, res);
+        return res;
+    }
+
+    private FiResultHolder newResultHolder() {
+        return (props.isCountingOnly) ?
+                new CountingOnlyFiResultHolder(props.totalFreqItems) : new BitsetFiResultHolder(props.totalFreqItems, 10_000);
+    }
+
+    private void computeFreqItemsetsSequentially(ItemsetAndTidsCollection initFis, FiResultHolder res) {
+        if (initFis.size() <= 1) {
+            return;
+        }
+
         StatPrinter statPrinter = new StatPrinter(props.isPrintIntermediateRes);
 
         initFis.sortByKm1Item();
         statPrinter.onStart(initFis);
         LinkedList<ItemsetAndTidsCollection> queue = new LinkedList<>();
         queue.addFirst(initFis);
-        FiResultHolder res = (props.isCountingOnly) ?
-                new CountingOnlyFiResultHolder(props.totalFreqItems) : new BitsetFiResultHolder(props.totalFreqItems, 10_000);
 
         while (!queue.isEmpty()) {
             ItemsetAndTidsCollection coll = queue.removeFirst().squeezeIfNeeded(props.isSqueezingEnabled);
@@ -62,7 +146,6 @@ public class EclatAlg implements Serializable {
         }
 
         statPrinter.onCompletion(res);
-        return res;
     }
 
     private static void addFirstIfHasPairs(LinkedList<ItemsetAndTidsCollection> queue, ItemsetAndTidsCollection coll) {
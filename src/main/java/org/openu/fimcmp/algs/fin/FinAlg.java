@@ -9,12 +9,16 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.openu.fimcmp.itemset.FreqItemset;
 import org.openu.fimcmp.algs.algbase.AlgBase;
 import org.openu.fimcmp.algs.algbase.F1Context;
+import org.openu.fimcmp.algs.algbase.LocalRankedInput;
+import org.openu.fimcmp.algs.algbase.RankedInput;
 import org.openu.fimcmp.cmdline.CmdLineOptions;
 import org.openu.fimcmp.result.BitsetFiResultHolderFactory;
 import org.openu.fimcmp.result.CountingOnlyFiResultHolderFactory;
 import org.openu.fimcmp.result.FiResultHolder;
 import org.openu.fimcmp.result.FiResultHolderFactory;
+import scala.Tuple2;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -55,6 +59,11 @@ public class FinAlg extends AlgBase<FinAlgProperties, Void> {
 
     @Override
     public Void run(JavaSparkContext sc, StopWatch sw) throws Exception {
+        if (props.isUseLocalInput) {
+            runLocally(sw);
+            return null;
+        }
+
         FinContext ctx = prepareContext(sc, sw);
 
         FiResultHolder resultHolder;
@@ -80,34 +89,56 @@ public class FinAlg extends AlgBase<FinAlgProperties, Void> {
         return null;
     }
 
-    private FinContext prepareContext(JavaSparkContext sc, StopWatch sw) {
+    /**
+     * Same as the {@link FinAlgProperties.RunType#SEQ_PURE_JAVA} run, but with the input read directly
+     * into the driver's memory, so Spark is not involved at all
+     */
+    private void runLocally(StopWatch sw) throws IOException {
+        LocalRankedInput localInput = readLocalRankedInput(sw);
+        F1Context f1Context = localInput.f1Context;
+        if (props.isPrintIntermediateRes) {
+            f1Context.printRankToItem();
+        }
+
+        FiResultHolderFactory resultHolderFactory = newResultHolderFactory(f1Context);
+        FiResultHolder resultHolder = resultHolderFactory.newResultHolder();
+        List<ProcessedNodeset> rootNodesets = FinAlgHelper.createAscFreqSortedRoots(
+                resultHolder, localInput.rankTrs, f1Context, props.requiredItemsetLenForSeqProcessing);
+        processSubtreesSequentially(resultHolder, rootNodesets, f1Context);
+
+        outputResults(resultHolder, f1Context, sw);
+    }
+
+    private FinContext prepareContext(JavaSparkContext sc, StopWatch sw) throws IOException {
         FinContext res = new FinContext();
         res.alg = this;
         res.sw = sw;
         res.sc = sc;
 
-        JavaRDD<String[]> trs = readInput(sc, sw);
-
-        pp(sw, "Starting FI computation");
-        res.f1Context = computeF1Context(trs, sw);
+        RankedInput rankedInput = readRankedInput(sc, sw);
+        res.f1Context = rankedInput.f1Context;
         if (props.isPrintIntermediateRes) {
             res.f1Context.printRankToItem();
         }
-        res.rankTrsRdd = res.f1Context.computeRddRanks1(trs);
+        res.rankTrsRdd = toWeightedRanks1(rankedInput.ranks1Rdd, sw);
 
-        res.resultHolderFactory = (props.isCountingOnly) ?
-                new CountingOnlyFiResultHolderFactory(res.f1Context.totalFreqItems) :
-                new BitsetFiResultHolderFactory(res.f1Context.totalFreqItems, 20_000);
+        res.resultHolderFactory = newResultHolderFactory(res.f1Context);
 
         return res;
     }
 
+    private FiResultHolderFactory newResultHolderFactory(F1Context f1Context) {
+        return (props.isCountingOnly) ?
+                new CountingOnlyFiResultHolderFactory(f1Context.totalFreqItems) :
+                new BitsetFiResultHolderFactory(f1Context.totalFreqItems, 20_000);
+    }
+
     private FiResultHolder collectResultsInParallel(
-            FiResultHolderFactory resultHolderFactory, JavaRDD<int[]> data,
+            FiResultHolderFactory resultHolderFactory, JavaRDD<Tuple2<int[], Integer>> data,
             F1Context f1Context, FinAlgProperties props) {
         int numParts = data.getNumPartitions();
         Partitioner partitioner = new HashPartitioner(numParts);
-        JavaPairRDD<Integer, int[]> partToRankTrsRdd =
+        JavaPairRDD<Integer, Tuple2<int[], Integer>> partToRankTrsRdd =
                 data.flatMapToPair(tr -> FinAlgHelper.genCondTransactions(tr, partitioner));
         return FinAlgHelper.findAllFisByParallelFin(
                 partToRankTrsRdd, partitioner, resultHolderFactory, f1Context, props);
@@ -115,7 +146,7 @@ public class FinAlg extends AlgBase<FinAlgProperties, Void> {
 
 
     private FiResultHolder collectResultsSequentiallyWithSpark(
-            FiResultHolderFactory resultHolderFactory, JavaRDD<int[]> rankTrsRdd, F1Context f1Context,
+            FiResultHolderFactory resultHolderFactory, JavaRDD<Tuple2<int[], Integer>> rankTrsRdd, F1Context f1Context,
             int requiredItemsetLenForSeqProcessing, JavaSparkContext sc) {
 
         FiResultHolder rootsResultHolder = resultHolderFactory.newResultHolder();
@@ -136,14 +167,19 @@ public class FinAlg extends AlgBase<FinAlgProperties, Void> {
     }
 
     private FiResultHolder collectResultsSequentiallyPureJava(
-            FiResultHolderFactory resultHolderFactory, JavaRDD<int[]> rankTrsRdd, F1Context f1Context,
+            FiResultHolderFactory resultHolderFactory, JavaRDD<Tuple2<int[], Integer>> rankTrsRdd, F1Context f1Context,
             int requiredItemsetLenForSeqProcessing) {
 
         FiResultHolder resultHolder = resultHolderFactory.newResultHolder();
         List<ProcessedNodeset> rootNodesets = FinAlgHelper.createAscFreqSortedRoots(
                 resultHolder, rankTrsRdd, f1Context, requiredItemsetLenForSeqProcessing);
+        processSubtreesSequentially(resultHolder, rootNodesets, f1Context);
 
-        //process each subtree
+        return resultHolder;
+    }
+
+    private void processSubtreesSequentially(
+            FiResultHolder resultHolder, List<ProcessedNodeset> rootNodesets, F1Context f1Context) {
         for (ProcessedNodeset rootNodeset : rootNodesets) {
             long sizeBefore = FinAlgHelper.printStartProcessingSubtreeIfNeeded(props.isPrintIntermediateRes, resultHolder, rootNodeset);
 
@@ -151,8 +187,6 @@ public class FinAlg extends AlgBase<FinAlgProperties, Void> {
 
             FinAlgHelper.printEndProcessingSubtreeIfNeeded(props.isPrintIntermediateRes, sizeBefore, resultHolder, rootNodeset);
         }
-
-        return resultHolder;
     }
 
     private void outputResults(FiResultHolder resultHolder, F1Context f1Context, StopWatch sw) {
@@ -171,7 +205,7 @@ public class FinAlg extends AlgBase<FinAlgProperties, Void> {
         JavaSparkContext sc;
         F1Context f1Context;
         FinAlg alg;
-        JavaRDD<int[]> rankTrsRdd;
+        JavaRDD<Tuple2<int[], Integer>> rankTrsRdd;
         FiResultHolderFactory resultHolderFactory;
     }
 }
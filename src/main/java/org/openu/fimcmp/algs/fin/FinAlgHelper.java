@@ -20,10 +20,11 @@ class FinAlgHelper implements Serializable {
     /**
      * Generate 'group-dependent/conditional transactions'. <br/>
      * Copy-paste from FPGrowth.genCondTransactions(). <br/>
-     * @return list of (group-id, conditional-transaction)
+     * @return list of (group-id, (conditional-transaction, weight))
      */
-    static Iterator<Tuple2<Integer, int[]>> genCondTransactions(
-            int[] ascSortedTr, Partitioner partitioner) {
+    static Iterator<Tuple2<Integer, Tuple2<int[], Integer>>> genCondTransactions(
+            Tuple2<int[], Integer> ascSortedTrAndWeight, Partitioner partitioner) {
+        final int[] ascSortedTr = ascSortedTrAndWeight._1;
         final int numParts = partitioner.numPartitions();
         Map<Integer, int[]> resPartToSlice = new HashMap<>(numParts * 2);
         for (int i = ascSortedTr.length - 1; i >= 0; --i) {
@@ -35,9 +36,9 @@ class FinAlgHelper implements Serializable {
             }
         }
 
-        List<Tuple2<Integer, int[]>> res = new ArrayList<>(resPartToSlice.size());
+        List<Tuple2<Integer, Tuple2<int[], Integer>>> res = new ArrayList<>(resPartToSlice.size());
         for (Map.Entry<Integer, int[]> entry : resPartToSlice.entrySet()) {
-            res.add(new Tuple2<>(entry.getKey(), entry.getValue()));
+            res.add(new Tuple2<>(entry.getKey(), new Tuple2<>(entry.getValue(), ascSortedTrAndWeight._2)));
         }
         return res.iterator();
     }
@@ -46,7 +47,7 @@ class FinAlgHelper implements Serializable {
      * The core of PFIN+ algorithm.
      */
     static FiResultHolder findAllFisByParallelFin(
-            JavaPairRDD<Integer, int[]> partToCondTrsRdd, Partitioner partitioner,
+            JavaPairRDD<Integer, Tuple2<int[], Integer>> partToCondTrsRdd, Partitioner partitioner,
             FiResultHolderFactory resultHolderFactory, F1Context f1Context, FinAlgProperties props) {
 
         FiResultHolder rootsResultHolder = resultHolderFactory.newResultHolder();
@@ -55,7 +56,7 @@ class FinAlgHelper implements Serializable {
         //Generate PpcTree per partition.
         //Note that transaction's items are stored in ascending order, i.e. in decreasing frequency
         JavaPairRDD<Integer, PpcTree> partAndTreeRdd = partToCondTrsRdd
-                .aggregateByKey(emptyTree, partitioner, PpcTree::insertTransaction, PpcTree::merge)
+                .aggregateByKey(emptyTree, partitioner, PpcTree::insertWeightedTransaction, PpcTree::merge)
                 .mapValues(PpcTree::withUpdatedPreAndPostOrderNumbers);
 
         //Generate all FIs from the PpcTree objects
@@ -75,13 +76,37 @@ class FinAlgHelper implements Serializable {
      * The FI mining could then proceed either sequentially or in parallel.
      */
     static List<ProcessedNodeset> createAscFreqSortedRoots(
-            FiResultHolder resultHolder, JavaRDD<int[]> rankTrsRdd, F1Context f1Context,
+            FiResultHolder resultHolder, JavaRDD<Tuple2<int[], Integer>> rankTrsRdd, F1Context f1Context,
             int requiredItemsetLenForSeqProcessing) {
 
         //create the single PpcTree
         PpcTree root = createRoot(rankTrsRdd);
 //        root.print(f1Context.rankToItem, "", null);
 
+        return createAscFreqSortedRoots(resultHolder, root, f1Context, requiredItemsetLenForSeqProcessing);
+    }
+
+    /**
+     * Same as {@link #createAscFreqSortedRoots(FiResultHolder, JavaRDD, F1Context, int)},
+     * but for transactions held in the driver's memory.
+     */
+    static List<ProcessedNodeset> createAscFreqSortedRoots(
+            FiResultHolder resultHolder, int[][] rankTrs, F1Context f1Context,
+            int requiredItemsetLenForSeqProcessing) {
+
+        PpcTree root = PpcTree.emptyTree();
+        for (int[] tr : rankTrs) {
+            root.insertTransaction(tr);
+        }
+        root = root.withUpdatedPreAndPostOrderNumbers();
+
+        return createAscFreqSortedRoots(resultHolder, root, f1Context, requiredItemsetLenForSeqProcessing);
+    }
+
+    private static List<ProcessedNodeset> createAscFreqSortedRoots(
+            FiResultHolder resultHolder, PpcTree root, F1Context f1Context,
+            int requiredItemsetLenForSeqProcessing) {
+
         //create root nodesets
         ArrayList<ArrayList<PpcNode>> itemToPpcNodes = root.getPreOrderItemToPpcNodes(f1Context.totalFreqItems);
         ArrayList<DiffNodeset> sortedF1Nodesets = DiffNodeset.createF1NodesetsSortedByAscFreq(itemToPpcNodes);
@@ -89,9 +114,9 @@ class FinAlgHelper implements Serializable {
                 resultHolder, sortedF1Nodesets, f1Context.minSuppCnt, requiredItemsetLenForSeqProcessing, null);
     }
 
-    private static PpcTree createRoot(JavaRDD<int[]> rankTrsRdd) {
+    private static PpcTree createRoot(JavaRDD<Tuple2<int[], Integer>> rankTrsRdd) {
         PpcTree root = PpcTree.emptyTree();
-        root = rankTrsRdd.aggregate(root, PpcTree::insertTransaction, PpcTree::merge);
+        root = rankTrsRdd.aggregate(root, PpcTree::insertWeightedTransaction, PpcTree::merge);
 
         return root.withUpdatedPreAndPostOrderNumbers();
     }
@@ -21,4 +21,10 @@ public class FinAlgProperties extends CommonAlgProperties {
      * item + its sons representing frequent pairs.
      */
     public int requiredItemsetLenForSeqProcessing = 1;
+
+    /**
+     * Whether to read the input file directly into the driver's memory, bypassing Spark. <br/>
+     * Only relevant for {@link RunType#SEQ_PURE_JAVA} with a local TEXT input file.
+     */
+    public boolean isUseLocalInput = false;
 }
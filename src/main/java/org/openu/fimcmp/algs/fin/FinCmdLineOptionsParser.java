@@ -14,6 +14,7 @@ public class FinCmdLineOptionsParser extends AbstractCmdLineOptionsParser<FinAlg
     private static final String RUN_TYPE_ALLOWED_VALUES = StringUtils.join(FinAlgProperties.RunType.values(), " | ");
     private static final String RUN_TYPE_OPT = "run-type";
     private static final String ITEMSET_SEQ_LEN_OPT = "itemset-len-for-seq-processing";
+    private static final String LOCAL_INPUT_OPT = "local-input";
 
     @Override
     public FinAlg createAlg(CmdLineOptions<? extends CommonAlgProperties> cmdLineOptions) {
@@ -26,6 +27,8 @@ public class FinCmdLineOptionsParser extends AbstractCmdLineOptionsParser<FinAlg
 
         options.addOption(null, ITEMSET_SEQ_LEN_OPT, true,
                 "The required itemset length of the nodes processed sequentially on the driver machine, e.g. '1' for items");
+        options.addOption(null, LOCAL_INPUT_OPT, true,
+                "Whether to memory-map the local input file on the driver instead of reading it with Spark, only for SEQ_PURE_JAVA");
     }
 
     @Override
@@ -42,6 +45,13 @@ public class FinCmdLineOptionsParser extends AbstractCmdLineOptionsParser<FinAlg
         algProps.requiredItemsetLenForSeqProcessing = getIntVal(
                 line, ITEMSET_SEQ_LEN_OPT, algProps.requiredItemsetLenForSeqProcessing);
 
+        algProps.isUseLocalInput = getBooleanVal(line, LOCAL_INPUT_OPT, algProps.isUseLocalInput);
+        if (algProps.isUseLocalInput && algProps.runType != FinAlgProperties.RunType.SEQ_PURE_JAVA) {
+            String msg = String.format("Option '--%s true' requires '--%s %s'",
+                    LOCAL_INPUT_OPT, RUN_TYPE_OPT, FinAlgProperties.RunType.SEQ_PURE_JAVA);
+            throw new IllegalArgumentException(msg);
+        }
+
         return algProps;
     }
 }
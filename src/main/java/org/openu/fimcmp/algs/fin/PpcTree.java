@@ -27,7 +27,15 @@ class PpcTree implements Serializable {
      *                 It means that the most frequent items would be closer to the root.
      */
     PpcTree insertTransaction(int[] sortedTr) {
-        insertTransaction(sortedTr, 0);
+        insertSuffix(sortedTr, 0, 1);
+        return this;
+    }
+
+    /**
+     * Same as {@link #insertTransaction(int[])}, but the transaction stands for 'weight' identical transactions
+     */
+    PpcTree insertWeightedTransaction(Tuple2<int[], Integer> sortedTrAndWeight) {
+        insertSuffix(sortedTrAndWeight._1, 0, sortedTrAndWeight._2);
         return this;
     }
 
@@ -36,13 +44,13 @@ class PpcTree implements Serializable {
         return this;
     }
 
-    private void insertTransaction(int[] sortedTr, int currInd) {
+    private void insertSuffix(int[] sortedTr, int currInd, int weight) {
         if (currInd >= sortedTr.length) {
             return; //recursion end
         }
 
-        PpcTree child = insertItem(sortedTr[currInd]);
-        child.insertTransaction(sortedTr, currInd + 1);
+        PpcTree child = insertItem(sortedTr[currInd], weight);
+        child.insertSuffix(sortedTr, currInd + 1, weight);
     }
 
     PpcTree withUpdatedPreAndPostOrderNumbers() {
@@ -127,10 +135,6 @@ class PpcTree implements Serializable {
         }
     }
 
-    private PpcTree insertItem(int item) {
-        return insertItem(item, 1);
-    }
-
     private PpcTree insertItem(int item, int cnt) {
         if (itemToChildNode == null) {
             itemToChildNode = new TreeMap<>();
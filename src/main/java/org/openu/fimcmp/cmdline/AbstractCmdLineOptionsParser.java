@@ -15,9 +15,19 @@ public abstract class AbstractCmdLineOptionsParser<P extends CommonAlgProperties
     private static final String MASTER_URL_OPT = "spark-master-url";
     private static final String USE_KRYO_OPT = "use-kryo";
     private static final String INPUT_FILE_OPT = "input-file-name";
-    private static final String MIN_SUPP_OPT = "min-supp";
+    private static final String INPUT_FORMAT_OPT = "input-format";
+    private static final String INPUT_FORMAT_ALLOWED_VALUES =
+            StringUtils.join(CommonAlgProperties.InputFormat.values(), " | ");
+    private static final String PARQUET_ITEMS_COLUMN_OPT = "parquet-items-column";
+    private static final String PARQUET_FILTER_OPT = "parquet-filter";
+    protected static final String MIN_SUPP_OPT = "min-supp";
     private static final String INPUT_PARTS_NUM_OPT = "input-parts-num";
     private static final String PERSIST_INPUT_OPT = "persist-input";
+    private static final String ITEM_DICTIONARY_OPT = "use-item-dictionary";
+    private static final String DEDUP_TRS_OPT = "dedup-transactions";
+    private static final String RANKED_CACHE_DIR_OPT = "ranked-cache-dir";
+    private static final String COST_BALANCED_PARTS_NUM_OPT = "cost-balanced-parts-num";
+    private static final String DHP_BUCKETS_NUM_OPT = "dhp-buckets-num";
     private static final String PRINT_PART_OPT = "print-intermediate-res";
     private static final String PRINT_FIS_OPT = "print-all-fis";
     private static final String SLEEP_OPT = "sleep-seconds";
@@ -71,6 +81,14 @@ public abstract class AbstractCmdLineOptionsParser<P extends CommonAlgProperties
         }
     }
 
+    protected static Integer getOptPositiveIntVal(CommandLine line, String opt, Integer defaultVal) {
+        Integer res = getOptIntVal(line, opt, defaultVal);
+        if (res != null && res <= 0) {
+            throw new IllegalArgumentException(errMsg(opt, "" + res, "<any positive integer number>"));
+        }
+        return res;
+    }
+
     protected static double getDoubleVal(CommandLine line, String opt, String defaultVal) {
         String val = line.getOptionValue(opt, defaultVal);
         try {
@@ -104,11 +122,28 @@ public abstract class AbstractCmdLineOptionsParser<P extends CommonAlgProperties
         options.addOption(null, USE_KRYO_OPT, false, "Whether to use kryo serialization library");
         options.addOption(null, INPUT_FILE_OPT, true,
                 String.format("Either an absolute path or a path relative to '%s' environment variable", CmdLineOptions.INPUT_PATH_ENV_VAR));
+        options.addOption(null, INPUT_FORMAT_OPT, true, "Input file format: " + INPUT_FORMAT_ALLOWED_VALUES);
+        options.addOption(null, PARQUET_ITEMS_COLUMN_OPT, true,
+                "Name of the PARQUET input column holding the items as array<string> or array<int>");
+        options.addOption(null, PARQUET_FILTER_OPT, true,
+                "Optional SQL condition to select the PARQUET input rows, e.g. \"country = 'IL'\"");
 
         options.addOption(null, MIN_SUPP_OPT, true, "Min support");
 
         options.addOption(null, INPUT_PARTS_NUM_OPT, true, "Number of partitions to read the input file");
         options.addOption(null, PERSIST_INPUT_OPT, true, "Whether to persist the input RDD");
+        options.addOption(null, ITEM_DICTIONARY_OPT, true,
+                "Whether to map the text input items to per-partition int ids before computing F1 " +
+                        "(the input is then parsed once and persisted as ints)");
+        options.addOption(null, DEDUP_TRS_OPT, true,
+                "Whether to collapse identical transactions (after removing infrequent items) into weighted ones");
+        options.addOption(null, COST_BALANCED_PARTS_NUM_OPT, true,
+                "Number of partitions to repartition the ranked transactions into by their counting cost");
+        options.addOption(null, DHP_BUCKETS_NUM_OPT, true,
+                "Number of hash buckets to count the item pairs in during the F1 pass, to prune the F2 candidates " +
+                        "(slows down the F1 pass, pays off on sparse data only)");
+        options.addOption(null, RANKED_CACHE_DIR_OPT, true,
+                "Directory to cache the ranked text input in, reused by the runs with the same or larger min support");
 
         options.addOption(null, PRINT_PART_OPT, true,
                 "Whether to print F1, F2, ..., and also some progress info");
@@ -122,6 +157,16 @@ public abstract class AbstractCmdLineOptionsParser<P extends CommonAlgProperties
         return options;
     }
 
+    private static CommonAlgProperties.InputFormat getInputFormat(
+            CommandLine line, CommonAlgProperties.InputFormat defaultVal) {
+        String val = line.getOptionValue(INPUT_FORMAT_OPT, defaultVal.name());
+        try {
+            return CommonAlgProperties.InputFormat.valueOf(val);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException(errMsg(INPUT_FORMAT_OPT, val, INPUT_FORMAT_ALLOWED_VALUES));
+        }
+    }
+
     private void printHelp(Options options, String algName) {
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp(algName, options);
@@ -136,8 +181,17 @@ public abstract class AbstractCmdLineOptionsParser<P extends CommonAlgProperties
 
         P algProps = createAlgProperties(line, minSupp);
 
+        algProps.inputFormat = getInputFormat(line, algProps.inputFormat);
+        algProps.parquetItemsColumn = line.getOptionValue(PARQUET_ITEMS_COLUMN_OPT, algProps.parquetItemsColumn);
+        algProps.parquetFilter = line.getOptionValue(PARQUET_FILTER_OPT, algProps.parquetFilter);
         algProps.inputNumParts = getIntVal(line, INPUT_PARTS_NUM_OPT, algProps.inputNumParts);
         algProps.isPersistInput = getBooleanVal(line, PERSIST_INPUT_OPT, algProps.isPersistInput);
+        algProps.isUseItemDictionary = getBooleanVal(line, ITEM_DICTIONARY_OPT, algProps.isUseItemDictionary);
+        algProps.isDedupTransactions = getBooleanVal(line, DEDUP_TRS_OPT, algProps.isDedupTransactions);
+        algProps.rankedCacheDir = line.getOptionValue(RANKED_CACHE_DIR_OPT, algProps.rankedCacheDir);
+        algProps.costBalancedNumParts =
+                getOptPositiveIntVal(line, COST_BALANCED_PARTS_NUM_OPT, algProps.costBalancedNumParts);
+        algProps.dhpNumBuckets = getOptPositiveIntVal(line, DHP_BUCKETS_NUM_OPT, algProps.dhpNumBuckets);
 
         algProps.isPrintIntermediateRes = getBooleanVal(line, PRINT_PART_OPT, algProps.isPrintIntermediateRes);
         final String cntOnlyOptionName = getCntOnlyOptionName();
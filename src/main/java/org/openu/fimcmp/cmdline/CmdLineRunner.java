@@ -7,6 +7,8 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.openu.fimcmp.algs.algbase.AlgBase;
 import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
 import org.openu.fimcmp.algs.bigfim.BigFimCmdLineOptionsParser;
+import org.openu.fimcmp.algs.converter.RankedBinConverterCmdLineOptionsParser;
+import org.openu.fimcmp.algs.distapriori.DistAprioriCmdLineOptionsParser;
 import org.openu.fimcmp.algs.fin.FinCmdLineOptionsParser;
 import org.openu.fimcmp.algs.fpgrowth.FpGrowthCmdLineOptionsParser;
 import org.openu.fimcmp.util.Assert;
@@ -24,9 +26,11 @@ public class CmdLineRunner {
 
     private static Map<String, ICmdLineOptionsParser<? extends CommonAlgProperties, ? extends AlgBase>> defaultAlgNameToAlgOptionsParser() {
         Map<String, ICmdLineOptionsParser<? extends CommonAlgProperties, ? extends AlgBase>> res = new TreeMap<>();
+        res.put("APRIORI", new DistAprioriCmdLineOptionsParser());
         res.put("BIG_FIM", new BigFimCmdLineOptionsParser());
         res.put("FIN", new FinCmdLineOptionsParser());
         res.put("FP_GROWTH", new FpGrowthCmdLineOptionsParser());
+        res.put("TO_RANKED_BINARY", new RankedBinConverterCmdLineOptionsParser());
         return res;
     }
 
@@ -27,6 +27,15 @@ public class ItemsetAndTids implements Serializable {
         this.isTidsDiffSet = isTidsDiffSet;
     }
 
+    /**
+     * @param sortedTids the TIDs in the range [0, totalTids)
+     */
+    public static ItemsetAndTids fromTids(int[] itemset, int[] sortedTids, int totalTids) {
+        long[] tidBitSet = new long[BitArrays.requiredSize(totalTids, TIDS_START_IND)];
+        BitArrays.setAll(tidBitSet, TIDS_START_IND, sortedTids);
+        return new ItemsetAndTids(itemset, tidBitSet, sortedTids.length);
+    }
+
     public int[] getItemset() {
         return itemset;
     }
@@ -104,10 +113,12 @@ public class ItemsetAndTids implements Serializable {
      * - Then, when isTidsDiffSet=true and tidBitSet means diff set: <br/>
      * ---- d(PXY) = d(PY) / d(PX) <br/>
      * ---- support(PXY) = support(PX) - |d(PXY)| <br/>
-     * Need to compute the new itemset PXY, d(PXY), and support(PXY)
+     * Need to compute the new itemset PXY, d(PXY), and support(PXY) <br/>
+     * @param tidToWeight optional weight of each TID for the transactions collapsed into a single one,
+     *                    null means each TID counts as 1
      */
     public ItemsetAndTids computeNewFromNextDiffsetWithSamePrefixOrNull(
-            ItemsetAndTids is2, int totalTids, long minSuppCount, boolean isUseDiffSets) {
+            ItemsetAndTids is2, int totalTids, int[] tidToWeight, long minSuppCount, boolean isUseDiffSets) {
         final int isLen = itemset.length;
         Assert.isTrue(isLen == is2.itemset.length);
         Assert.isTrue(itemset[isLen-1] < is2.itemset[isLen-1]);
@@ -117,13 +128,13 @@ public class ItemsetAndTids implements Serializable {
         int newSupportCnt;
         if (!isUseDiffSets) {
             newDiffSet = BitArrays.andReturn(tidBitSet, is2.tidBitSet, TIDS_START_IND, totalTids);
-            newSupportCnt = computeSetCardinality(newDiffSet);
+            newSupportCnt = computeSetCardinality(newDiffSet, tidToWeight);
         } else if (!isTidsDiffSet) {
             long[] actNewTids = BitArrays.andReturn(tidBitSet, is2.tidBitSet, TIDS_START_IND, totalTids);
             //d(PXY) = tids(PX) / tids(PY)
             newDiffSet = BitArrays.diffReturn(tidBitSet, actNewTids, TIDS_START_IND, totalTids);
 //            newDiffSet = actNewTids;
-            newSupportCnt = computeSetCardinality(actNewTids);
+            newSupportCnt = computeSetCardinality(actNewTids, tidToWeight);
         } else {
             //d(PXY) = d(PY) / d(PX):
 
@@ -133,7 +144,7 @@ public class ItemsetAndTids implements Serializable {
                 throw new RuntimeException(e);
             }
             //support(PXY) = support(PX) - |d(PXY)|:
-            newSupportCnt = Math.max(0, supportCnt - computeSetCardinality(newDiffSet));
+            newSupportCnt = Math.max(0, supportCnt - computeSetCardinality(newDiffSet, tidToWeight));
         }
 
         if (newSupportCnt < minSuppCount) {
@@ -167,8 +178,11 @@ public class ItemsetAndTids implements Serializable {
                 Arrays.toString(BitArrays.asNumbers(tidBitSet, TIDS_START_IND)));
     }
 
-    private static int computeSetCardinality(long[] tidBitSet) {
-        return BitArrays.cardinality(tidBitSet, TIDS_START_IND);
+    private static int computeSetCardinality(long[] tidBitSet, int[] tidToWeight) {
+        if (tidToWeight == null) {
+            return BitArrays.cardinality(tidBitSet, TIDS_START_IND);
+        }
+        return BitArrays.weightedCardinality(tidBitSet, TIDS_START_IND, tidToWeight);
     }
 
     private static void addAll(Set<Integer> res, int[] arrSet) {
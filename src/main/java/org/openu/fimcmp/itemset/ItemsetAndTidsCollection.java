@@ -20,14 +20,26 @@ public class ItemsetAndTidsCollection implements Serializable {
 
     private final LinkedList<ItemsetAndTids> itemsetAndTidsList;
     private final int totalTids;
+    /**
+     * Optional weight per TID, see {@link org.openu.fimcmp.algs.algbase.WeightedRanks}. <br/>
+     * Null means each TID counts as 1.
+     */
+    private final int[] tidToWeight;
     private final int itemsetSize;
 
     public ItemsetAndTidsCollection(
             List<ItemsetAndTids> itemsetAndTidsList, int itemsetSize, int totalTids) {
+        this(itemsetAndTidsList, itemsetSize, totalTids, null);
+    }
+
+    public ItemsetAndTidsCollection(
+            List<ItemsetAndTids> itemsetAndTidsList, int itemsetSize, int totalTids, int[] tidToWeight) {
         Assert.isTrue(itemsetAndTidsList != null);
+        Assert.isTrue(tidToWeight == null || tidToWeight.length == totalTids);
 
         this.itemsetAndTidsList = new LinkedList<>(itemsetAndTidsList);
         this.totalTids = totalTids;
+        this.tidToWeight = tidToWeight;
         this.itemsetSize = itemsetSize;
     }
 
@@ -63,14 +75,15 @@ public class ItemsetAndTidsCollection implements Serializable {
         LinkedList<ItemsetAndTids> resList = new LinkedList<>();
         for (ItemsetAndTids is2 : itemsetAndTidsList) {
             ItemsetAndTids newIs =
-                    head.computeNewFromNextDiffsetWithSamePrefixOrNull(is2, totalTids, minSuppCount, isUseDiffSets);
+                    head.computeNewFromNextDiffsetWithSamePrefixOrNull(
+                            is2, totalTids, tidToWeight, minSuppCount, isUseDiffSets);
             if (newIs != null) {
                 resList.add(newIs);
                 totalResult.addFrequentItemset(newIs.getSupportCount(), newIs.getItemset());
             }
         }
 
-        return new ItemsetAndTidsCollection(resList, itemsetSize + 1, totalTids);
+        return new ItemsetAndTidsCollection(resList, itemsetSize + 1, totalTids, tidToWeight);
     }
 
     public int getTotalTids() {
@@ -101,14 +114,18 @@ public class ItemsetAndTidsCollection implements Serializable {
         ArrayList<ItemsetAndTids> inTidsList = new ArrayList<>(itemsetAndTidsList);
         int[] tidsToKeep = BitArrays.asNumbers(tidsToKeepBitSet, TIDS_START_IND);
         ArrayList<ItemsetAndTids> resTidsList = initNewItemsetAndTidList(inTidsList, resTotalTids);
+        int[] resTidToWeight = (tidToWeight != null) ? new int[resTotalTids] : null;
         int resTid = 0;
         for (int origTid : tidsToKeep) {
             setTidToEachMatchingItemset(resTidsList, resTid, inTidsList, origTid);
+            if (resTidToWeight != null) {
+                resTidToWeight[resTid] = tidToWeight[origTid];
+            }
             ++resTid;
         }
 
 //        System.out.println(String.format("%-15s done squeezing", tt(sw)));
-        return new ItemsetAndTidsCollection(resTidsList, itemsetSize, resTotalTids);
+        return new ItemsetAndTidsCollection(resTidsList, itemsetSize, resTotalTids, resTidToWeight);
     }
 
     @SuppressWarnings("unused")
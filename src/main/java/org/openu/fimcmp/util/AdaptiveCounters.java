@@ -0,0 +1,162 @@
+package org.openu.fimcmp.util;
+
+import java.io.Serializable;
+
+/**
+ * Fixed-size array of non-negative counters, held in the narrowest of byte[], short[] and int[]
+ * that fits all of them. <br/>
+ * Starts with bytes, i.e. counters up to 255, and promotes the whole array to shorts (up to 65535)
+ * and then to ints once some counter overflows. <br/>
+ * Most of the candidate itemsets have small counts in a single partition,
+ * so this holds (and serializes) the counts in 1/4 to 1/2 of the memory of int[]. <br/>
+ * Designed to be as fast as possible, assumes all arguments are correct. <br/>
+ */
+public class AdaptiveCounters implements Serializable {
+    private static final int MAX_BYTE = 0xFF;
+    private static final int MAX_SHORT = 0xFFFF;
+
+    //exactly one of these is not null:
+    private byte[] bytes;
+    private short[] shorts;
+    private int[] ints;
+
+    public AdaptiveCounters(int size) {
+        this.bytes = new byte[size];
+    }
+
+    public int size() {
+        if (bytes != null) {
+            return bytes.length;
+        }
+        return (shorts != null) ? shorts.length : ints.length;
+    }
+
+    /**
+     * @return 1, 2 or 4
+     */
+    public int bytesPerCounter() {
+        if (bytes != null) {
+            return 1;
+        }
+        return (shorts != null) ? 2 : 4;
+    }
+
+    public int get(int ind) {
+        if (bytes != null) {
+            return bytes[ind] & MAX_BYTE;
+        }
+        return (shorts != null) ? (shorts[ind] & MAX_SHORT) : ints[ind];
+    }
+
+    public void add(int ind, int delta) {
+        int newVal = get(ind) + delta;
+        ensureFits(newVal);
+        set(ind, newVal);
+    }
+
+    /**
+     * Adds the delta to the counters at (inds[ii] - indOffset) for ii in [fromInd, toInd)
+     */
+    public void addAll(int[] inds, int fromInd, int toInd, int indOffset, int delta) {
+        int ii = fromInd;
+        if (bytes != null) {
+            for (; ii < toInd; ++ii) {
+                final int ind = inds[ii] - indOffset;
+                final int newVal = (bytes[ind] & MAX_BYTE) + delta;
+                if (newVal > MAX_BYTE) {
+                    break;
+                }
+                bytes[ind] = (byte) newVal;
+            }
+            if (ii == toInd) {
+                return;
+            }
+            ensureFits((bytes[inds[ii] - indOffset] & MAX_BYTE) + delta);
+        }
+
+        if (shorts != null) {
+            for (; ii < toInd; ++ii) {
+                final int ind = inds[ii] - indOffset;
+                final int newVal = (shorts[ind] & MAX_SHORT) + delta;
+                if (newVal > MAX_SHORT) {
+                    break;
+                }
+                shorts[ind] = (short) newVal;
+            }
+            if (ii == toInd) {
+                return;
+            }
+            ensureFits(MAX_SHORT + 1);
+        }
+
+        for (; ii < toInd; ++ii) {
+            ints[inds[ii] - indOffset] += delta;
+        }
+    }
+
+    /**
+     * Adds the other counters to these ones, both should have the same size
+     */
+    public void addAll(AdaptiveCounters other) {
+        final int size = size();
+        if (ints == null) {
+            int maxSum = 0;
+            for (int ind = 0; ind < size; ++ind) {
+                maxSum = Math.max(maxSum, get(ind) + other.get(ind));
+            }
+            ensureFits(maxSum);
+        }
+
+        if (bytes != null) {
+            for (int ind = 0; ind < size; ++ind) {
+                bytes[ind] = (byte) ((bytes[ind] & MAX_BYTE) + other.get(ind));
+            }
+        } else if (shorts != null) {
+            for (int ind = 0; ind < size; ++ind) {
+                shorts[ind] = (short) ((shorts[ind] & MAX_SHORT) + other.get(ind));
+            }
+        } else {
+            for (int ind = 0; ind < size; ++ind) {
+                ints[ind] += other.get(ind);
+            }
+        }
+    }
+
+    private void set(int ind, int val) {
+        if (bytes != null) {
+            bytes[ind] = (byte) val;
+        } else if (shorts != null) {
+            shorts[ind] = (short) val;
+        } else {
+            ints[ind] = val;
+        }
+    }
+
+    /**
+     * Promotes the counters to the width that can hold the value, if needed
+     */
+    private void ensureFits(int val) {
+        if (bytes != null && val > MAX_BYTE) {
+            if (val <= MAX_SHORT) {
+                shorts = new short[bytes.length];
+                for (int ind = 0; ind < bytes.length; ++ind) {
+                    shorts[ind] = (short) (bytes[ind] & MAX_BYTE);
+                }
+            } else {
+                ints = new int[bytes.length];
+                for (int ind = 0; ind < bytes.length; ++ind) {
+                    ints[ind] = bytes[ind] & MAX_BYTE;
+                }
+            }
+            bytes = null;
+        }
+
+        if (shorts != null && val > MAX_SHORT) {
+            ints = new int[shorts.length];
+            for (int ind = 0; ind < shorts.length; ++ind) {
+                ints[ind] = shorts[ind] & MAX_SHORT;
+            }
+            shorts = null;
+        }
+    }
+}
@@ -10,7 +10,6 @@ public class BitArrays {
     private final static int ADDRESS_BITS_PER_WORD = 6;
     private final static int BITS_PER_WORD = (1<<ADDRESS_BITS_PER_WORD);
 
-    @SuppressWarnings("unused")
     public static void setAll(long[] words, int bitSetStartInd, int[] bitIndexes) {
         for (int bitIndex : bitIndexes) {
             set(words, bitSetStartInd, bitIndex);
@@ -40,6 +39,22 @@ public class BitArrays {
         return cardinality(words, bitSetStartInd, words.length);
     }
 
+    /**
+     * @return the sum of the weights of all the set bits, bitToWeight[bit] being the weight of a single bit
+     */
+    public static int weightedCardinality(long[] words, int bitSetStartInd, int[] bitToWeight) {
+        int sum = 0;
+        for (int wordInd = bitSetStartInd; wordInd < words.length; ++wordInd) {
+            long word = words[wordInd];
+            final int base = (wordInd - bitSetStartInd) * BITS_PER_WORD;
+            while (word != 0) {
+                sum += bitToWeight[base + Long.numberOfTrailingZeros(word)];
+                word &= (word - 1);
+            }
+        }
+        return sum;
+    }
+
     public static int min(long[] words, int startInd) {
         return min(words, startInd, startInd, words.length);
     }
@@ -169,6 +184,50 @@ public class BitArrays {
         return res;
     }
 
+    /**
+     * Same as asNumbers(andReturn(words1, words2, bitSetStartInd, words1.length), bitSetStartInd),
+     * but without allocating: the two bit sets are intersected word-by-word on the fly. <br/>
+     * The buffer should be able to hold all the common set bits. <br/>
+     *
+     * @return the number of the numbers written to resBuf
+     */
+    public static int andAsNumbers(long[] words1, long[] words2, int bitSetStartInd, int[] resBuf) {
+        return andAsNumbers(words1, bitSetStartInd, words2, bitSetStartInd, resBuf);
+    }
+
+    /**
+     * Same as {@link #andAsNumbers(long[], long[], int, int[])}, for bit sets starting at different indexes
+     */
+    public static int andAsNumbers(long[] words1, int startInd1, long[] words2, int startInd2, int[] resBuf) {
+        final int totalWords = Math.min(words1.length - startInd1, words2.length - startInd2);
+        int resInd = 0;
+        for (int ii = 0; ii < totalWords; ++ii) {
+            long word = words1[startInd1 + ii] & words2[startInd2 + ii];
+            if (word != 0) {
+                resInd = getWordBitsAsNumbers(resBuf, resInd, ii * BITS_PER_WORD, word);
+            }
+        }
+        return resInd;
+    }
+
+    /**
+     * Same as {@link #asNumbers(long[], int)}, but without allocating. <br/>
+     * The buffer should be able to hold all the set bits. <br/>
+     *
+     * @return the number of the numbers written to resBuf
+     */
+    public static int asNumbers(long[] words, int bitSetStartInd, int[] resBuf) {
+        int resInd = 0;
+        for (int wordIndex = bitSetStartInd; wordIndex < words.length; ++wordIndex) {
+            long word = words[wordIndex];
+            if (word != 0) {
+                int base = (wordIndex - bitSetStartInd) * BITS_PER_WORD;
+                resInd = getWordBitsAsNumbers(resBuf, resInd, base, word);
+            }
+        }
+        return resInd;
+    }
+
     public static int getWordBitsAsNumbersToArr(int[] res, long word, int startInd, int wordInd) {
         int base = (wordInd - startInd) * BITS_PER_WORD;
         return getWordBitsAsNumbers(res, 0, base, word);
@@ -0,0 +1,119 @@
+package org.openu.fimcmp.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing (linear probing) hash map from non-negative int keys to int values. <br/>
+ * Holds the keys and the values in two plain arrays, so neither the entries nor the values are boxed. <br/>
+ * Intended for counting: a missing key is equivalent to a zero value. <br/>
+ * Designed to be as fast as possible, assumes all arguments are correct. <br/>
+ */
+public class IntIntOpenHashMap implements Serializable {
+    private static final int FREE_KEY = -1;
+
+    private int[] keys;
+    private int[] vals;
+    private int size;
+    private int mask;
+
+    /**
+     * Callback for {@link #forEach(EntryConsumer)}
+     */
+    public interface EntryConsumer {
+        void accept(int key, int val);
+    }
+
+    public IntIntOpenHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public void addTo(int key, int delta) {
+        int ind = findSlot(key);
+        if (keys[ind] == key) {
+            vals[ind] += delta;
+            return;
+        }
+
+        keys[ind] = key;
+        vals[ind] = delta;
+        if (++size > (mask >> 1)) {
+            rehash(2 * keys.length);
+        }
+    }
+
+    public int get(int key) {
+        int ind = findSlot(key);
+        return (keys[ind] == key) ? vals[ind] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addAll(IntIntOpenHashMap other) {
+        for (int ii = 0; ii < other.keys.length; ++ii) {
+            if (other.keys[ii] != FREE_KEY) {
+                addTo(other.keys[ii], other.vals[ii]);
+            }
+        }
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int ii = 0; ii < keys.length; ++ii) {
+            if (keys[ii] != FREE_KEY) {
+                consumer.accept(keys[ii], vals[ii]);
+            }
+        }
+    }
+
+    /**
+     * @return the slot holding the key, or the free slot where it should be inserted
+     */
+    private int findSlot(int key) {
+        int ind = mix(key) & mask;
+        while (keys[ind] != FREE_KEY && keys[ind] != key) {
+            ind = (ind + 1) & mask;
+        }
+        return ind;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldVals = vals;
+        allocate(newCapacity);
+        for (int ii = 0; ii < oldKeys.length; ++ii) {
+            if (oldKeys[ii] != FREE_KEY) {
+                int ind = findSlot(oldKeys[ii]);
+                keys[ind] = oldKeys[ii];
+                vals[ind] = oldVals[ii];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        vals = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return power of 2, large enough to hold the expected size without rehashing
+     */
+    static int capacityFor(int expectedSize) {
+        int res = 16;
+        while ((res >> 1) <= expectedSize) {
+            res <<= 1;
+        }
+        return res;
+    }
+
+    /**
+     * Spreads the bits, since consecutive keys would otherwise form long probing chains
+     */
+    static int mix(int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,95 @@
+package org.openu.fimcmp.util;
+
+import java.io.Serializable;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Open-addressing (linear probing) hash map from non-null object keys to int values. <br/>
+ * Same as {@link IntIntOpenHashMap}, but for object keys: no entry objects are created and the values are not boxed.
+ * <br/>
+ * Intended for counting: a missing key is equivalent to a zero value. <br/>
+ */
+public class ObjIntOpenHashMap<K> implements Serializable {
+    private Object[] keys;
+    private int[] vals;
+    private int size;
+    private int mask;
+
+    public ObjIntOpenHashMap(int expectedSize) {
+        allocate(IntIntOpenHashMap.capacityFor(expectedSize));
+    }
+
+    public void addTo(K key, int delta) {
+        int ind = findSlot(key);
+        if (keys[ind] != null) {
+            vals[ind] += delta;
+            return;
+        }
+
+        keys[ind] = key;
+        vals[ind] = delta;
+        if (++size > (mask >> 1)) {
+            rehash(2 * keys.length);
+        }
+    }
+
+    public int get(K key) {
+        int ind = findSlot(key);
+        return (keys[ind] != null) ? vals[ind] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addAll(ObjIntOpenHashMap<K> other) {
+        for (int ii = 0; ii < other.keys.length; ++ii) {
+            if (other.keys[ii] != null) {
+                addTo(other.keyAt(ii), other.vals[ii]);
+            }
+        }
+    }
+
+    public void forEach(ObjIntConsumer<K> consumer) {
+        for (int ii = 0; ii < keys.length; ++ii) {
+            if (keys[ii] != null) {
+                consumer.accept(keyAt(ii), vals[ii]);
+            }
+        }
+    }
+
+    /**
+     * @return the slot holding the key, or the free slot where it should be inserted
+     */
+    private int findSlot(Object key) {
+        int ind = IntIntOpenHashMap.mix(key.hashCode()) & mask;
+        while (keys[ind] != null && !keys[ind].equals(key)) {
+            ind = (ind + 1) & mask;
+        }
+        return ind;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K keyAt(int ind) {
+        return (K) keys[ind];
+    }
+
+    private void rehash(int newCapacity) {
+        Object[] oldKeys = keys;
+        int[] oldVals = vals;
+        allocate(newCapacity);
+        for (int ii = 0; ii < oldKeys.length; ++ii) {
+            if (oldKeys[ii] != null) {
+                int ind = findSlot(oldKeys[ii]);
+                keys[ind] = oldKeys[ii];
+                vals[ind] = oldVals[ii];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        vals = new int[capacity];
+        mask = capacity - 1;
+    }
+}
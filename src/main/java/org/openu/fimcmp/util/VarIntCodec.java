@@ -0,0 +1,139 @@
+package org.openu.fimcmp.util;
+
+import java.util.Arrays;
+
+/**
+ * Variable-length encoding of non-negative integers: 7 bits per byte, the high bit marks 'more bytes follow'. <br/>
+ * Sorted arrays (e.g. transaction ranks) are stored as their length followed by deltas between consecutive elements,
+ * so that the typical small gaps take a single byte. <br/>
+ * Designed to be as fast as possible, assumes all arguments are correct. <br/>
+ */
+public class VarIntCodec {
+    private static final int MAX_VAR_INT_BYTES = 5;
+
+    /**
+     * Growable byte buffer to encode into. <br/>
+     * Can be reused after {@link #reset()} to avoid re-allocations.
+     */
+    public static class Writer {
+        private byte[] buf;
+        private int size;
+
+        public Writer(int initCapacity) {
+            this.buf = new byte[Math.max(initCapacity, MAX_VAR_INT_BYTES)];
+        }
+
+        public void writeVarInt(int val) {
+            ensureCapacity(MAX_VAR_INT_BYTES);
+            size = VarIntCodec.writeVarInt(buf, size, val);
+        }
+
+        /**
+         * Writes the array length followed by the deltas of its elements. <br/>
+         * The array is assumed to be sorted in ascending order and to hold non-negative elements.
+         */
+        public void writeSortedArr(int[] sortedArr) {
+            ensureCapacity(MAX_VAR_INT_BYTES * (1 + sortedArr.length));
+            size = VarIntCodec.writeVarInt(buf, size, sortedArr.length);
+            int prev = 0;
+            for (int elem : sortedArr) {
+                size = VarIntCodec.writeVarInt(buf, size, elem - prev);
+                prev = elem;
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        public void reset() {
+            size = 0;
+        }
+
+        private void ensureCapacity(int extraBytes) {
+            if (size + extraBytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(2 * buf.length, size + extraBytes));
+            }
+        }
+    }
+
+    /**
+     * Reads the values written by {@link Writer} from the range [startInd, endInd) of a byte array. <br/>
+     */
+    public static class Reader {
+        private final byte[] buf;
+        private final int endInd;
+        private int pos;
+        private int[] scratch = new int[64];
+
+        public Reader(byte[] buf, int startInd, int endInd) {
+            this.buf = buf;
+            this.pos = startInd;
+            this.endInd = endInd;
+        }
+
+        public boolean hasMore() {
+            return pos < endInd;
+        }
+
+        public int readVarInt() {
+            int res = 0;
+            int shift = 0;
+            byte bb;
+            do {
+                bb = buf[pos++];
+                res |= (bb & 0x7F) << shift;
+                shift += 7;
+            } while (bb < 0);
+            return res;
+        }
+
+        public int[] readSortedArr() {
+            final int len = readVarInt();
+            int[] res = new int[len];
+            int elem = 0;
+            for (int ii = 0; ii < len; ++ii) {
+                elem += readVarInt();
+                res[ii] = elem;
+            }
+            return res;
+        }
+
+        /**
+         * Reads the entire sorted array, but only returns its elements smaller than 'maxElemExc'. <br/>
+         * Since the array is sorted, the returned elements are its prefix.
+         */
+        public int[] readSortedArr(int maxElemExc) {
+            final int len = readVarInt();
+            if (scratch.length < len) {
+                scratch = new int[Math.max(len, 2 * scratch.length)];
+            }
+
+            int resLen = 0;
+            int elem = 0;
+            for (int ii = 0; ii < len; ++ii) {
+                elem += readVarInt();
+                if (elem < maxElemExc) {
+                    scratch[resLen++] = elem;
+                }
+            }
+            return Arrays.copyOf(scratch, resLen);
+        }
+    }
+
+    /**
+     * @return the position right after the written value
+     */
+    public static int writeVarInt(byte[] buf, int pos, int val) {
+        while ((val & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+        buf[pos++] = (byte) val;
+        return pos;
+    }
+}
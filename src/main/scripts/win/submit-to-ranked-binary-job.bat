@@ -0,0 +1 @@
+%SPARK_HOME%\bin\spark-submit --class org.openu.fimcmp.cmdline.CmdLineRunner --master spark://192.168.1.68:7077 --driver-memory 1200m --driver-cores 1 --executor-memory 1200m --total-executor-cores 2 --executor-cores 1 --num-executors 2 file://c/projects/fim-cmp/target/fim-cmp-1.0-SNAPSHOT.jar TO_RANKED_BINARY --spark-master-url spark://192.168.1.68:7077 --input-file-name pumsb.dat --min-supp 0.5 --input-parts-num 3 --output-dir c:/projects/data/pumsb.rtrs --print-intermediate-res false
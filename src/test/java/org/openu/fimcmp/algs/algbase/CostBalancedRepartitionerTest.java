@@ -0,0 +1,91 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CostBalancedRepartitionerTest {
+
+    @Test
+    public void cost_should_count_the_pairs_plus_one() {
+        assertThat(CostBalancedRepartitioner.cost(new int[0]), is(1L));
+        assertThat(CostBalancedRepartitioner.cost(new int[]{7}), is(1L));
+        assertThat(CostBalancedRepartitioner.cost(new int[]{1, 2, 3, 4}), is(7L));
+    }
+
+    @Test
+    public void toTargetPartAndTr_should_balance_the_costs_and_keep_every_transaction() {
+        //the long transactions are all in the first input partition:
+        Random random = new Random(1);
+        List<List<int[]>> inputParts = new ArrayList<>();
+        inputParts.add(newTrs(40, 30, random));
+        for (int ii = 0; ii < 3; ++ii) {
+            inputParts.add(newTrs(500, 3, random));
+        }
+        long[] inputPartToCost = new long[inputParts.size()];
+        long maxTrCost = 0;
+        for (int partInd = 0; partInd < inputParts.size(); ++partInd) {
+            for (int[] tr : inputParts.get(partInd)) {
+                inputPartToCost[partInd] += CostBalancedRepartitioner.cost(tr);
+                maxTrCost = Math.max(maxTrCost, CostBalancedRepartitioner.cost(tr));
+            }
+        }
+        CostBalancedRepartitioner.PartitionCosts inputCosts =
+                new CostBalancedRepartitioner.PartitionCosts(inputPartToCost);
+
+        final int numParts = 6;
+        CostBalancedRepartitioner repartitioner = new CostBalancedRepartitioner(numParts);
+        long[] partToStartCost = inputCosts.partToStartCost();
+        double costPerPart = repartitioner.costPerPart(inputCosts);
+        long[] outputPartToCost = new long[numParts];
+        IdentityHashMap<int[], Boolean> outputTrs = new IdentityHashMap<>();
+        for (int partInd = 0; partInd < inputParts.size(); ++partInd) {
+            Iterator<Tuple2<Integer, int[]>> it = repartitioner.toTargetPartAndTr(
+                    inputParts.get(partInd).iterator(), partToStartCost[partInd], costPerPart);
+            while (it.hasNext()) {
+                Tuple2<Integer, int[]> partAndTr = it.next();
+                outputPartToCost[partAndTr._1] += CostBalancedRepartitioner.cost(partAndTr._2);
+                outputTrs.put(partAndTr._2, true);
+            }
+        }
+        CostBalancedRepartitioner.PartitionCosts outputCosts =
+                new CostBalancedRepartitioner.PartitionCosts(outputPartToCost);
+
+        for (List<int[]> inputPart : inputParts) {
+            for (int[] tr : inputPart) {
+                assertThat(outputTrs.containsKey(tr), is(true));
+            }
+        }
+        assertThat(outputTrs.size(), is(40 + 3 * 500));
+        assertThat(outputCosts.totalCost(), is(inputCosts.totalCost()));
+        //the imbalance is at most the cost of a single transaction:
+        assertTrue(outputCosts.toString(), outputCosts.maxCost() <= costPerPart + maxTrCost);
+        assertTrue(outputCosts.toString(), outputCosts.imbalanceRatio() < inputCosts.imbalanceRatio());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_should_reject_non_positive_number_of_partitions() {
+        new CostBalancedRepartitioner(0);
+    }
+
+    private static List<int[]> newTrs(int totalTrs, int maxLen, Random random) {
+        List<int[]> res = new ArrayList<>(totalTrs);
+        for (int ii = 0; ii < totalTrs; ++ii) {
+            int[] tr = new int[1 + random.nextInt(maxLen)];
+            for (int jj = 0; jj < tr.length; ++jj) {
+                tr[jj] = jj;
+            }
+            res.add(tr);
+        }
+        return res;
+    }
+}
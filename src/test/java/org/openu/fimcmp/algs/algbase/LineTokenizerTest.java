@@ -0,0 +1,53 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class LineTokenizerTest {
+    private LineTokenizer tokenizer;
+
+    @Before
+    public void setUp() {
+        tokenizer = new LineTokenizer();
+    }
+
+    @Test
+    public void test_whitespaces() {
+        assertArrayEquals(new String[]{"1", "10", "2"}, tokenizer.toSortedItemsArr("10 2  1"));
+        assertArrayEquals(new String[]{"a", "b", "c"}, tokenizer.toSortedItemsArr("\tc\tb a \r"));
+        assertArrayEquals(new String[]{"x", "y"}, tokenizer.toSortedItemsArr("  y   x\r\n"));
+        assertArrayEquals(new String[0], tokenizer.toSortedItemsArr(""));
+        assertArrayEquals(new String[0], tokenizer.toSortedItemsArr(" \t \r"));
+    }
+
+    @Test
+    public void test_duplicates() {
+        assertArrayEquals(new String[]{"a", "ab", "b"}, tokenizer.toSortedItemsArr("b a ab a b ab"));
+        assertThat(tokenizer.toSortedItemsList("3 3 3"), is(Collections.singletonList("3")));
+    }
+
+    @Test
+    public void test_same_as_sorted_set() {
+        final Random rand = new Random(10L);
+        for (int ii = 0; ii < 1000; ++ii) {
+            final int totalToks = rand.nextInt(200);
+            StringBuilder line = new StringBuilder();
+            SortedSet<String> expRes = new TreeSet<>();
+            for (int tok = 0; tok < totalToks; ++tok) {
+                String item = "" + rand.nextInt(300);
+                if (rand.nextBoolean()) {
+                    item = "i" + item;
+                }
+                expRes.add(item);
+                line.append(item).append(rand.nextInt(5) == 0 ? "  " : " ");
+            }
+
+            assertThat(tokenizer.toSortedItemsList(line.toString()), is(new ArrayList<>(expRes)));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class MappedTextInputTest {
+    private Path inputFile;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        inputFile = Files.createTempFile("mapped-text-input", ".txt");
+        pool = new ForkJoinPool(3);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.shutdown();
+        Files.deleteIfExists(inputFile);
+    }
+
+    @Test
+    public void test_small_file() throws Exception {
+        String content = "a b c\r\n\n c  a\t\nb d\na";
+        Files.write(inputFile, content.getBytes(StandardCharsets.UTF_8));
+
+        for (int chunkSize = 1; chunkSize <= content.length() + 1; ++chunkSize) {
+            MappedTextInput input = MappedTextInput.parse(inputFile, chunkSize, pool);
+            assertThat(input.totalTrs, is(5L));
+
+            List<Tuple2<String, Integer>> sortedF1 = input.getSortedF1(2);
+            assertThat(sortedF1.size(), is(3));
+            assertThat(sortedF1.get(0), is(new Tuple2<>("a", 3)));
+            assertThat(new HashSet<>(sortedF1.subList(1, 3)),
+                    is(new HashSet<>(Arrays.asList(new Tuple2<>("b", 2), new Tuple2<>("c", 2)))));
+
+            Map<String, Integer> itemToRank = BasicOps.itemToRank(BasicOps.toItems(sortedF1));
+            int[][] rankTrs = input.toRankTrs(itemToRank);
+            assertThat(rankTrs.length, is(5));
+            assertArrayEquals(toRanks(itemToRank, "a", "b", "c"), rankTrs[0]);
+            assertArrayEquals(new int[0], rankTrs[1]);
+            assertArrayEquals(toRanks(itemToRank, "a", "c"), rankTrs[2]);
+            assertArrayEquals(toRanks(itemToRank, "b"), rankTrs[3]);
+            assertArrayEquals(toRanks(itemToRank, "a"), rankTrs[4]);
+        }
+    }
+
+    @Test
+    public void test_same_as_line_tokenizer() throws Exception {
+        Random rand = new Random(3L);
+        List<String> lines = new ArrayList<>();
+        for (int ii = 0; ii < 2000; ++ii) {
+            StringBuilder line = new StringBuilder();
+            for (int jj = rand.nextInt(20); jj > 0; --jj) {
+                line.append(rand.nextInt(50)).append(' ');
+            }
+            lines.add(line.toString());
+        }
+        Files.write(inputFile, lines, StandardCharsets.UTF_8);
+
+        MappedTextInput input = MappedTextInput.parse(inputFile, 1000, pool);
+        assertThat(input.totalTrs, is((long) lines.size()));
+        List<Tuple2<String, Integer>> sortedF1 = input.getSortedF1(300);
+        Map<String, Integer> itemToRank = BasicOps.itemToRank(BasicOps.toItems(sortedF1));
+        int[][] rankTrs = input.toRankTrs(itemToRank);
+
+        LineTokenizer tokenizer = new LineTokenizer();
+        for (int ii = 0; ii < lines.size(); ++ii) {
+            String[] items = tokenizer.toSortedItemsArr(lines.get(ii));
+            assertArrayEquals(BasicOps.getMappedFilteredAndSortedTrs(items, itemToRank), rankTrs[ii]);
+        }
+    }
+
+    private static int[] toRanks(Map<String, Integer> itemToRank, String... items) {
+        return BasicOps.getMappedFilteredAndSortedTrs(items, itemToRank);
+    }
+}
@@ -0,0 +1,37 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.junit.Test;
+import org.openu.fimcmp.util.IntIntOpenHashMap;
+import scala.Tuple2;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ParquetInputTest {
+
+    @Test
+    public void toSortedItems_should_sort_and_remove_duplicates_and_nulls() {
+        String[] res = ParquetInput.toSortedItems(Arrays.asList("milk", null, "bread", "milk", "apple"));
+        assertArrayEquals(new String[]{"apple", "bread", "milk"}, res);
+    }
+
+    @Test
+    public void toSortedItemIds_should_sort_and_remove_duplicates_and_nulls() {
+        int[] res = ParquetInput.toSortedItemIds(Arrays.asList(170, 3, null, 3, 1000000));
+        assertArrayEquals(new int[]{3, 170, 1000000}, res);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toSortedItemIds_should_reject_negative_ids() {
+        ParquetInput.toSortedItemIds(Arrays.asList(1, -2));
+    }
+
+    @Test
+    public void getMappedFilteredAndSortedTrs_should_drop_infrequent_ids() {
+        IntIntOpenHashMap idToRankPlus1 = ParquetInput.toIdToRankPlus1(Arrays.asList(
+                new Tuple2<>(1000000, 50), new Tuple2<>(3, 40), new Tuple2<>(0, 30)));
+        int[] res = ParquetInput.getMappedFilteredAndSortedTrs(new int[]{0, 3, 170, 1000000}, idToRankPlus1);
+        assertArrayEquals(new int[]{0, 1, 2}, res);
+    }
+}
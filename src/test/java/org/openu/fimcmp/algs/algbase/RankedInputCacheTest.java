@@ -0,0 +1,105 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openu.fimcmp.SparkContextFactory;
+import org.openu.fimcmp.algs.apriori.AprioriAlg;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+public class RankedInputCacheTest {
+    private static final long TOTAL_TRS = 100;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private JavaSparkContext sc;
+    private File cacheDir;
+    private RankedInputCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        sc = SparkContextFactory.createSparkContext(false, "local");
+        cacheDir = tmpFolder.newFolder("cache");
+        String inputFile = tmpFolder.newFile("input.txt").getAbsolutePath();
+        cache = RankedInputCache.forInput(cacheDir.getAbsolutePath(), inputFile, sc);
+    }
+
+    @After
+    public void tearDown() {
+        sc.stop();
+    }
+
+    @Test
+    public void findEntryOrNull_should_return_null_if_nothing_is_stored() throws Exception {
+        assertThat(cache.findEntryOrNull(0.5, sc), nullValue());
+    }
+
+    @Test
+    public void findEntryOrNull_should_choose_the_largest_usable_entry() throws Exception {
+        store(10);
+        store(20);
+
+        assertThat(entrySuppCnt(cache.findEntryOrNull(0.3, sc)), is(20L));
+        assertThat(entrySuppCnt(cache.findEntryOrNull(0.2, sc)), is(20L));
+        assertThat(entrySuppCnt(cache.findEntryOrNull(0.15, sc)), is(10L));
+        assertThat(cache.findEntryOrNull(0.05, sc), nullValue());
+    }
+
+    @Test
+    public void store_should_remove_the_larger_entries_and_leave_no_temporary_ones() throws Exception {
+        store(10);
+        store(20);
+        store(5);
+
+        assertThat(entrySuppCnt(cache.findEntryOrNull(0.3, sc)), is(5L));
+        assertThat(entrySuppCnt(cache.findEntryOrNull(0.05, sc)), is(5L));
+        File[] inputCacheDirs = cacheDir.listFiles();
+        assertThat(inputCacheDirs.length, is(1));
+        assertThat(Arrays.asList(inputCacheDirs[0].list()), is(Arrays.asList("supp-5")));
+    }
+
+    @Test
+    public void store_should_keep_the_existing_entry_of_the_same_support() throws Exception {
+        store(10);
+        String entry = cache.findEntryOrNull(0.1, sc);
+        assertThat(entryFile(entry).isDirectory(), is(true));
+        long modificationTime = entryFile(entry).lastModified();
+
+        store(10);
+        assertThat(cache.findEntryOrNull(0.1, sc), is(entry));
+        assertThat(entryFile(entry).lastModified(), is(modificationTime));
+    }
+
+    private void store(long minSuppCnt) throws Exception {
+        List<Tuple2<String, Integer>> sortedF1 = new ArrayList<>();
+        sortedF1.add(new Tuple2<>("a", 60));
+        sortedF1.add(new Tuple2<>("b", (int) minSuppCnt));
+        F1Context f1Context = new F1Context(new AprioriAlg<>(minSuppCnt), sortedF1,
+                new TrsCount(TOTAL_TRS, minSuppCnt), null, new StopWatch());
+        cache.store(f1Context, sc.parallelize(Arrays.asList(new int[]{0, 1}, new int[]{0})), sc);
+    }
+
+    private static long entrySuppCnt(String entry) {
+        assertThat(entry, notNullValue());
+        String entryName = entryFile(entry).getName();
+        assertThat(entryName, startsWith("supp-"));
+        return Long.parseLong(entryName.substring("supp-".length()));
+    }
+
+    private static File entryFile(String entry) {
+        return new File(entry.replaceFirst("^file:", ""));
+    }
+}
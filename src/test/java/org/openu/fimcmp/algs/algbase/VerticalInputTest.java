@@ -0,0 +1,24 @@
+package org.openu.fimcmp.algs.algbase;
+
+import org.junit.Test;
+import scala.Tuple2;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class VerticalInputTest {
+
+    @Test
+    public void parseLine_should_sort_tids_and_remove_duplicates() {
+        Tuple2<String, int[]> res = VerticalInput.parseLine("milk\t17 3  0 42 3\r");
+        assertThat(res._1, is("milk"));
+        assertArrayEquals(new int[]{0, 3, 17, 42}, res._2);
+    }
+
+    @Test
+    public void parseLine_should_allow_items_without_tids() {
+        Tuple2<String, int[]> res = VerticalInput.parseLine("bread");
+        assertThat(res._1, is("bread"));
+        assertArrayEquals(new int[0], res._2);
+    }
+}
@@ -1,7 +1,16 @@
 package org.openu.fimcmp.algs.apriori;
 
 import org.junit.Before;
+import org.junit.Test;
+import scala.Tuple2;
+import scala.Tuple3;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -13,4 +22,111 @@ public class AprCandidateFisGeneratorTest {
     public void setUp() throws Exception {
         gen = new AprCandidateFisGenerator();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void countCandsKAndKp1_Part_should_count_both_sizes_in_single_scan() {
+        for (NextSizeItemsetGenHelper.CountingEngine engine :
+                new NextSizeItemsetGenHelper.CountingEngine[]{
+                        NextSizeItemsetGenHelper.CountingEngine.DENSE, NextSizeItemsetGenHelper.CountingEngine.TRIE}) {
+            checkCountCandsKAndKp1(engine);
+        }
+    }
+
+    private void checkCountCandsKAndKp1(NextSizeItemsetGenHelper.CountingEngine engine) {
+        final int totalItems = 7;
+        Random random = new Random(1);
+        //F2 = all the pairs but a few:
+        List<int[]> f2 = new ArrayList<>();
+        for (int item1 = 0; item1 < totalItems; ++item1) {
+            for (int item2 = item1 + 1; item2 < totalItems; ++item2) {
+                if ((item1 + item2) % 5 != 0) {
+                    f2.add(new int[]{item1, item2, 1 + random.nextInt(100)});
+                }
+            }
+        }
+        CurrSizeFiRanks f2Ranks = CurrSizeFiRanks.construct(f2, totalItems, totalItems);
+        FiRanksToFromItems f2AllRanks = new FiRanksToFromItems(f2Ranks);
+        NextSizeItemsetGenHelper genHelper3 = NextSizeItemsetGenHelper.construct(
+                f2AllRanks, totalItems, f2Ranks.getTotalCurrSizeRanks(), engine);
+        CurrSizeFiRanks cand3Ranks = CurrSizeFiRanks.construct(
+                genHelper3.getCandsAsPairs(), totalItems, f2Ranks.getTotalCurrSizeRanks());
+        NextSizeItemsetGenHelper genHelper4 = NextSizeItemsetGenHelper.construct(
+                f2AllRanks.toNextSize(cand3Ranks), totalItems, (int) genHelper3.getTotalCands(), engine);
+        assertTrue(genHelper4.getTotalCands() > 0);
+
+        List<Tuple3<int[], long[], Integer>> trs = new ArrayList<>();
+        for (int trInd = 0; trInd < 50; ++trInd) {
+            int[] sortedTr = random.ints(random.nextInt(totalItems + 1), 0, totalItems).distinct().sorted().toArray();
+            trs.add(gen.toSortedRanks1AndBitArrayOfRanks2(sortedTr, 1 + random.nextInt(3), f2Ranks));
+        }
+
+        CandCounts expCounts3 = gen.countCandsK_Part(trs.iterator(), 2, genHelper3).next();
+        Tuple2<CandCounts, CandCounts> counts3And4 =
+                gen.countCandsKAndKp1_Part(trs.iterator(), 2, genHelper3, cand3Ranks, genHelper4).next();
+        for (int[] cand3 : genHelper3.getCandsAsPairs()) {
+            assertThat(counts3And4._1.get(cand3[0], cand3[1]), is(expCounts3.get(cand3[0], cand3[1])));
+        }
+
+        for (int[] cand4 : genHelper4.getCandsAsPairs()) {
+            int[] itemAndRank2 = cand3Ranks.getCurrSizeFiAsPairByRank(cand4[1]);
+            int[] pair = f2Ranks.getCurrSizeFiAsPairByRank(itemAndRank2[1]);
+            int[] itemset = {cand4[0], itemAndRank2[0], pair[0], pair[1]};
+            String msg = engine + " " + Arrays.toString(itemset);
+            assertThat(msg, counts3And4._2.get(cand4[0], cand4[1]), is(countContaining(trs, itemset)));
+        }
+    }
+
+    @Test
+    public void trimTr_should_not_change_the_next_size_counts() {
+        final int totalItems = 12;
+        Random random = new Random(3);
+        List<int[]> f2 = new ArrayList<>();
+        for (int item1 = 0; item1 < totalItems; ++item1) {
+            for (int item2 = item1 + 1; item2 < totalItems; ++item2) {
+                if (random.nextInt(3) != 0) {
+                    f2.add(new int[]{item1, item2, 1 + random.nextInt(100)});
+                }
+            }
+        }
+        CurrSizeFiRanks f2Ranks = CurrSizeFiRanks.construct(f2, totalItems, totalItems);
+        FiRanksToFromItems f2AllRanks = new FiRanksToFromItems(f2Ranks);
+        NextSizeItemsetGenHelper genHelper3 = NextSizeItemsetGenHelper.construct(
+                f2AllRanks, totalItems, f2Ranks.getTotalCurrSizeRanks(), NextSizeItemsetGenHelper.CountingEngine.DENSE);
+        FkTransactionTrimmer trimmer = new FkTransactionTrimmer(f2AllRanks, f2Ranks.getTotalCurrSizeRanks());
+
+        List<Tuple3<int[], long[], Integer>> trs = new ArrayList<>();
+        List<Tuple3<int[], long[], Integer>> trimmedTrs = new ArrayList<>();
+        int totalItemsBefore = 0;
+        int totalItemsAfter = 0;
+        for (int trInd = 0; trInd < 200; ++trInd) {
+            int[] sortedTr = random.ints(random.nextInt(7), 0, totalItems).distinct().sorted().toArray();
+            Tuple3<int[], long[], Integer> tr = gen.toSortedRanks1AndBitArrayOfRanks2(sortedTr, 1, f2Ranks);
+            trs.add(tr);
+            totalItemsBefore += sortedTr.length;
+            gen.trimTr(tr, trimmer).forEachRemaining(trimmedTrs::add);
+        }
+        for (Tuple3<int[], long[], Integer> trimmedTr : trimmedTrs) {
+            assertTrue(trimmedTr._1().length > 2);
+            totalItemsAfter += trimmedTr._1().length;
+        }
+        assertTrue(totalItemsAfter < totalItemsBefore);
+
+        CandCounts expCounts = gen.countCandsK_Part(trs.iterator(), 2, genHelper3).next();
+        CandCounts actCounts = gen.countCandsK_Part(trimmedTrs.iterator(), 2, genHelper3).next();
+        for (int[] cand3 : genHelper3.getCandsAsPairs()) {
+            assertThat(actCounts.get(cand3[0], cand3[1]), is(expCounts.get(cand3[0], cand3[1])));
+        }
+    }
+
+    private static int countContaining(List<Tuple3<int[], long[], Integer>> trs, int[] itemset) {
+        int res = 0;
+        for (Tuple3<int[], long[], Integer> tr : trs) {
+            boolean isContained = true;
+            for (int item : itemset) {
+                isContained &= (Arrays.binarySearch(tr._1(), item) >= 0);
+            }
+            res += isContained ? tr._3() : 0;
+        }
+        return res;
+    }
+}
@@ -0,0 +1,171 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CandCountsTest {
+    private static final int TOTAL_ITEMS = 30;
+
+    @Test
+    public void pair_layouts_should_give_the_same_columns_as_the_dense_one() {
+        CandCounts dense = countRandomPairs(CandCounts.Layout.DENSE);
+        CandCounts triangular = countRandomPairs(CandCounts.Layout.TRIANGULAR);
+        CandCounts sparse = countRandomPairs(CandCounts.Layout.SPARSE);
+
+        for (int elem1 = 0; elem1 < TOTAL_ITEMS; ++elem1) {
+            int[] expCol = dense.toCol(elem1);
+            assertArrayEquals("elem1=" + elem1, expCol, triangular.toCol(elem1));
+            assertArrayEquals("elem1=" + elem1, expCol, sparse.toCol(elem1));
+        }
+        assertThat(triangular.get(TOTAL_ITEMS - 2, TOTAL_ITEMS - 1), is(dense.get(TOTAL_ITEMS - 2, TOTAL_ITEMS - 1)));
+        assertThat(triangular.get(5, 3), is(0));
+    }
+
+    @Test
+    public void toCol_should_omit_trailing_zeros() {
+        CandCounts counts = CandCounts.newCounts(CandCounts.Layout.TRIANGULAR, 10, 10);
+        counts.addAll(2, new int[]{3, 5}, 0, 2, 7);
+        assertArrayEquals(new int[]{2, 0, 0, 0, 7, 0, 7}, counts.toCol(2));
+        assertArrayEquals(new int[]{4}, counts.toCol(4));
+    }
+
+    @Test
+    public void newPairCounts_should_switch_to_sparse_layout_for_large_f1() {
+        assertThat(CandCounts.choosePairsLayout(1000), is(CandCounts.Layout.TRIANGULAR));
+        assertThat(CandCounts.choosePairsLayout(20000), is(CandCounts.Layout.SPARSE));
+    }
+
+    @Test
+    public void toBlockStarts_should_balance_the_triangle_cells() {
+        int[] blockStarts = CandCounts.toBlockStarts(CandCounts.Layout.TRIANGULAR, 100, 100, 4);
+        //the 4950 cells of the triangle, about 1237 per block:
+        assertArrayEquals(new int[]{0, 14, 30, 50}, blockStarts);
+        assertArrayEquals(new int[]{0, 25, 50, 75}, CandCounts.toBlockStarts(CandCounts.Layout.DENSE, 100, 7, 4));
+        assertArrayEquals(new int[]{0, 1, 2}, CandCounts.toBlockStarts(CandCounts.Layout.DENSE, 3, 7, 10));
+    }
+
+    @Test
+    public void merged_blocks_should_give_the_same_columns_as_the_merged_counts() {
+        for (CandCounts.Layout layout : new CandCounts.Layout[]{
+                CandCounts.Layout.DENSE, CandCounts.Layout.TRIANGULAR, CandCounts.Layout.SPARSE}) {
+            CandCounts expCounts = countRandomPairs(layout);
+            int[] blockStarts = CandCounts.toBlockStarts(layout, TOTAL_ITEMS, TOTAL_ITEMS, 4);
+            List<Tuple2<Integer, CandCounts>> blocks1 = countRandomPairs(layout).toBlocks(blockStarts);
+            List<Tuple2<Integer, CandCounts>> blocks2 = countRandomPairs(layout).toBlocks(blockStarts);
+            for (int blockInd = 0; blockInd < blockStarts.length; ++blockInd) {
+                assertThat(blocks1.get(blockInd)._1, is(blockInd));
+                CandCounts block = blocks1.get(blockInd)._2.mergeWith(blocks2.get(blockInd)._2);
+                assertThat(block.firstElem1, is(blockStarts[blockInd]));
+                for (int elem1 = block.firstElem1; elem1 < block.endElem1; ++elem1) {
+                    int[] expCol = expCounts.toCol(elem1);
+                    for (int ii = 1; ii < expCol.length; ++ii) {
+                        expCol[ii] *= 2;
+                    }
+                    assertArrayEquals(layout + ", elem1=" + elem1, expCol, block.toCol(elem1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void candidate_counts_should_count_only_the_candidates_in_the_set() {
+        int[][] elem1ToSortedElems2 = {{1, 5, 70}, {}, {0, 64, 65}};
+        //both the dense and the sparse forms of the set:
+        for (int totalRanks : new int[]{100, 100000}) {
+            CandCounts.Candidates counts =
+                    (CandCounts.Candidates) CandCounts.newCandidateCounts(elem1ToSortedElems2, 100);
+            long[] elems2Set = FkRankSet.fromSortedRanks(new int[]{5, 6, 64, 70}, 4, totalRanks);
+            counts.addAllIn(0, elems2Set, 2);
+            counts.addAllIn(1, elems2Set, 2);
+            counts.addAllIn(2, elems2Set, 3);
+            counts.addAllIn(2, elems2Set, 300);
+
+            assertThat(counts.get(0, 5), is(2));
+            assertThat(counts.get(0, 6), is(0));
+            assertThat(counts.get(2, 64), is(303));
+            int[] expCol0 = new int[72];
+            expCol0[0] = 0;
+            expCol0[6] = 2;
+            expCol0[71] = 2;
+            assertArrayEquals(expCol0, counts.toCol(0));
+            assertArrayEquals(new int[]{1}, counts.toCol(1));
+
+            int[] blockStarts = CandCounts.toBlockStarts(elem1ToSortedElems2, 2);
+            assertArrayEquals(new int[]{0, 1}, blockStarts);
+            CandCounts block = counts.toBlocks(blockStarts).get(1)._2;
+            assertThat(block.get(2, 64), is(303));
+        }
+    }
+
+    @Test
+    public void candidate_counts_block_should_be_shuffled_without_the_candidates() throws Exception {
+        final int totalRanks = 1000;
+        int[][] elem1ToSortedElems2 = {{1, 5, 70}, IntStream.range(0, totalRanks).toArray(), {0, 64, 65}};
+        CandCounts counts = CandCounts.newCandidateCounts(elem1ToSortedElems2, totalRanks);
+        ((CandCounts.Candidates) counts).addAllIn(2, FkRankSet.fromSortedRanks(new int[]{0, 65}, 2, totalRanks), 7);
+        int[] expCol2 = counts.toCol(2);
+        CandCounts block = counts.toBlocks(new int[]{0, 1}).get(1)._2;
+
+        //the block holds a byte counter per candidate of elem1=1, but not the candidates themselves (4 bytes each):
+        byte[] shuffledBlock = serialize(block);
+        assertTrue("Serialized block size: " + shuffledBlock.length, shuffledBlock.length < 2 * totalRanks);
+        CandCounts.Candidates merged = (CandCounts.Candidates) deserialize(shuffledBlock);
+        merged.mergeWith(deserialize(shuffledBlock));
+        merged.restoreCandidates(elem1ToSortedElems2);
+
+        expCol2[1] *= 2;
+        expCol2[66] *= 2;
+        assertArrayEquals(expCol2, merged.toCol(2));
+        assertThat(merged.get(2, 65), is(14));
+        assertThat(merged.get(1, 5), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeWith_should_reject_other_layout() {
+        CandCounts.newCounts(CandCounts.Layout.TRIANGULAR, 10, 10)
+                .mergeWith(CandCounts.newCounts(CandCounts.Layout.SPARSE, 10, 10));
+    }
+
+    /**
+     * Counts the same random transactions in two 'partitions' and merges them
+     */
+    private static CandCounts countRandomPairs(CandCounts.Layout layout) {
+        Random random = new Random(10L);
+        CandCounts res = CandCounts.newCounts(layout, TOTAL_ITEMS, TOTAL_ITEMS);
+        CandCounts part2 = CandCounts.newCounts(layout, TOTAL_ITEMS, TOTAL_ITEMS);
+        for (int trInd = 0; trInd < 200; ++trInd) {
+            int[] sortedTr = random.ints(0, TOTAL_ITEMS).distinct().limit(1 + random.nextInt(8)).sorted().toArray();
+            int weight = 1 + random.nextInt(3);
+            CandCounts counts = (trInd % 2 == 0) ? res : part2;
+            for (int ii = 0; ii < sortedTr.length - 1; ++ii) {
+                counts.addAll(sortedTr[ii], sortedTr, ii + 1, sortedTr.length, weight);
+            }
+        }
+        return res.mergeWith(part2);
+    }
+
+    private static byte[] serialize(Object obj) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static CandCounts deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (CandCounts) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.junit.Test;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DhpPairBucketsTest {
+
+    @Test
+    public void bucket_should_not_depend_on_the_order_of_the_items() {
+        final int numBuckets = 97;
+        Random random = new Random(1);
+        for (int ii = 0; ii < 1000; ++ii) {
+            int hash1 = random.nextInt();
+            int hash2 = random.nextInt();
+            int bucket = DhpPairBuckets.bucket(hash1, hash2, numBuckets);
+            assertThat(DhpPairBuckets.bucket(hash2, hash1, numBuckets), is(bucket));
+            assertTrue(0 <= bucket && bucket < numBuckets);
+        }
+    }
+
+    @Test
+    public void filter_should_keep_all_the_frequent_pairs() {
+        final int totalItems = 30;
+        final long minSuppCnt = 5;
+        Random random = new Random(2);
+        //the transactions as items ids, with the items hashed as the ids:
+        List<int[]> trs = new ArrayList<>();
+        for (int trInd = 0; trInd < 200; ++trInd) {
+            trs.add(random.ints(random.nextInt(6), 0, totalItems).distinct().sorted().toArray());
+        }
+
+        DhpPairBuckets buckets = new DhpPairBuckets(5000);
+        int[][] pairToCount = new int[totalItems][totalItems];
+        for (int[] tr : trs) {
+            buckets.addPairs(tr, tr.length);
+            for (int ii = 0; ii < tr.length; ++ii) {
+                for (int jj = ii + 1; jj < tr.length; ++jj) {
+                    ++pairToCount[tr[ii]][tr[jj]];
+                }
+            }
+        }
+
+        //take all the items as frequent, the rank being the id:
+        int[] rankToItemHash = new int[totalItems];
+        for (int rank = 0; rank < totalItems; ++rank) {
+            rankToItemHash[rank] = rank;
+        }
+        DhpPairBuckets.Filter filter = buckets.toFilter(minSuppCnt, rankToItemHash);
+        int totalPrunedPairs = 0;
+        for (int item1 = 0; item1 < totalItems; ++item1) {
+            for (int item2 = item1 + 1; item2 < totalItems; ++item2) {
+                if (pairToCount[item1][item2] >= minSuppCnt) {
+                    assertTrue(filter.isCandidate(item1, item2));
+                    assertTrue(filter.isCandidate(item2, item1));
+                }
+                totalPrunedPairs += filter.isCandidate(item1, item2) ? 0 : 1;
+            }
+        }
+        assertTrue(totalPrunedPairs > 0);
+
+        //counting only the candidates should not change the counts of the frequent pairs:
+        int[][] candPairs = filter.toCandidatePairsOrNull(totalItems);
+        assertThat(candPairs, notNullValue());
+        List<Tuple2<int[], Integer>> weightedTrs = new ArrayList<>();
+        for (int[] tr : trs) {
+            weightedTrs.add(new Tuple2<>(tr, 1));
+        }
+        AprCandidateFisGenerator gen = new AprCandidateFisGenerator();
+        CandCounts counts = gen.countCands2_Part(weightedTrs.iterator(), totalItems, candPairs).next();
+        for (int item1 = 0; item1 < totalItems; ++item1) {
+            for (int item2 = item1 + 1; item2 < totalItems; ++item2) {
+                boolean isCandidate = filter.isCandidate(item1, item2);
+                assertThat(Arrays.binarySearch(candPairs[item1], item2) >= 0, is(isCandidate));
+                assertThat(counts.get(item1, item2), is(isCandidate ? pairToCount[item1][item2] : 0));
+            }
+        }
+    }
+
+    @Test
+    public void toCandidatePairsOrNull_should_give_up_if_most_of_the_pairs_survive() {
+        DhpPairBuckets buckets = new DhpPairBuckets(1);
+        buckets.addPairs(new int[]{1, 2, 3}, 3);
+        assertThat(buckets.toFilter(1, new int[]{1, 2, 3}).toCandidatePairsOrNull(3), nullValue());
+        assertThat(buckets.toFilter(4, new int[]{1, 2, 3}).toCandidatePairsOrNull(3)[0].length, is(0));
+    }
+
+    @Test
+    public void bucket_counts_should_saturate_rather_than_wrap_around() {
+        DhpPairBuckets buckets = new DhpPairBuckets(1);
+        buckets.addPairs(new int[]{1, 2}, 2);
+        for (int ii = 0; ii < 40; ++ii) {
+            buckets.merge(buckets); //doubles the count
+        }
+        buckets.addPairs(new int[]{1, 2}, 2);
+
+        DhpPairBuckets.Filter filter = buckets.toFilter(5, new int[]{1, 2});
+        assertTrue(filter.isCandidate(0, 1));
+        //saturated, so even a min support larger than any int count should not prune the pair:
+        assertTrue(buckets.toFilter(3_000_000_000L, new int[]{1, 2}).isCandidate(0, 1));
+    }
+}
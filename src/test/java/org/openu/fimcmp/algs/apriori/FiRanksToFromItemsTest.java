@@ -0,0 +1,44 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class FiRanksToFromItemsTest {
+
+    @Test
+    public void getItemsetByRank_should_follow_the_mappers_chain() {
+        final int totalItems = 6;
+        List<int[]> f2 = new ArrayList<>();
+        for (int item1 = 0; item1 < totalItems; ++item1) {
+            for (int item2 = item1 + 1; item2 < totalItems; ++item2) {
+                f2.add(new int[]{item1, item2, 100 - item1 - item2});
+            }
+        }
+        CurrSizeFiRanks f2Ranks = CurrSizeFiRanks.construct(f2, totalItems, totalItems);
+        FiRanksToFromItems f2AllRanks = new FiRanksToFromItems(f2Ranks);
+        List<int[]> f3 = NextSizeItemsetGenHelper.construct(f2AllRanks, totalItems,
+                f2Ranks.getTotalCurrSizeRanks(), NextSizeItemsetGenHelper.CountingEngine.DENSE).getCandsAsPairs();
+        CurrSizeFiRanks f3Ranks = CurrSizeFiRanks.construct(f3, totalItems, f2Ranks.getTotalCurrSizeRanks());
+
+        FiRanksToFromItems viaNextSize = f2AllRanks.toNextSize(f3Ranks);
+        FiRanksToFromItems viaConstructor = new FiRanksToFromItems(f3Ranks, f2Ranks);
+        for (int rank3 = 0; rank3 < f3Ranks.getTotalCurrSizeRanks(); ++rank3) {
+            int[] itemAndRank2 = f3Ranks.getCurrSizeFiAsPairByRank(rank3);
+            int[] rank2Items = f2Ranks.getCurrSizeFiAsPairByRank(itemAndRank2[1]);
+            int[] expItemset2 = {rank2Items[0], rank2Items[1]};
+            int[] expItemset = {itemAndRank2[0], rank2Items[0], rank2Items[1]};
+
+            assertArrayEquals(expItemset, viaNextSize.getItemsetByRank(rank3, 3));
+            assertArrayEquals(expItemset, viaConstructor.getItemsetByRankMaxK(rank3));
+            assertArrayEquals(expItemset2, viaNextSize.getItemsetByRank(itemAndRank2[1], 2));
+            assertArrayEquals(new int[]{itemAndRank2[0]}, viaNextSize.getItemsetByRank(itemAndRank2[0], 1));
+        }
+        assertThat(viaNextSize.getItemsetTable(3).length, is(3 * f3.size()));
+    }
+}
@@ -0,0 +1,54 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.junit.Test;
+import org.openu.fimcmp.util.BitArrays;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class FkRankSetTest {
+
+    @Test
+    public void both_forms_should_hold_the_same_ranks() {
+        Random random = new Random(1);
+        for (int totalRanks : new int[]{1, 64, 100, 1000, 100000}) {
+            for (int setInd = 0; setInd < 50; ++setInd) {
+                int[] sortedRanks = random.ints(random.nextInt(Math.min(totalRanks, 100) + 1), 0, totalRanks)
+                        .distinct().sorted().toArray();
+                long[] rankSet = FkRankSet.fromSortedRanks(sortedRanks, sortedRanks.length, totalRanks);
+                String msg = totalRanks + ": " + Arrays.toString(sortedRanks);
+
+                assertThat(msg, FkRankSet.size(rankSet), is(sortedRanks.length));
+                assertThat(msg, FkRankSet.isEmpty(rankSet), is(sortedRanks.length == 0));
+                assertArrayEquals(msg, sortedRanks, FkRankSet.toRanks(rankSet));
+                for (int rank = 0; rank < totalRanks; rank += 1 + totalRanks / 200) {
+                    boolean isExpContained = Arrays.binarySearch(sortedRanks, rank) >= 0;
+                    assertThat(msg, FkRankSet.contains(rankSet, rank), is(isExpContained));
+                }
+
+                long[] otherBs = new long[BitArrays.requiredSize(totalRanks, 0)];
+                int[] otherRanks = random.ints(random.nextInt(50), 0, totalRanks).distinct().sorted().toArray();
+                BitArrays.setAll(otherBs, 0, otherRanks);
+                int[] expCommon = Arrays.stream(sortedRanks)
+                        .filter(rank -> Arrays.binarySearch(otherRanks, rank) >= 0).toArray();
+                int[] resBuf = new int[sortedRanks.length];
+                int commonCnt = FkRankSet.andAsNumbers(rankSet, otherBs, resBuf);
+                assertArrayEquals(msg, expCommon, Arrays.copyOf(resBuf, commonCnt));
+            }
+        }
+    }
+
+    @Test
+    public void few_ranks_of_many_should_take_the_sparse_form() {
+        long[] rankSet = FkRankSet.fromRanks(new int[]{99999, 7, 12345}, 3, 100000);
+        assertThat(FkRankSet.isDense(rankSet), is(false));
+        assertThat(rankSet.length, is(3));
+        assertArrayEquals(new int[]{7, 12345, 99999}, FkRankSet.toRanks(rankSet));
+
+        assertThat(FkRankSet.isDense(FkRankSet.fromRanks(new int[]{99, 7, 5}, 3, 100)), is(true));
+    }
+}
@@ -0,0 +1,62 @@
+package org.openu.fimcmp.algs.apriori;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class NextSizeItemsetGenHelperTest {
+
+    @Test
+    public void prefix_join_should_generate_the_same_candidates_as_screening() {
+        final int totalItems = 12;
+        Random random = new Random(1);
+        List<int[]> f2 = new ArrayList<>();
+        for (int item1 = 0; item1 < totalItems; ++item1) {
+            for (int item2 = item1 + 1; item2 < totalItems; ++item2) {
+                if (random.nextInt(4) != 0) {
+                    f2.add(new int[]{item1, item2, 1 + random.nextInt(100)});
+                }
+            }
+        }
+        CurrSizeFiRanks f2Ranks = CurrSizeFiRanks.construct(f2, totalItems, totalItems);
+        FiRanksToFromItems f2AllRanks = new FiRanksToFromItems(f2Ranks);
+        List<int[]> cand3 = checkSameCands(f2AllRanks, totalItems, f2Ranks.getTotalCurrSizeRanks());
+
+        //F3 = most of the candidates:
+        List<int[]> f3 = cand3.stream().filter(cand -> random.nextInt(5) != 0).collect(Collectors.toList());
+        CurrSizeFiRanks f3Ranks = CurrSizeFiRanks.construct(f3, totalItems, f2Ranks.getTotalCurrSizeRanks());
+        List<int[]> cand4 = checkSameCands(
+                f2AllRanks.toNextSize(f3Ranks), totalItems, f3Ranks.getTotalCurrSizeRanks());
+        assertThat(cand4.isEmpty(), is(false));
+    }
+
+    private static List<int[]> checkSameCands(FiRanksToFromItems mappers, int totalItems, int totalCurrSizeRanks) {
+        List<int[]> expCands = null;
+        for (NextSizeItemsetGenHelper.CountingEngine engine : new NextSizeItemsetGenHelper.CountingEngine[]{
+                NextSizeItemsetGenHelper.CountingEngine.DENSE, NextSizeItemsetGenHelper.CountingEngine.TRIE}) {
+            for (NextSizeItemsetGenHelper.CandidateGeneration generation :
+                    NextSizeItemsetGenHelper.CandidateGeneration.values()) {
+                NextSizeItemsetGenHelper helper = NextSizeItemsetGenHelper.construct(
+                        mappers, totalItems, totalCurrSizeRanks, engine, generation);
+                List<int[]> cands = helper.getCandsAsPairs();
+                assertThat(helper.getTotalCands(), is((long) cands.size()));
+                if (expCands == null) {
+                    expCands = cands;
+                } else {
+                    assertThat(engine + " " + generation, toStrings(cands), is(toStrings(expCands)));
+                }
+            }
+        }
+        return expCands;
+    }
+
+    private static List<String> toStrings(List<int[]> cands) {
+        return cands.stream().map(cand -> cand[0] + ":" + cand[1]).collect(Collectors.toList());
+    }
+}
@@ -32,5 +32,11 @@ public class PairRanksTest {
 
         assertThat(pairRanks.computeMaxElem1(), is(5));
         assertThat(pairRanks.computeMaxElem2(), is(4));
+
+        assertThat(pairRanks.getRankByPair(5, 2), is(3));
+        assertThat(pairRanks.getRankByPair(0, 2), is(-1));
+        int[] resBuf = new int[]{7, -1, -1, -1};
+        int resCnt = pairRanks.addRanksByPairs(5, new int[]{0, 1, 3, 4, 9}, 1, 5, resBuf, 1);
+        assertArrayEquals(new int[]{7, 4}, Arrays.copyOf(resBuf, resCnt));
     }
 }
@@ -8,6 +8,7 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.openu.fimcmp.algs.algbase.BasicOps;
+import org.openu.fimcmp.algs.algbase.WeightedRanks;
 import org.openu.fimcmp.algs.apriori.*;
 import org.openu.fimcmp.algs.eclat.EclatAlg;
 import org.openu.fimcmp.algs.eclat.EclatProperties;
@@ -17,6 +18,7 @@ import org.openu.fimcmp.itemset.ItemsetAndTidsCollection;
 import org.openu.fimcmp.result.FiResultHolder;
 import org.openu.fimcmp.util.BitArrays;
 import scala.Tuple2;
+import scala.Tuple3;
 
 import java.io.Serializable;
 import java.util.*;
@@ -63,44 +65,43 @@ public class AprioriAlgIT extends AlgITBase implements Serializable {
         eclat = new EclatAlg(eclatProps);
         //from now on, the items are [0, sortedF1.size), 0 denotes the most frequent item
 
-        JavaRDD<int[]> filteredTrs = prep.trs.map(t -> BasicOps.getMappedFilteredAndSortedTrs(t, itemToRank));
+        JavaRDD<Tuple2<int[], Integer>> filteredTrs = WeightedRanks.withUnitWeights(
+                prep.trs.map(t -> BasicOps.getMappedFilteredAndSortedTrs(t, itemToRank)));
         filteredTrs = filteredTrs.persist(StorageLevel.MEMORY_ONLY_SER());
 //        filteredTrs = filteredTrs.persist(StorageLevel.MEMORY_AND_DISK_SER());
         pp("filtered and saved");
 
-        List<int[]> f2AsArrays = apr.computeF2_Part(filteredTrs, totalFreqItems);
-        pp("F2 as arrays size: " + f2AsArrays.size());
-        List<int[]> f2 = apr.fkAsArraysToFilteredRankPairs(f2AsArrays);
+        List<int[]> f2 = apr.computeF2(filteredTrs, totalFreqItems);
         pp("F2 size: " + f2.size());
         FiRanksToFromItems fiRanksToFromItemsR1 = new FiRanksToFromItems();
         List<FreqItemset> f2Res =
-                apr.fkAsArraysToResItemsets(f2AsArrays, rankToItem, fiRanksToFromItemsR1);
+                apr.fkToResItemsets(f2, rankToItem, fiRanksToFromItemsR1);
         f2Res = f2Res.stream().sorted((fi1, fi2) -> Integer.compare(fi2.freq, fi1.freq)).collect(Collectors.toList());
         pp("F2: " + StringUtils.join(f2Res.subList(0, Math.min(3, f2Res.size())), "\n"));
 
         CurrSizeFiRanks preprocessedF2 = CurrSizeFiRanks.construct(f2, totalFreqItems, totalFreqItems);
         FiRanksToFromItems fiRanksToFromItemsR2 = fiRanksToFromItemsR1.toNextSize(preprocessedF2);
-        JavaRDD<Tuple2<int[], long[]>> ranks1And2 = apr.toRddOfRanks1And2(filteredTrs, preprocessedF2);
+        JavaRDD<Tuple3<int[], long[], Integer>> ranks1And2 =
+                apr.toRddOfRanks1And2(filteredTrs, sc.broadcast(preprocessedF2));
         ranks1And2 = ranks1And2.persist(StorageLevel.MEMORY_ONLY_SER());
 //        ranks1And2 = ranks1And2.persist(StorageLevel.MEMORY_AND_DISK_SER());
         pp("zzz");
         NextSizeItemsetGenHelper f3GenHelper = NextSizeItemsetGenHelper.construct(
                 fiRanksToFromItemsR2, totalFreqItems, f2.size());
-        List<int[]> f3AsArrays = apr.computeFk_Part(3, ranks1And2, f3GenHelper);
-        pp("F3 as arrays size: " + f3AsArrays.size());
-        List<int[]> f3 = apr.fkAsArraysToFilteredRankPairs(f3AsArrays);
+        List<int[]> f3 = apr.computeFk(3, ranks1And2, sc.broadcast(f3GenHelper));
         pp("F3 size: " + f3.size());
-        List<FreqItemset> f3Res = apr.fkAsArraysToResItemsets(f3AsArrays, rankToItem, fiRanksToFromItemsR2);
+        List<FreqItemset> f3Res = apr.fkToResItemsets(f3, rankToItem, fiRanksToFromItemsR2);
         f3Res = f3Res.stream().sorted((fi1, fi2) -> Integer.compare(fi2.freq, fi1.freq)).collect(Collectors.toList());
         pp("F3: " + StringUtils.join(f3Res.subList(0, Math.min(10, f3Res.size())), "\n"));
 
         CurrSizeFiRanks preprocessedF3 = CurrSizeFiRanks.construct(f3, totalFreqItems, f2.size());
-        JavaRDD<Tuple2<int[], long[]>> ranks1And3 = apr.toRddOfRanks1AndK(ranks1And2, preprocessedF3);
+        JavaRDD<Tuple3<int[], long[], Integer>> ranks1And3 =
+                apr.toRddOfRanks1AndK(ranks1And2, sc.broadcast(preprocessedF3));
 //        ranks1And3 = ranks1And3.persist(StorageLevel.MEMORY_AND_DISK_SER());
 
-        TidsGenHelper tidsGenHelper = preprocessedF3.constructTidGenHelper(f3, (int) prep.totalTrs);
+        TidsGenHelper tidsGenHelper = preprocessedF3.constructTidGenHelper(f3, (int) prep.totalTrs, null);
 
-        JavaRDD<long[]> kRanksBsRdd = ranks1And3.map(r1And3 -> r1And3._2);
+        JavaRDD<long[]> kRanksBsRdd = ranks1And3.map(r1And3 -> r1And3._2());
         filteredTrs.unpersist();
         kRanksBsRdd = kRanksBsRdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
 //        ranks1And2.unpersist();
@@ -108,7 +109,8 @@ public class AprioriAlgIT extends AlgITBase implements Serializable {
         PairRanks r3ToR2AndR1 = fiRanksToFromItemsR3.constructRkToRkm1AndR1ForMaxK();
 
         pp("Starting collecting the TIDs");
-        JavaRDD<long[][]> rankToTidBsRdd = apr.computeCurrRankToTidBitSet_Part(kRanksBsRdd, tidsGenHelper);
+        JavaRDD<long[][]> rankToTidBsRdd =
+                apr.computeCurrRankToTidBitSet_Part(kRanksBsRdd, sc.broadcast(tidsGenHelper));
         rankToTidBsRdd = rankToTidBsRdd.persist(StorageLevel.MEMORY_AND_DISK_SER());
 //        long[][] rankKToTids = apr.mergePartitions(rankToTidBsRdd, tidsGenHelper);
         ranks1And2.unpersist();
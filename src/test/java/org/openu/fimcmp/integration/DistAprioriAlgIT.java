@@ -0,0 +1,97 @@
+package org.openu.fimcmp.integration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openu.fimcmp.algs.bigfim.BigFimAlg;
+import org.openu.fimcmp.algs.bigfim.BigFimAlgProperties;
+import org.openu.fimcmp.algs.distapriori.DistAprioriAlg;
+import org.openu.fimcmp.algs.distapriori.DistAprioriAlgProperties;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the standalone distributed Apriori against BigFIM on a generated dataset
+ */
+public class DistAprioriAlgIT extends AlgITBase {
+    private static final double MIN_SUPP = 0.05;
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private String inputFile;
+
+    @Before
+    public void setUp() throws Exception {
+        setUpRun(false);
+        inputFile = writeRandomTransactions(tmpFolder.newFile("trs.txt"), 2000, 30, new Random(1));
+    }
+
+    @After
+    public void tearDown() {
+        sc.stop();
+    }
+
+    @Test
+    public void should_find_as_many_fis_as_big_fim() throws Exception {
+        final long expCount = countWithBigFim();
+        assertTrue("Too few FIs to compare: " + expCount, expCount > 100);
+
+        DistAprioriAlgProperties props = newProps();
+        assertThat(countWithDistApriori(props), is(expCount));
+
+        props = newProps();
+        props.aprMultiLevelMaxCounters = 100_000_000;
+        assertThat(countWithDistApriori(props), is(expCount));
+
+        props = newProps();
+        props.isAprTrimTransactions = false;
+        props.isDedupTransactions = true;
+        assertThat(countWithDistApriori(props), is(expCount));
+    }
+
+    private long countWithBigFim() throws Exception {
+        //switch to Eclat as early as possible, so that the larger FIs are computed by a different algorithm:
+        BigFimAlgProperties props = new BigFimAlgProperties(MIN_SUPP, 2);
+        props.currToPrevResSignificantIncreaseRatio = 0;
+        props.isPrintIntermediateRes = false;
+        return new BigFimAlg(props, inputFile).run(sc, sw).getTotalResultsCount();
+    }
+
+    private long countWithDistApriori(DistAprioriAlgProperties props) throws Exception {
+        return new DistAprioriAlg(props, inputFile).run(sc, sw).size();
+    }
+
+    private static DistAprioriAlgProperties newProps() {
+        DistAprioriAlgProperties res = new DistAprioriAlgProperties(MIN_SUPP);
+        res.isPrintIntermediateRes = false;
+        return res;
+    }
+
+    /**
+     * The lower the item, the more frequent it is, so that there are FIs of several sizes
+     */
+    private static String writeRandomTransactions(File file, int totalTrs, int totalItems, Random random)
+            throws Exception {
+        try (PrintWriter writer = new PrintWriter(file)) {
+            for (int trInd = 0; trInd < totalTrs; ++trInd) {
+                StringBuilder tr = new StringBuilder();
+                for (int item = 0; item < totalItems; ++item) {
+                    if (random.nextDouble() < 0.7 / (1 + 0.2 * item)) {
+                        tr.append(item).append(' ');
+                    }
+                }
+                writer.println(tr.toString().trim());
+            }
+        }
+        return file.getAbsolutePath();
+    }
+}
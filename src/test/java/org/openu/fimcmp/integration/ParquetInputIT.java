@@ -0,0 +1,153 @@
+package org.openu.fimcmp.integration;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openu.fimcmp.algs.algbase.AlgBase;
+import org.openu.fimcmp.algs.algbase.CommonAlgProperties;
+import org.openu.fimcmp.algs.algbase.RankedInput;
+import org.openu.fimcmp.algs.apriori.AprioriAlgProperties;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that the PARQUET input is ranked the same way as the equivalent TEXT input
+ */
+public class ParquetInputIT extends AlgITBase {
+    private static final double MIN_SUPP = 0.1;
+    private static final int TOTAL_TRS = 60;
+    private static final int[] ITEM_IDS = {0, 1, 2, 3, 4, 5, 6, 7, 99};
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        setUpRun(false);
+    }
+
+    @After
+    public void tearDown() {
+        sc.stop();
+    }
+
+    @Test
+    public void string_items_should_be_ranked_as_the_text_input() throws Exception {
+        assertSameAsText(writeParquet(DataTypes.StringType), null, false);
+    }
+
+    @Test
+    public void int_items_should_be_ranked_as_the_text_input() throws Exception {
+        assertSameAsText(writeParquet(DataTypes.IntegerType), null, false);
+    }
+
+    @Test
+    public void filtered_string_items_should_be_ranked_as_the_filtered_text_input() throws Exception {
+        assertSameAsText(writeParquet(DataTypes.StringType), "country = 'IL'", true);
+    }
+
+    @Test
+    public void filtered_int_items_should_be_ranked_as_the_filtered_text_input() throws Exception {
+        assertSameAsText(writeParquet(DataTypes.IntegerType), "country = 'IL'", true);
+    }
+
+    private void assertSameAsText(String parquetFile, String filterOrNull, boolean isOnlyIl) throws Exception {
+        RankedInput expRes = new RankingAlg(new AprioriAlgProperties(MIN_SUPP), writeText(isOnlyIl)).run(sc, sw);
+
+        CommonAlgProperties parquetProps = new AprioriAlgProperties(MIN_SUPP);
+        parquetProps.inputFormat = CommonAlgProperties.InputFormat.PARQUET;
+        parquetProps.parquetFilter = filterOrNull;
+        RankedInput res = new RankingAlg(parquetProps, parquetFile).run(sc, sw);
+
+        assertThat(res.f1Context.totalTrs, is(expRes.f1Context.totalTrs));
+        assertThat(res.f1Context.minSuppCnt, is(expRes.f1Context.minSuppCnt));
+        assertThat(Arrays.asList(res.f1Context.rankToItem), is(Arrays.asList(expRes.f1Context.rankToItem)));
+        assertThat(toSortedStrings(res.ranks1Rdd.collect()), is(toSortedStrings(expRes.ranks1Rdd.collect())));
+    }
+
+    /**
+     * Each item is in every (item+2)-th transaction, so that all the supports are different, with or without the
+     * transactions filtered out by the country, see {@link #isIl}, and the ranks do not depend on how the ties
+     * are broken. <br/>
+     * Item 99 is in every transaction, so that none is empty.
+     */
+    private static List<Integer> trItemIds(int tr) {
+        List<Integer> res = new ArrayList<>();
+        for (int item : ITEM_IDS) {
+            if (item == 99 || tr % (item + 2) == 0) {
+                res.add(item);
+            }
+        }
+        return res;
+    }
+
+    private static boolean isIl(int tr) {
+        return tr % 7 != 6;
+    }
+
+    private String writeText(boolean isOnlyIl) throws Exception {
+        File file = tmpFolder.newFile();
+        try (PrintWriter writer = new PrintWriter(file)) {
+            for (int tr = 0; tr < TOTAL_TRS; ++tr) {
+                if (!isOnlyIl || isIl(tr)) {
+                    writer.println(StringUtils.join(trItemIds(tr), " "));
+                }
+            }
+        }
+        return file.getAbsolutePath();
+    }
+
+    private String writeParquet(DataType itemType) throws Exception {
+        List<Row> rows = new ArrayList<>();
+        for (int tr = 0; tr < TOTAL_TRS; ++tr) {
+            List<Integer> itemIds = trItemIds(tr);
+            Object[] items = (itemType == DataTypes.IntegerType) ?
+                    itemIds.toArray() : itemIds.stream().map(String::valueOf).toArray();
+            rows.add(RowFactory.create(items, isIl(tr) ? "IL" : "US"));
+        }
+        StructType schema = new StructType()
+                .add("items", DataTypes.createArrayType(itemType))
+                .add("country", DataTypes.StringType);
+
+        String res = new File(tmpFolder.getRoot(), "trs.parquet").getAbsolutePath();
+        SparkSession.builder().getOrCreate().createDataFrame(rows, schema).write().parquet(res);
+        return res;
+    }
+
+    private static List<String> toSortedStrings(List<int[]> trs) {
+        return trs.stream().map(Arrays::toString).sorted().collect(Collectors.toList());
+    }
+
+    private static class RankingAlg extends AlgBase<CommonAlgProperties, RankedInput> {
+        RankingAlg(CommonAlgProperties props, String inputFile) {
+            super(props, inputFile);
+        }
+
+        /**
+         * Only reads the ranked input, see {@link #readRankedInput}
+         */
+        @Override
+        public RankedInput run(JavaSparkContext sc, StopWatch sw) throws Exception {
+            return readRankedInput(sc, sw);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.openu.fimcmp.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class AdaptiveCountersTest {
+
+    @Test
+    public void addAll_should_promote_to_wider_counters_on_overflow() {
+        AdaptiveCounters counters = new AdaptiveCounters(10);
+        int[] inds = {12, 13, 17};
+        counters.addAll(inds, 0, inds.length, 10, 200);
+        assertThat(counters.bytesPerCounter(), is(1));
+
+        counters.addAll(inds, 1, inds.length, 10, 100);
+        assertThat(counters.bytesPerCounter(), is(2));
+        assertThat(counters.get(2), is(200));
+        assertThat(counters.get(3), is(300));
+        assertThat(counters.get(7), is(300));
+        assertThat(counters.get(0), is(0));
+
+        counters.addAll(inds, 2, inds.length, 10, 70000);
+        assertThat(counters.bytesPerCounter(), is(4));
+        assertThat(counters.get(3), is(300));
+        assertThat(counters.get(7), is(70300));
+    }
+
+    @Test
+    public void add_should_promote_directly_to_ints_for_large_delta() {
+        AdaptiveCounters counters = new AdaptiveCounters(3);
+        counters.add(1, 255);
+        assertThat(counters.bytesPerCounter(), is(1));
+        counters.add(1, 100000);
+        assertThat(counters.bytesPerCounter(), is(4));
+        assertThat(counters.get(1), is(100255));
+    }
+
+    @Test
+    public void addAll_of_other_counters_should_promote_to_fit_the_sums() {
+        AdaptiveCounters counters = new AdaptiveCounters(3);
+        counters.add(0, 200);
+        AdaptiveCounters other = new AdaptiveCounters(3);
+        other.add(0, 100);
+        other.add(2, 1000);
+
+        counters.addAll(other);
+        assertThat(counters.bytesPerCounter(), is(2));
+        assertThat(counters.get(0), is(300));
+        assertThat(counters.get(1), is(0));
+        assertThat(counters.get(2), is(1000));
+    }
+}
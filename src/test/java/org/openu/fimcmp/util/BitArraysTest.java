@@ -102,6 +102,39 @@ public class BitArraysTest {
         assertThat(actRes, is(expRes));
     }
 
+    @Test
+    public void andAsNumbers_should_return_the_common_set_bits() {
+        final int[] indexes1 = {0, 7, 63, 64, 130, 200, 1234};
+        final int[] indexes2 = {1, 7, 64, 129, 130, 1234};
+        long[] words1 = new long[BitArrays.requiredSize(1 + 1234, START_IND)];
+        long[] words2 = new long[words1.length];
+        BitArrays.setAll(words1, START_IND, indexes1);
+        BitArrays.setAll(words2, START_IND, indexes2);
+
+        int[] resBuf = new int[indexes2.length];
+        int resCnt = BitArrays.andAsNumbers(words1, words2, START_IND, resBuf);
+        assertThat(asList(resBuf).subList(0, resCnt), is(asList(7, 64, 130, 1234)));
+        //the inputs are left untouched:
+        assertThat(asList(BitArrays.asNumbers(words1, START_IND)), is(asList(indexes1)));
+        assertThat(asList(BitArrays.asNumbers(words2, START_IND)), is(asList(indexes2)));
+    }
+
+    @Test
+    public void weightedCardinality_should_sum_the_weights_of_set_bits() {
+        final int[] indexes = {0, 7, 63, 64, 130};
+        long[] words = new long[BitArrays.requiredSize(1 + indexes[indexes.length - 1], START_IND)];
+        BitArrays.setAll(words, START_IND, indexes);
+        int[] bitToWeight = new int[131];
+        Arrays.fill(bitToWeight, 100);
+        bitToWeight[0] = 1;
+        bitToWeight[7] = 2;
+        bitToWeight[63] = 3;
+        bitToWeight[64] = 4;
+        bitToWeight[130] = 5;
+
+        assertThat(BitArrays.weightedCardinality(words, START_IND, bitToWeight), is(15));
+    }
+
     @Test
     public void tmp() {
         long num = 345123456789123L;
@@ -0,0 +1,63 @@
+package org.openu.fimcmp.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+public class IntIntOpenHashMapTest {
+
+    @Test
+    public void test_same_as_hash_map() {
+        Random rand = new Random(7L);
+        IntIntOpenHashMap map = new IntIntOpenHashMap(4);
+        Map<Integer, Integer> expMap = new HashMap<>();
+        for (int ii = 0; ii < 100_000; ++ii) {
+            int key = (rand.nextBoolean()) ? rand.nextInt(100) : rand.nextInt(Integer.MAX_VALUE);
+            int delta = 1 + rand.nextInt(3);
+            map.addTo(key, delta);
+            expMap.merge(key, delta, Integer::sum);
+        }
+
+        assertThat(map.size(), is(expMap.size()));
+        for (Map.Entry<Integer, Integer> entry : expMap.entrySet()) {
+            assertThat(map.get(entry.getKey()), is(entry.getValue()));
+        }
+        assertThat(map.get(Integer.MAX_VALUE - 1), is(expMap.getOrDefault(Integer.MAX_VALUE - 1, 0)));
+
+        Map<Integer, Integer> actMap = new HashMap<>();
+        map.forEach(actMap::put);
+        assertThat(actMap, is(expMap));
+    }
+
+    @Test
+    public void test_add_all() {
+        IntIntOpenHashMap map1 = new IntIntOpenHashMap(0);
+        ObjIntOpenHashMap<String> strMap1 = new ObjIntOpenHashMap<>(0);
+        for (int key = 0; key < 100; ++key) {
+            map1.addTo(key, 1);
+            strMap1.addTo("" + key, 1);
+        }
+        IntIntOpenHashMap map2 = new IntIntOpenHashMap(0);
+        ObjIntOpenHashMap<String> strMap2 = new ObjIntOpenHashMap<>(0);
+        for (int key = 50; key < 200; ++key) {
+            map2.addTo(key, 10);
+            strMap2.addTo("" + key, 10);
+        }
+
+        map1.addAll(map2);
+        strMap1.addAll(strMap2);
+        assertThat(map1.size(), is(200));
+        assertThat(strMap1.size(), is(200));
+        for (int key = 0; key < 200; ++key) {
+            int expVal = ((key < 100) ? 1 : 0) + ((key >= 50) ? 10 : 0);
+            assertThat(map1.get(key), is(expVal));
+            assertThat(strMap1.get("" + key), is(expVal));
+        }
+        assertThat(strMap1.get("200"), is(0));
+    }
+}
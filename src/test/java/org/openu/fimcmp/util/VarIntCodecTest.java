@@ -0,0 +1,47 @@
+package org.openu.fimcmp.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class VarIntCodecTest {
+    @Test
+    public void test_sorted_arrays_round_trip() {
+        int[][] arrs = {{}, {0}, {0, 1, 2, 3}, {5, 127, 128, 300, 16_384, 2_000_000, Integer.MAX_VALUE}};
+        VarIntCodec.Writer writer = new VarIntCodec.Writer(1);
+        for (int[] arr : arrs) {
+            writer.writeSortedArr(arr);
+        }
+        writer.writeVarInt(Integer.MAX_VALUE);
+
+        byte[] bytes = writer.toByteArray();
+        assertThat(bytes.length, is(writer.size()));
+        VarIntCodec.Reader reader = new VarIntCodec.Reader(bytes, 0, bytes.length);
+        for (int[] arr : arrs) {
+            assertArrayEquals(arr, reader.readSortedArr());
+        }
+        assertThat(reader.readVarInt(), is(Integer.MAX_VALUE));
+        assertFalse(reader.hasMore());
+    }
+
+    @Test
+    public void test_small_deltas_take_single_byte() {
+        VarIntCodec.Writer writer = new VarIntCodec.Writer(16);
+        writer.writeSortedArr(new int[]{3, 10, 50, 177});
+        assertThat(writer.size(), is(5));
+    }
+
+    @Test
+    public void test_read_prefix_only() {
+        VarIntCodec.Writer writer = new VarIntCodec.Writer(16);
+        writer.writeSortedArr(new int[]{1, 4, 9, 12});
+        writer.writeSortedArr(new int[]{2, 3});
+
+        byte[] bytes = writer.toByteArray();
+        VarIntCodec.Reader reader = new VarIntCodec.Reader(bytes, 0, bytes.length);
+        assertArrayEquals(new int[]{1, 4}, reader.readSortedArr(9));
+        assertArrayEquals(new int[]{2, 3}, reader.readSortedArr(9));
+        assertFalse(reader.hasMore());
+    }
+}